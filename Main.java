@@ -1,14 +1,45 @@
 import expressions.Expression;
 import expressions.Interpretation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 import solver.SatSolver;
 
 /**
  * Class to test SatSolver and related expressions.
+ *
+ * Run without arguments to print the analysis of the sample expressions, or with
+ * {@code --batch <file>} to classify the formulas of a file, one per line ({@code -} reads the
+ * standard input). Blank lines and lines starting with {@code #} are skipped. Formulas are solved
+ * in parallel and for each one a line {@code <line number>\t<result>} is printed in input order,
+ * where the result is {@code TAUTOLOGY}, {@code SATISFIABLE}, {@code CONTRADICTION} or
+ * {@code ERROR <message>}.
  */
 public class Main {
     private static final Expression PLACEHOLDER = Expression.createConstant(false);
+
+    /* (non-javadoc)
+     * Number of lines read and solved together in batch mode, it bounds the memory used.
+     */
+    private static final int BATCH_SIZE = 1 << 12;
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("--batch")) {
+            batch(args[1], System.out);
+            return;
+        }
+        if (args.length > 0) {
+            System.err.println("usage: java Main [--batch <file>|-]");
+            System.exit(2);
+        }
+
         final Main main = new Main();
 
         main.run(main.getExpression1());
@@ -45,6 +76,62 @@ public class Main {
         System.out.println("");
     }
 
+    /**
+     * Classifies the formulas of a file, one per line, solving them in parallel
+     * @param file the file to read, {@code -} for the standard input
+     * @param out the stream the results are printed to, in input order
+     * @throws IOException if {@code file} cannot be read
+     */
+    public static void batch(String file, PrintStream out) throws IOException {
+        try (BufferedReader reader = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            List<String> lines = new ArrayList<>();
+            int first = 1;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+                if (lines.size() == BATCH_SIZE) {
+                    solveAll(lines, first, out);
+                    first += lines.size();
+                    lines.clear();
+                }
+            }
+            solveAll(lines, first, out);
+        }
+        out.flush();
+    }
+
+    private static void solveAll(List<String> lines, int first, PrintStream out) {
+        String[] results = new String[lines.size()];
+        IntStream.range(0, lines.size()).parallel().forEach(i -> results[i] = classify(lines.get(i)));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                sb.append(first + i).append('\t').append(results[i]).append('\n');
+            }
+        }
+        out.print(sb);
+    }
+
+    /* (non-javadoc)
+     * Returns the classification of a formula, null for lines that are skipped.
+     */
+    private static String classify(String line) {
+        String text = line.trim();
+        if (text.isEmpty() || text.startsWith("#")) {
+            return null;
+        }
+        try {
+            Expression expr = Expression.parse(text);
+            if (!SatSolver.isSatisfiable(expr)) {
+                return "CONTRADICTION";
+            }
+            return SatSolver.isTautology(expr) ? "TAUTOLOGY" : "SATISFIABLE";
+        } catch (IllegalArgumentException e) {
+            return "ERROR " + e.getMessage();
+        }
+    }
+
     public Expression getExpression1() {
         Expression p = Expression.createVariableExpression("p");
 
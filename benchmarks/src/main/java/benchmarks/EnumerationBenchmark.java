@@ -0,0 +1,65 @@
+package benchmarks;
+
+import expressions.CompiledExpression;
+import expressions.Expression;
+import expressions.Interpretation;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import solver.SatSolver;
+
+/**
+ * Throughput of evaluating expressions and of enumerating all their interpretations.
+ * Enumeration is exponential in the number of variables, so the formulas are kept small.
+ * Evaluation is measured by walking the expression and with its bytecode compiled after
+ * {@code jitThreshold} evaluations.
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumerationBenchmark {
+
+    @Param({"ksat", "pigeonhole", "parity", "iff"})
+    public String family;
+
+    @Param({"8", "12", "16"})
+    public int variables;
+
+    @Param({"0", "1000"})
+    public int jitThreshold;
+
+    private Expression expression;
+    private Interpretation interpretation;
+
+    @Setup
+    public void setup() {
+        CompiledExpression.setJitThreshold(jitThreshold);
+        expression = Formulas.of(family, variables, 42);
+        interpretation = Formulas.randomInterpretation(expression, 7);
+    }
+
+    @Benchmark
+    public boolean evaluate() {
+        return expression.evaluate(interpretation);
+    }
+
+    @Benchmark
+    public Set<Interpretation> getAllInterpretations() {
+        return SatSolver.getAllInterpretations(expression);
+    }
+}
@@ -0,0 +1,176 @@
+package benchmarks;
+
+import expressions.Expression;
+import expressions.ExpressionFactory;
+import expressions.Interpretation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generators of the formula families used by the benchmarks.
+ * Every generator takes the number of variables of the formula, is deterministic for a given seed
+ * and builds its formula with a fresh {@link ExpressionFactory}, so repeated sub-expressions are
+ * shared as they would be in an application.
+ *
+ * @version 0.1
+ */
+public final class Formulas {
+
+    /**
+     * The clause to variable ratio where random 3-SAT formulas go from mostly satisfiable to mostly
+     * unsatisfiable, and where they are hardest
+     */
+    public static final double THRESHOLD_3SAT = 4.26;
+
+    private Formulas() {
+    }
+
+    /**
+     * Creates a formula of a family by name
+     * @param family one of {@code ksat}, {@code pigeonhole}, {@code parity} or {@code iff}
+     * @param variables the number of variables
+     * @param seed the seed of random families
+     * @return the formula
+     * @throws IllegalArgumentException if {@code family} is unknown
+     */
+    public static Expression of(String family, int variables, long seed) {
+        switch (family) {
+            case "ksat":
+                return randomKSat(3, variables, THRESHOLD_3SAT, seed);
+            case "pigeonhole":
+                return pigeonhole(variables);
+            case "parity":
+                return parityChain(variables);
+            case "iff":
+                return iffTower(variables);
+            default:
+                throw new IllegalArgumentException("unknown family " + family);
+        }
+    }
+
+    /**
+     * Creates a random k-SAT formula: clauses of {@code k} distinct variables with random signs
+     * @param k the length of the clauses
+     * @param variables the number of variables
+     * @param ratio the number of clauses per variable
+     * @param seed the seed of the generator
+     * @return the conjunction of {@code round(ratio * variables)} random clauses
+     * @throws IllegalArgumentException if {@code k} is not between {@code 1} and {@code variables}
+     */
+    public static Expression randomKSat(int k, int variables, double ratio, long seed) {
+        if (k < 1 || k > variables) {
+            throw new IllegalArgumentException("k must be between 1 and the number of variables");
+        }
+        ExpressionFactory f = new ExpressionFactory();
+        Random random = new Random(seed);
+        int clauses = (int) Math.round(ratio * variables);
+        List<Expression> conjuncts = new ArrayList<>();
+        for (int c = 0; c < clauses; c++) {
+            List<Integer> chosen = new ArrayList<>();
+            List<Expression> literals = new ArrayList<>();
+            while (chosen.size() < k) {
+                int v = random.nextInt(variables);
+                if (!chosen.contains(v)) {
+                    chosen.add(v);
+                    Expression var = f.variable(name(v));
+                    literals.add(random.nextBoolean() ? var : f.not(var));
+                }
+            }
+            conjuncts.add(fold(f, literals, false));
+        }
+        return fold(f, conjuncts, true);
+    }
+
+    /**
+     * Creates the pigeonhole formula stating that {@code h + 1} pigeons fit in {@code h} holes,
+     * with one variable per pigeon and hole, which is unsatisfiable and hard for resolution
+     * @param variables the maximum number of variables, {@code h} is the largest value with
+     * {@code h * (h + 1) <= variables}
+     * @return the pigeonhole formula
+     */
+    public static Expression pigeonhole(int variables) {
+        int holes = 1;
+        while ((holes + 1) * (holes + 2) <= variables) {
+            holes++;
+        }
+        ExpressionFactory f = new ExpressionFactory();
+        List<Expression> conjuncts = new ArrayList<>();
+        for (int p = 0; p <= holes; p++) {
+            List<Expression> somewhere = new ArrayList<>();
+            for (int h = 0; h < holes; h++) {
+                somewhere.add(f.variable(name(p * holes + h)));
+            }
+            conjuncts.add(fold(f, somewhere, false));
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p = 0; p < holes + 1; p++) {
+                for (int q = p + 1; q < holes + 1; q++) {
+                    Expression both = f.and(f.variable(name(p * holes + h)), f.variable(name(q * holes + h)));
+                    conjuncts.add(f.not(both));
+                }
+            }
+        }
+        return fold(f, conjuncts, true);
+    }
+
+    /**
+     * Creates the left deep chain {@code x0 xor x1 xor ... xor xn-1}, true iff an odd number of
+     * variables is true
+     * @param variables the number of variables
+     * @return the parity chain
+     */
+    public static Expression parityChain(int variables) {
+        ExpressionFactory f = new ExpressionFactory();
+        Expression result = f.variable(name(0));
+        for (int v = 1; v < variables; v++) {
+            result = f.xor(result, f.variable(name(v)));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the nested equivalences {@code x0 iff (x1 iff (... iff xn-1))}, true iff an even
+     * number of variables is false
+     * @param variables the number of variables
+     * @return the tower of equivalences
+     */
+    public static Expression iffTower(int variables) {
+        ExpressionFactory f = new ExpressionFactory();
+        Expression result = f.variable(name(variables - 1));
+        for (int v = variables - 2; v >= 0; v--) {
+            result = f.iff(f.variable(name(v)), result);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a random interpretation of the variables of an expression
+     * @param expression the expression to use
+     * @param seed the seed of the generator
+     * @return an interpretation assigning every variable of {@code expression}
+     */
+    public static Interpretation randomInterpretation(Expression expression, long seed) {
+        Random random = new Random(seed);
+        Interpretation interpretation = new Interpretation();
+        for (String var : expression.variables()) {
+            interpretation.add(var, random.nextBoolean());
+        }
+        return interpretation;
+    }
+
+    /* (non-javadoc)
+     * The conjunction or disjunction of a non empty list of expressions, folded to the left.
+     */
+    private static Expression fold(ExpressionFactory f, List<Expression> operands, boolean and) {
+        Expression result = operands.get(0);
+        for (int i = 1; i < operands.size(); i++) {
+            result = and ? f.and(result, operands.get(i)) : f.or(result, operands.get(i));
+        }
+        return result;
+    }
+
+    private static String name(int v) {
+        return "x" + v;
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks on 1, 2, 4, ... threads up to a maximum, which is always included, with the
+ * GC profiler, so every result reports throughput, allocation rate and how both scale with the threads.
+ *
+ * Usage: {@code ScalingRunner [maxThreads [includeRegex]]}, the maximum defaults to the number of
+ * available processors and the pattern to all benchmarks.
+ *
+ * @version 0.1
+ */
+public final class ScalingRunner {
+
+    private ScalingRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        String include = args.length > 1 ? args[1] : ".*";
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be positive");
+        }
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            run(include, threads);
+            if (threads < maxThreads && threads * 2 > maxThreads) {
+                run(include, maxThreads);
+            }
+        }
+    }
+
+    private static void run(String include, int threads) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(include)
+            .threads(threads)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
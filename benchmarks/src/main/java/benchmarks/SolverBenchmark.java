@@ -0,0 +1,59 @@
+package benchmarks;
+
+import expressions.Expression;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import solver.SatSolver;
+
+/**
+ * Throughput of the decision procedures of {@link SatSolver} on every formula family.
+ * The formulas are larger than the truth table limit, so the CDCL search is measured.
+ *
+ * @version 0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({"ksat", "pigeonhole", "parity", "iff"})
+    public String family;
+
+    @Param({"30", "60", "90"})
+    public int variables;
+
+    private Expression expression;
+
+    @Setup
+    public void setup() {
+        expression = Formulas.of(family, variables, 42);
+    }
+
+    @Benchmark
+    public boolean isSatisfiable() {
+        return SatSolver.isSatisfiable(expression);
+    }
+
+    @Benchmark
+    public boolean isSatisfiablePortfolio() {
+        return SatSolver.isSatisfiable(expression, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public boolean isTautology() {
+        return SatSolver.isTautology(expression);
+    }
+}
@@ -0,0 +1,696 @@
+package expressions;
+
+import expressions.BinaryExpression.BinaryOperator;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An and-inverter graph (AIG): a boolean expression as a graph of two-input AND nodes whose edges
+ * may be complemented, with structural hashing.
+ *
+ * Node {@code 0} is the constant {@code false}, nodes {@code 1} to {@code inputCount()} are the
+ * variables of the expression numbered as by its {@link SymbolTable}, and the other nodes are AND
+ * nodes, each one after its operands. A literal is a node with a complement bit: {@code 2n} is
+ * node {@code n} and {@code 2n + 1} its negation, so {@code 0} is {@code false} and {@code 1} is
+ * {@code true}. The two operand literals of every AND node are kept in a single {@code int[]}.
+ *
+ * AND nodes are hash-consed on their ordered operands (structural hashing), so equal logic built
+ * in different shapes, such as the commuted operands of a conjunction or an {@code or} written as
+ * a negated {@code and}, is a single node. Every AND node is also simplified, as it is created, by
+ * the two-level rules of Brummayer and Biere, looking at the operands of its operands: contradiction
+ * ({@code (a and b) and not a} is {@code false}), idempotence ({@code (a and b) and a} is
+ * {@code a and b}), subsumption ({@code not (a and b) and not a} is {@code not a}), substitution
+ * ({@code not (a and b) and a} is {@code a and not b}) and resolution ({@code not (a and b) and
+ * not (a and not b)} is {@code not a}). None of them creates more than the node being simplified.
+ *
+ * {@link #rewrite()} further reduces the graph by rebuilding it with cut-based rewriting: the
+ * function of every AND node over the at most four nodes two levels below it is computed as a
+ * truth table, and the node is replaced by a constant, one of those nodes, a single AND of two of
+ * them, possibly negated, or the AND of one of them with an existing AND node of two others,
+ * whenever the function is one of these. A replacement never needs more than one new node, and
+ * the nodes it no longer uses are dropped, so the graph never grows.
+ *
+ * {@link #toExpression()} gives the graph back as an expression whose sub-expressions are shared as
+ * the nodes are. Negated AND nodes become disjunctions and the three nodes of an exclusive or become
+ * an {@code xor} or an {@code iff}, so that {@link CnfEncoder} encodes them with their own gates.
+ * Conversions and rewriting are done without recursion.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> symbols, fanins and table are not {@code null}</li>
+ *  <li> the operands of every AND node are ordered literals of nodes before it</li>
+ *  <li> no two AND nodes have the same operands</li>
+ *  <li> output is a literal of a node of the graph</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class Aig {
+
+    /* (non-javadoc)
+     * The truth tables of the four leaves of a cut, as the bits of 16-bit words.
+     */
+    private static final int[] PROJECTIONS = {0xaaaa, 0xcccc, 0xf0f0, 0xff00};
+
+    /* (non-javadoc)
+     * The largest number of rewriting passes of rewrite, which stops earlier once a pass does not
+     * reduce the graph.
+     */
+    private static final int MAX_PASSES = 4;
+
+    private final SymbolTable symbols;
+    private final int inputCount;
+    private int[] fanins;
+    private int size;
+    private int[] table;
+    private int output;
+
+    /* (non-javadoc)
+     * The AND nodes of the expression the graph was built from, counted by of.
+     */
+    private int expressionAnds;
+
+    /* (non-javadoc)
+     * An empty graph with room for ands AND nodes before its arrays grow.
+     */
+    private Aig(SymbolTable symbols, int ands) {
+        this.symbols = symbols;
+        this.inputCount = symbols.size();
+        this.size = inputCount + 1;
+        this.fanins = new int[2 * Math.max(16, size + ands)];
+        Arrays.fill(fanins, 0, 2 * size, -1);
+        this.table = new int[Math.max(64, Integer.highestOneBit(2 * ands) << 1)];
+    }
+
+    /**
+     * Builds the graph of an expression, in which {@code implies}, {@code iff} and {@code xor}
+     * become AND nodes too
+     * @param expression the expression to convert
+     * @return the graph of {@code expression}, its inputs numbered as by {@link SymbolTable#of(Expression)}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Aig of(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        SymbolTable symbols = SymbolTable.of(expression);
+        Aig aig = new Aig(symbols, (symbols.size() + 1) / 2);
+        Map<Expression, Integer> literals = new IdentityHashMap<>();
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.peek();
+            if (literals.containsKey(expr)) {
+                pending.pop();
+            } else if (expr instanceof Constant) {
+                pending.pop();
+                literals.put(expr, ((Constant) expr).value() ? 1 : 0);
+            } else if (expr instanceof Variable) {
+                pending.pop();
+                literals.put(expr, 2 * (symbols.indexOf(((Variable) expr).name()) + 1));
+            } else if (expr instanceof Negation) {
+                Integer operand = literals.get(((Negation) expr).operand());
+                if (operand == null) {
+                    pending.push(((Negation) expr).operand());
+                } else {
+                    pending.pop();
+                    literals.put(expr, operand ^ 1);
+                }
+            } else if (expr instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) expr;
+                Integer left = literals.get(binary.left());
+                Integer right = literals.get(binary.right());
+                if (left == null || right == null) {
+                    if (left == null) {
+                        pending.push(binary.left());
+                    }
+                    if (right == null) {
+                        pending.push(binary.right());
+                    }
+                } else {
+                    pending.pop();
+                    literals.put(expr, aig.binary(binary.operator(), left, right));
+                    aig.expressionAnds += binary.operator() == BinaryOperator.IFF || binary.operator() == BinaryOperator.XOR ? 3 : 1;
+                }
+            } else {
+                throw new IllegalArgumentException("unsupported expression " + expr.getClass().getName());
+            }
+        }
+        aig.output = literals.get(expression);
+        Aig result = aig.compact();
+        if (!result.repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+        return result;
+    }
+
+    /* (non-javadoc)
+     * The literal of "left op right".
+     */
+    private int binary(BinaryOperator op, int left, int right) {
+        switch (op) {
+            case AND:
+                return and(left, right);
+            case OR:
+                return and(left ^ 1, right ^ 1) ^ 1;
+            case IMPLIES:
+                return and(left, right ^ 1) ^ 1;
+            case IFF:
+                return xor(left, right) ^ 1;
+            case XOR:
+                return xor(left, right);
+            default:
+                throw new IllegalArgumentException("Invalid op, expected AND, OR, IMPLIES, IFF or XOR");
+        }
+    }
+
+    /* (non-javadoc)
+     * The literal of "left xor right" as "not (left and right) and not (not left and not right)",
+     * on uncomplemented operands so that equal exclusive ors share their nodes.
+     */
+    private int xor(int left, int right) {
+        int sign = (left ^ right) & 1;
+        left &= ~1;
+        right &= ~1;
+        return and(and(left, right) ^ 1, and(left ^ 1, right ^ 1) ^ 1) ^ sign;
+    }
+
+    /* (non-javadoc)
+     * The literal of "a and b", folded by the one- and two-level rules or hash-consed.
+     */
+    private int and(int a, int b) {
+        if (a > b) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        if (a == 0 || a == (b ^ 1)) {
+            return 0;
+        }
+        if (a == 1 || a == b) {
+            return b;
+        }
+        boolean andA = isAnd(a >> 1);
+        boolean andB = isAnd(b >> 1);
+        int a0 = andA ? fanins[a & ~1] : -1;
+        int a1 = andA ? fanins[(a & ~1) + 1] : -1;
+        int b0 = andB ? fanins[b & ~1] : -1;
+        int b1 = andB ? fanins[(b & ~1) + 1] : -1;
+        if (andA) {
+            int folded = fold(a, a0, a1, b);
+            if (folded >= 0) {
+                return folded;
+            }
+        }
+        if (andB) {
+            int folded = fold(b, b0, b1, a);
+            if (folded >= 0) {
+                return folded;
+            }
+        }
+        if (andA && andB) {
+            if ((a & 1) == 0 && (b & 1) == 0) {
+                if (a0 == (b0 ^ 1) || a0 == (b1 ^ 1) || a1 == (b0 ^ 1) || a1 == (b1 ^ 1)) {
+                    return 0;
+                }
+            } else if ((a & 1) != (b & 1)) {
+                int positive = (a & 1) == 0 ? a : b;
+                int p0 = (a & 1) == 0 ? a0 : b0;
+                int p1 = (a & 1) == 0 ? a1 : b1;
+                int n0 = (a & 1) == 0 ? b0 : a0;
+                int n1 = (a & 1) == 0 ? b1 : a1;
+                if (n0 == (p0 ^ 1) || n0 == (p1 ^ 1) || n1 == (p0 ^ 1) || n1 == (p1 ^ 1)) {
+                    return positive;
+                }
+                if (n0 == p0 || n0 == p1) {
+                    return and(positive, n1 ^ 1);
+                }
+                if (n1 == p0 || n1 == p1) {
+                    return and(positive, n0 ^ 1);
+                }
+            } else {
+                if (a0 == b0 && a1 == (b1 ^ 1) || a0 == b1 && a1 == (b0 ^ 1)) {
+                    return a0 ^ 1;
+                }
+                if (a1 == b1 && a0 == (b0 ^ 1) || a1 == b0 && a0 == (b1 ^ 1)) {
+                    return a1 ^ 1;
+                }
+            }
+        }
+        return strash(a, b);
+    }
+
+    /* (non-javadoc)
+     * The two-level rules for "x and other" where x is the AND node of x0 and x1, possibly negated.
+     * @return the simplified literal, or -1 if no rule applies
+     */
+    private int fold(int x, int x0, int x1, int other) {
+        if ((x & 1) == 0) {
+            if (x0 == (other ^ 1) || x1 == (other ^ 1)) {
+                return 0;
+            }
+            if (x0 == other || x1 == other) {
+                return x;
+            }
+        } else {
+            if (x0 == (other ^ 1) || x1 == (other ^ 1)) {
+                return other;
+            }
+            if (x0 == other) {
+                return and(other, x1 ^ 1);
+            }
+            if (x1 == other) {
+                return and(other, x0 ^ 1);
+            }
+        }
+        return -1;
+    }
+
+    /* (non-javadoc)
+     * The literal of the AND node of the ordered literals a and b, created unless it exists.
+     */
+    private int strash(int a, int b) {
+        int slot = find(a, b);
+        if (table[slot] != 0) {
+            return 2 * table[slot];
+        }
+        if (2 * size == fanins.length) {
+            fanins = Arrays.copyOf(fanins, 2 * fanins.length);
+        }
+        int node = size++;
+        fanins[2 * node] = a;
+        fanins[2 * node + 1] = b;
+        table[slot] = node;
+        if (2 * (size - inputCount) > table.length) {
+            rehash();
+        }
+        return 2 * node;
+    }
+
+    /* (non-javadoc)
+     * The slot of table holding the AND node of a and b, or the empty slot where it belongs.
+     */
+    private int find(int a, int b) {
+        int mask = table.length - 1;
+        int slot = hash(a, b) & mask;
+        while (table[slot] != 0) {
+            int node = table[slot];
+            if (fanins[2 * node] == a && fanins[2 * node + 1] == b) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        int mask = table.length - 1;
+        for (int node = inputCount + 1; node < size; node++) {
+            int slot = hash(fanins[2 * node], fanins[2 * node + 1]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node;
+        }
+    }
+
+    private static int hash(int a, int b) {
+        int h = a * 0x9e3779b1 + b;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 16);
+    }
+
+    private boolean isAnd(int node) {
+        return node > inputCount;
+    }
+
+    /**
+     * Reduces the graph by cut-based rewriting, pass after pass while the number of AND nodes decreases
+     * @return a graph with the same inputs and function and at most as many AND nodes
+     */
+    public Aig rewrite() {
+        Aig current = this;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            Aig next = current.rewritePass();
+            if (next.andCount() >= current.andCount()) {
+                break;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /* (non-javadoc)
+     * Rebuilds the reachable nodes in order, rewriting each one over its two-level cut.
+     */
+    private Aig rewritePass() {
+        Aig result = new Aig(symbols, andCount());
+        boolean[] reachable = reachable();
+        int[] map = new int[size];
+        for (int node = 0; node <= inputCount; node++) {
+            map[node] = 2 * node;
+        }
+        for (int node = inputCount + 1; node < size; node++) {
+            if (reachable[node]) {
+                int a = fanins[2 * node];
+                int b = fanins[2 * node + 1];
+                map[node] = result.rewriteAnd(map[a >> 1] ^ (a & 1), map[b >> 1] ^ (b & 1));
+            }
+        }
+        result.output = map[output >> 1] ^ (output & 1);
+        result.expressionAnds = expressionAnds;
+        return result.compact();
+    }
+
+    /* (non-javadoc)
+     * The literal of "a and b", replaced by a constant, a leaf or the AND of two leaves of the cut
+     * made of the operands of a and b, or of a and b themselves when they are not AND nodes, when its
+     * function over the leaves is one of these.
+     */
+    private int rewriteAnd(int a, int b) {
+        if (a <= 1 || b <= 1) {
+            return and(a, b);
+        }
+        int[] leaves = new int[4];
+        int count = 0;
+        for (int lit : new int[] {a, b}) {
+            int node = lit >> 1;
+            if (isAnd(node)) {
+                count = addLeaf(leaves, count, fanins[2 * node] >> 1);
+                count = addLeaf(leaves, count, fanins[2 * node + 1] >> 1);
+            } else {
+                count = addLeaf(leaves, count, node);
+            }
+        }
+        int function = cutFunction(a, leaves, count) & cutFunction(b, leaves, count);
+        if (function == 0) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            if (function == PROJECTIONS[i]) {
+                return 2 * leaves[i];
+            }
+            if (function == (~PROJECTIONS[i] & 0xffff)) {
+                return 2 * leaves[i] + 1;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                for (int signs = 0; signs < 4; signs++) {
+                    int pair = pairFunction(i, j, signs);
+                    if (function == pair || function == (~pair & 0xffff)) {
+                        int lit = and(2 * leaves[i] + (signs & 1), 2 * leaves[j] + (signs >> 1));
+                        return function == pair ? lit : lit ^ 1;
+                    }
+                }
+            }
+        }
+        for (int lit = 0; lit < 2 * count; lit++) {
+            int i = lit >> 1;
+            int x = (lit & 1) == 0 ? PROJECTIONS[i] : ~PROJECTIONS[i] & 0xffff;
+            if ((function & ~x) != 0) {
+                continue;
+            }
+            for (int j = 0; j < count; j++) {
+                for (int k = j + 1; k < count; k++) {
+                    if (i == j || i == k) {
+                        continue;
+                    }
+                    for (int signs = 0; signs < 8; signs++) {
+                        int inner = pairFunction(j, k, signs & 3);
+                        inner = (signs & 4) == 0 ? inner : ~inner & 0xffff;
+                        if (function != (x & inner)) {
+                            continue;
+                        }
+                        int innerA = 2 * leaves[j] + (signs & 1);
+                        int innerB = 2 * leaves[k] + ((signs >> 1) & 1);
+                        int slot = find(Math.min(innerA, innerB), Math.max(innerA, innerB));
+                        if (table[slot] != 0) {
+                            return and(2 * leaves[i] + (lit & 1), 2 * table[slot] + (signs >> 2));
+                        }
+                    }
+                }
+            }
+        }
+        return and(a, b);
+    }
+
+    /* (non-javadoc)
+     * The truth table of the AND of leaves i and j, complemented by the bits of signs.
+     */
+    private static int pairFunction(int i, int j, int signs) {
+        int x = (signs & 1) == 0 ? PROJECTIONS[i] : ~PROJECTIONS[i];
+        int y = (signs & 2) == 0 ? PROJECTIONS[j] : ~PROJECTIONS[j];
+        return x & y & 0xffff;
+    }
+
+    private static int addLeaf(int[] leaves, int count, int node) {
+        for (int i = 0; i < count; i++) {
+            if (leaves[i] == node) {
+                return count;
+            }
+        }
+        leaves[count] = node;
+        return count + 1;
+    }
+
+    /* (non-javadoc)
+     * The truth table of lit over the leaves, lit being a leaf or an AND node of leaves.
+     */
+    private int cutFunction(int lit, int[] leaves, int count) {
+        int node = lit >> 1;
+        int function;
+        if (isAnd(node) && indexOf(leaves, count, node) < 0) {
+            int x = fanins[2 * node];
+            int y = fanins[2 * node + 1];
+            function = leafFunction(x, leaves, count) & leafFunction(y, leaves, count);
+        } else {
+            function = PROJECTIONS[indexOf(leaves, count, node)];
+        }
+        return ((lit & 1) == 0 ? function : ~function) & 0xffff;
+    }
+
+    private static int leafFunction(int lit, int[] leaves, int count) {
+        int function = PROJECTIONS[indexOf(leaves, count, lit >> 1)];
+        return (lit & 1) == 0 ? function : ~function;
+    }
+
+    private static int indexOf(int[] leaves, int count, int node) {
+        for (int i = 0; i < count; i++) {
+            if (leaves[i] == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /* (non-javadoc)
+     * The nodes the output depends on.
+     */
+    private boolean[] reachable() {
+        boolean[] reachable = new boolean[size];
+        reachable[output >> 1] = true;
+        for (int node = size - 1; node > inputCount; node--) {
+            if (reachable[node]) {
+                reachable[fanins[2 * node] >> 1] = true;
+                reachable[fanins[2 * node + 1] >> 1] = true;
+            }
+        }
+        return reachable;
+    }
+
+    /* (non-javadoc)
+     * A copy of this graph without the AND nodes the output does not depend on.
+     */
+    private Aig compact() {
+        Aig result = new Aig(symbols, andCount());
+        boolean[] reachable = reachable();
+        int[] map = new int[size];
+        for (int node = 0; node <= inputCount; node++) {
+            map[node] = 2 * node;
+        }
+        for (int node = inputCount + 1; node < size; node++) {
+            if (reachable[node]) {
+                int a = fanins[2 * node];
+                int b = fanins[2 * node + 1];
+                map[node] = result.and(map[a >> 1] ^ (a & 1), map[b >> 1] ^ (b & 1));
+            }
+        }
+        result.output = map[output >> 1] ^ (output & 1);
+        result.expressionAnds = expressionAnds;
+        return result;
+    }
+
+    /**
+     * Converts the graph back to an expression, negated AND nodes becoming disjunctions and exclusive
+     * ors becoming {@code xor} or {@code iff} expressions
+     * @return an expression with the function of the graph, whose variables are the inputs the
+     * output depends on, sharing a single sub-expression for every literal of the graph
+     */
+    public Expression toExpression() {
+        byte[] needed = new byte[size];
+        needed[output >> 1] |= 1 << (output & 1);
+        for (int node = size - 1; node > inputCount; node--) {
+            if (needed[node] == 0) {
+                continue;
+            }
+            if (isXor(node)) {
+                int x = fanins[2 * node];
+                needed[fanins[x & ~1] >> 1] |= 1;
+                needed[fanins[(x & ~1) + 1] >> 1] |= 1;
+                continue;
+            }
+            int a = fanins[2 * node];
+            int b = fanins[2 * node + 1];
+            if ((needed[node] & 1) != 0) {
+                needed[a >> 1] |= 1 << (a & 1);
+                needed[b >> 1] |= 1 << (b & 1);
+            }
+            if ((needed[node] & 2) != 0) {
+                needed[a >> 1] |= 1 << ((a ^ 1) & 1);
+                needed[b >> 1] |= 1 << ((b ^ 1) & 1);
+            }
+        }
+        Expression[] positive = new Expression[size];
+        Expression[] negative = new Expression[size];
+        positive[0] = new Constant(false);
+        negative[0] = new Constant(true);
+        for (int node = 1; node < size; node++) {
+            if (needed[node] == 0) {
+                continue;
+            }
+            if (!isAnd(node)) {
+                positive[node] = new Variable(symbols.name(node - 1));
+                negative[node] = (needed[node] & 2) != 0 ? new Negation(positive[node]) : null;
+                continue;
+            }
+            if (isXor(node)) {
+                int x = fanins[2 * node];
+                int a = fanins[x & ~1];
+                int b = fanins[(x & ~1) + 1];
+                Expression left = positive[a >> 1];
+                Expression right = positive[b >> 1];
+                boolean odd = ((a ^ b) & 1) == 0;
+                positive[node] = (needed[node] & 1) == 0 ? null
+                    : new BinaryExpression(left, right, odd ? BinaryOperator.XOR : BinaryOperator.IFF);
+                negative[node] = (needed[node] & 2) == 0 ? null
+                    : new BinaryExpression(left, right, odd ? BinaryOperator.IFF : BinaryOperator.XOR);
+                continue;
+            }
+            int a = fanins[2 * node];
+            int b = fanins[2 * node + 1];
+            if ((needed[node] & 1) != 0) {
+                positive[node] = new BinaryExpression(literal(positive, negative, a), literal(positive, negative, b), BinaryOperator.AND);
+            }
+            if ((needed[node] & 2) != 0) {
+                negative[node] = new BinaryExpression(literal(positive, negative, a ^ 1), literal(positive, negative, b ^ 1), BinaryOperator.OR);
+            }
+        }
+        return literal(positive, negative, output);
+    }
+
+    private static Expression literal(Expression[] positive, Expression[] negative, int lit) {
+        return (lit & 1) == 0 ? positive[lit >> 1] : negative[lit >> 1];
+    }
+
+    /* (non-javadoc)
+     * Whether node is "not (a and b) and not (not a and not b)", i.e.: "a xor b", where a and b
+     * are the operands of its first operand.
+     */
+    private boolean isXor(int node) {
+        int x = fanins[2 * node];
+        int y = fanins[2 * node + 1];
+        if ((x & y & 1) == 0 || !isAnd(x >> 1) || !isAnd(y >> 1)) {
+            return false;
+        }
+        return fanins[y & ~1] == (fanins[x & ~1] ^ 1) && fanins[(y & ~1) + 1] == (fanins[(x & ~1) + 1] ^ 1);
+    }
+
+    /**
+     * @return the symbol table numbering the inputs, input {@code i} being node {@code i + 1}
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the number of inputs of the graph
+     */
+    public int inputCount() {
+        return inputCount;
+    }
+
+    /**
+     * @return the number of AND nodes of the graph
+     */
+    public int andCount() {
+        return size - inputCount - 1;
+    }
+
+    /**
+     * @return the number of AND nodes of the expression the graph was built from, one for every distinct
+     * binary sub-expression and three for every {@code iff} or {@code xor}, which {@link #andCount()}
+     * is smaller than when hashing, folding or rewriting reduced the expression
+     */
+    public int expressionAndCount() {
+        return expressionAnds;
+    }
+
+    /**
+     * @return the literal of the output of the graph
+     */
+    public int output() {
+        return output;
+    }
+
+    /**
+     * @param node an AND node
+     * @return the literal of the first operand of {@code node}, which is the smallest
+     * @throws IllegalArgumentException if {@code node} is not an AND node of the graph
+     */
+    public int left(int node) {
+        if (!isAnd(node) || node >= size) {
+            throw new IllegalArgumentException("node must be between " + (inputCount + 1) + " and " + (size - 1));
+        }
+        return fanins[2 * node];
+    }
+
+    /**
+     * @param node an AND node
+     * @return the literal of the second operand of {@code node}
+     * @throws IllegalArgumentException if {@code node} is not an AND node of the graph
+     */
+    public int right(int node) {
+        if (!isAnd(node) || node >= size) {
+            throw new IllegalArgumentException("node must be between " + (inputCount + 1) + " and " + (size - 1));
+        }
+        return fanins[2 * node + 1];
+    }
+
+    @Override
+    public String toString() {
+        return "Aig[" + inputCount + " inputs, " + andCount() + " and nodes, output " + output + "]";
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        if (symbols == null || fanins == null || table == null || output < 0 || output >= 2 * size) {
+            return false;
+        }
+        for (int node = inputCount + 1; node < size; node++) {
+            int a = fanins[2 * node];
+            int b = fanins[2 * node + 1];
+            if (a < 0 || a >= b || b >= 2 * node || table[find(a, b)] != node) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,8 +1,6 @@
 package expressions;
 
-import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 /**
  * Represents a binary boolean expression
  * 
@@ -16,17 +14,30 @@ import java.util.stream.Collectors;
  */
 class BinaryExpression implements Expression {
 
-    private Expression a;
-    private Expression b;
-    private BinaryOperator op;
+    private final Expression a;
+    private final Expression b;
+    private final BinaryOperator op;
+    private final int hash;
+    private Set<String> variables;
+    /* (non-javadoc)
+     * Expressions are shared between threads, so the compiled class is published through a volatile field
+     * and every thread sees it once it exists. The evaluation counter is deliberately racy: a lost update
+     * only delays the compilation, and threads compiling at the same time build equivalent classes, one of
+     * which is kept.
+     */
+    private int evaluations;
+    private volatile JitExpression jit;
 
     /* (non-javadoc)
      * An enumeration of all possible binary operator for this
-     * kind of expressions
+     * kind of expressions, IMPLIES has the antecedent on the left
      */
     enum BinaryOperator {
         AND,
         OR,
+        IMPLIES,
+        IFF,
+        XOR,
     }
 
     /**
@@ -39,14 +50,37 @@ class BinaryExpression implements Expression {
         this.a = a;
         this.b = b;
         this.op = op;
+        this.hash = repOk() ? (31 * a.hashCode() + b.hashCode()) * 31 + op.ordinal() : 0;
         if (!repOk()) {
             throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
         }
     }
+
+    /**
+     * @return the left sub-expression
+     */
+    Expression left() {
+        return this.a;
+    }
+
+    /**
+     * @return the right sub-expression
+     */
+    Expression right() {
+        return this.b;
+    }
+
+    /**
+     * @return the operator of this binary expression
+     */
+    BinaryOperator operator() {
+        return this.op;
+    }
     
     @Override
     /**
-     * Evaluates this binary expression under a particular interpretation
+     * Evaluates this binary expression under a particular interpretation, with the bytecode it is
+     * compiled to once it was evaluated {@link CompiledExpression#getJitThreshold()} times
      * @param interpretation the interpretation to use
      * @return the result of applying the binary operator to the evaluation of both sub-expressions
      * @throws IllegalArgumentException if {@code interpretation} is {@code null}
@@ -63,27 +97,57 @@ class BinaryExpression implements Expression {
         if(this.op == null){
             throw new IllegalArgumentException("op cannot be null");
         }
+        JitExpression compiled = jit;
+        if (compiled == null) {
+            int threshold = CompiledExpression.getJitThreshold();
+            if (threshold > 0 && ++evaluations >= threshold) {
+                compiled = JitExpression.compile(this);
+                jit = compiled;
+            }
+        }
+        if (compiled != null) {
+            int value = compiled.evaluate(interpretation);
+            if (value >= 0) {
+                return value != 0;
+            }
+        }
         switch (this.op) {
             case AND:
                 return this.a.evaluate(interpretation) && this.b.evaluate(interpretation);
             case OR:
                 return this.a.evaluate(interpretation) || this.b.evaluate(interpretation);
+            case IMPLIES:
+                return !this.a.evaluate(interpretation) || this.b.evaluate(interpretation);
+            case IFF:
+                return this.a.evaluate(interpretation) == this.b.evaluate(interpretation);
+            case XOR:
+                return this.a.evaluate(interpretation) != this.b.evaluate(interpretation);
             default:
-                throw new IllegalArgumentException("Invalid op, expected AND or OR");
+                throw new IllegalArgumentException("Invalid op, expected AND, OR, IMPLIES, IFF or XOR");
         }
     }
 
     @Override
     /**
-     * @return the union of all variables in both sub-expressions
+     * @return the union of all variables in both sub-expressions, as an unmodifiable set
+     * in natural order computed on the first call
      */
     public Set<String> variables() {
-        return List.of(a.variables(), b.variables())
-            .stream()
-            .flatMap(s -> s.stream())
-            .collect(Collectors.toSet());
+        Set<String> result = variables;
+        if (result == null) {
+            result = VariableSet.of(this);
+            variables = result;
+        }
+        return result;
     }
-    
+
+    /* (non-javadoc)
+     * Whether the variables of this expression were already computed.
+     */
+    boolean knowsVariables() {
+        return variables != null;
+    }
+
     @Override
     /**
      * @return a string representation of this binary expression in the format "left op right"
@@ -92,6 +156,22 @@ class BinaryExpression implements Expression {
         return a.toString() + " " + op.toString().toLowerCase() + " " + b.toString();
     }
 
+    @Override
+    /**
+     * @return {@code true} iff {@code obj} is an expression with the same structure as this one
+     */
+    public boolean equals(Object obj) {
+        return obj instanceof Expression && ExpressionFactory.structurallyEqual(this, (Expression) obj);
+    }
+
+    @Override
+    /**
+     * @return a structural hash code, computed once at construction
+     */
+    public int hashCode() {
+        return hash;
+    }
+
     /**
      * Checks if the representation invariant is respected
      * @return {@code true} if the representation invariant is respected, {@code false} otherwise
@@ -0,0 +1,125 @@
+package expressions;
+
+import java.util.Arrays;
+
+/**
+ * Represents a boolean formula in conjunctive normal form.
+ * Variables are numbered from {@code 1} to {@code variableCount()}, a positive literal {@code v}
+ * stands for variable {@code v} and a negative literal {@code -v} for its negation (as in DIMACS).
+ * All clauses are stored in a single array, each clause followed by a {@code 0} terminator.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> literals is not {@code null}</li>
+ *  <li> every literal {@code l} satisfies {@code 0 < |l| <= variableCount}</li>
+ *  <li> literals is empty or ends with a {@code 0} terminator</li>
+ *  <li> names is not {@code null} and has {@code variableCount + 1} entries</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class Cnf {
+
+    private final int variableCount;
+    private final int clauseCount;
+    private final int[] literals;
+    private final String[] names;
+
+    /**
+     * Constructs a new formula in conjunctive normal form
+     * @param variableCount the number of variables
+     * @param literals the clauses, each one followed by a {@code 0} terminator
+     * @param names the variable name for each variable index, {@code null} for auxiliary variables.
+     * Index {@code 0} is unused.
+     * @throws IllegalArgumentException if {@code variableCount} is negative
+     * @throws IllegalArgumentException if {@code literals} or {@code names} is {@code null}
+     * @throws IllegalArgumentException if {@code names} does not have {@code variableCount + 1} entries
+     * @throws IllegalArgumentException if {@code literals} contains a literal out of range or a non terminated clause
+     */
+    public Cnf(int variableCount, int[] literals, String[] names) {
+        if (variableCount < 0) {
+            throw new IllegalArgumentException("variableCount cannot be negative");
+        }
+        if (literals == null || names == null) {
+            throw new IllegalArgumentException("literals and names cannot be null");
+        }
+        if (names.length != variableCount + 1) {
+            throw new IllegalArgumentException("names must have an entry for every variable");
+        }
+        int clauses = 0;
+        for (int lit : literals) {
+            if (lit == 0) {
+                clauses++;
+            } else if (lit == Integer.MIN_VALUE || Math.abs(lit) > variableCount) {
+                throw new IllegalArgumentException("literal " + lit + " is out of range");
+            }
+        }
+        if (literals.length > 0 && literals[literals.length - 1] != 0) {
+            throw new IllegalArgumentException("last clause is not terminated");
+        }
+        this.variableCount = variableCount;
+        this.clauseCount = clauses;
+        this.literals = literals;
+        this.names = names;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return the number of variables, including auxiliary ones
+     */
+    public int variableCount() {
+        return variableCount;
+    }
+
+    /**
+     * @return the number of clauses
+     */
+    public int clauseCount() {
+        return clauseCount;
+    }
+
+    /**
+     * Returns the clauses of this formula, each one followed by a {@code 0} terminator.
+     * The array is shared with this formula and must not be modified.
+     * @return the clauses of this formula
+     */
+    public int[] literals() {
+        return literals;
+    }
+
+    /**
+     * @param var the variable index
+     * @return the name of {@code var}, or {@code null} if {@code var} is an auxiliary variable
+     * @throws IllegalArgumentException if {@code var} is not between {@code 1} and {@code variableCount()}
+     */
+    public String variableName(int var) {
+        if (var < 1 || var > variableCount) {
+            throw new IllegalArgumentException("var is out of range");
+        }
+        return names[var];
+    }
+
+    @Override
+    /**
+     * @return a string representation of this formula, one clause per line
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int lit : literals) {
+            sb.append(lit).append(lit == 0 ? "\n" : " ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        return literals != null && names != null && names.length == variableCount + 1
+            && (literals.length == 0 || literals[literals.length - 1] == 0)
+            && Arrays.stream(literals).allMatch(l -> l != Integer.MIN_VALUE && Math.abs(l) <= variableCount);
+    }
+}
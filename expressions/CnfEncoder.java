@@ -0,0 +1,311 @@
+package expressions;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Encodes a boolean expression into an equisatisfiable formula in conjunctive normal form
+ * in linear size, using the Plaisted-Greenbaum variant of the Tseitin transformation.
+ *
+ * Every binary sub-expression is turned into an AND gate or an XOR gate over the literals of its
+ * operands ({@code a or b} is the gate {@code not (not a and not b)}, {@code a implies b} is the gate
+ * {@code not (a and not b)} and {@code a iff b} is the gate {@code not (a xor b)}) defined by an
+ * auxiliary variable. Gates are hash-consed on their operand literals, XOR gates on their operand
+ * variables with the signs moved to the gate literal, so structurally identical sub-expressions
+ * share a single auxiliary variable and a single set of clauses. Negations are encoded by
+ * negating the literal of the sub-expression and constants are folded away, so neither of
+ * them requires auxiliary variables.
+ *
+ * Clauses are only emitted for the polarities in which an AND gate is used: a gate {@code g = a and b}
+ * used positively gets {@code (not g or a), (not g or b)} and used negatively gets
+ * {@code (g or not a or not b)}. Both polarities of the operands of an XOR gate are used, so a gate
+ * {@code g = a xor b} always gets its four clauses {@code (not g or a or b), (not g or not a or not b),
+ * (g or not a or b), (g or a or not b)}, which is the complete encoding of {@code g xor a xor b = false}
+ * that a solver recognizes as a parity constraint. {@link #encodeDefinitional(Expression)} emits both
+ * halves for every gate instead.
+ *
+ * The variables of the expression are numbered from {@code 1} following their natural order,
+ * auxiliary variables are numbered after them.
+ *
+ * @version 0.2
+ */
+public final class CnfEncoder {
+
+    /* (non-javadoc)
+     * Literals standing for the constants true and false, they never reach the clauses.
+     */
+    private static final int TRUE = Integer.MAX_VALUE;
+    private static final int FALSE = -TRUE;
+
+    /* (non-javadoc)
+     * Flags recording which halves of a gate definition were already emitted.
+     */
+    private static final byte POSITIVE = 1;
+    private static final byte NEGATIVE = 2;
+
+    private final Map<Expression, Integer> encoded = new IdentityHashMap<>();
+    private final Map<Long, Integer> gates = new HashMap<>();
+    private final Map<Long, Integer> xorGates = new HashMap<>();
+    private final SymbolTable symbols;
+    private final int inputCount;
+    private String[] names;
+    private int variableCount;
+
+    private int[] gateLeft;
+    private int[] gateRight;
+    private boolean[] xor;
+    private byte[] emitted;
+
+    private int[] literals = new int[64];
+    private int size;
+
+    private CnfEncoder(Expression expression) {
+        this.symbols = SymbolTable.of(expression);
+        this.inputCount = symbols.size();
+        this.names = new String[inputCount + 1];
+        for (int i = 0; i < inputCount; i++) {
+            names[++variableCount] = symbols.name(i);
+        }
+        this.gateLeft = new int[names.length];
+        this.gateRight = new int[names.length];
+        this.xor = new boolean[names.length];
+        this.emitted = new byte[names.length];
+    }
+
+    /**
+     * Encodes an expression into conjunctive normal form
+     * @param expression the expression to encode
+     * @return a formula that is satisfiable iff {@code expression} is satisfiable, where the
+     * first {@code expression.variables().size()} variables are the variables of {@code expression}
+     * in their natural order. Every model of the formula restricted to those variables satisfies
+     * {@code expression}.
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Cnf encode(Expression expression) {
+        return encode(expression, false);
+    }
+
+    /**
+     * Encodes an expression into conjunctive normal form, defining every auxiliary variable by an
+     * equivalence with its gate, i.e.: emitting the clauses of both polarities for every gate.
+     * The formula is larger than the one of {@link #encode(Expression)}, but the auxiliary variables
+     * are functions of the variables of the expression, so the models of the formula are in one to one
+     * correspondence with the models of the expression. This is needed to count models.
+     * @param expression the expression to encode
+     * @return a formula whose models restricted to the first {@code expression.variables().size()}
+     * variables are exactly the models of {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Cnf encodeDefinitional(Expression expression) {
+        return encode(expression, true);
+    }
+
+    private static Cnf encode(Expression expression, boolean definitional) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        CnfEncoder encoder = new CnfEncoder(expression);
+        int root = encoder.encodeNode(expression);
+        if (root == FALSE) {
+            encoder.emit();
+        } else if (root != TRUE) {
+            encoder.require(root);
+            if (definitional) {
+                encoder.require(-root);
+            }
+            encoder.emit(root);
+        }
+        return new Cnf(encoder.variableCount, Arrays.copyOf(encoder.literals, encoder.size),
+            Arrays.copyOf(encoder.names, encoder.variableCount + 1));
+    }
+
+    /* (non-javadoc)
+     * Builds the gates of every sub-expression of root in post-order without recursion,
+     * so that deep expressions do not overflow the stack. No clause is emitted yet.
+     * @return the literal representing root
+     */
+    private int encodeNode(Expression root) {
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.peek();
+            if (encoded.containsKey(expr)) {
+                pending.pop();
+            } else if (expr instanceof Constant) {
+                pending.pop();
+                encoded.put(expr, ((Constant) expr).value() ? TRUE : FALSE);
+            } else if (expr instanceof Variable) {
+                pending.pop();
+                encoded.put(expr, symbols.indexOf(((Variable) expr).name()) + 1);
+            } else if (expr instanceof Negation) {
+                Integer operand = encoded.get(((Negation) expr).operand());
+                if (operand == null) {
+                    pending.push(((Negation) expr).operand());
+                } else {
+                    pending.pop();
+                    encoded.put(expr, -operand);
+                }
+            } else if (expr instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) expr;
+                Integer left = encoded.get(binary.left());
+                Integer right = encoded.get(binary.right());
+                if (left == null || right == null) {
+                    if (left == null) {
+                        pending.push(binary.left());
+                    }
+                    if (right == null) {
+                        pending.push(binary.right());
+                    }
+                } else {
+                    pending.pop();
+                    encoded.put(expr, gate(binary.operator(), left, right));
+                }
+            } else {
+                throw new IllegalArgumentException("unsupported expression " + expr.getClass().getName());
+            }
+        }
+        return encoded.get(root);
+    }
+
+    /* (non-javadoc)
+     * Returns the literal of "left op right", folding constants and trivial cases
+     * and reusing the gate of an identical earlier sub-expression.
+     */
+    private int gate(BinaryExpression.BinaryOperator op, int left, int right) {
+        switch (op) {
+            case AND:
+                if (left == FALSE || right == FALSE || left == -right) {
+                    return FALSE;
+                }
+                if (left == TRUE || left == right) {
+                    return right;
+                }
+                if (right == TRUE) {
+                    return left;
+                }
+                int low = Math.min(left, right);
+                int high = Math.max(left, right);
+                Long key = ((long) low << 32) | (high & 0xffffffffL);
+                Integer shared = gates.get(key);
+                if (shared != null) {
+                    return shared;
+                }
+                int and = newVariable();
+                gateLeft[and] = low;
+                gateRight[and] = high;
+                gates.put(key, and);
+                return and;
+            case OR:
+                return -gate(BinaryExpression.BinaryOperator.AND, -left, -right);
+            case IMPLIES:
+                return -gate(BinaryExpression.BinaryOperator.AND, left, -right);
+            case IFF:
+                return -xorGate(left, right);
+            case XOR:
+                return xorGate(left, right);
+            default:
+                throw new IllegalArgumentException("Invalid op, expected AND, OR, IMPLIES, IFF or XOR");
+        }
+    }
+
+    /* (non-javadoc)
+     * Returns the literal of "left xor right", folding constants and trivial cases, and reusing the
+     * gate of the same operand variables, since negating an operand negates the gate.
+     */
+    private int xorGate(int left, int right) {
+        if (left == FALSE || left == TRUE) {
+            return left == TRUE ? -right : right;
+        }
+        if (right == FALSE || right == TRUE) {
+            return right == TRUE ? -left : left;
+        }
+        if (left == right || left == -right) {
+            return left == right ? FALSE : TRUE;
+        }
+        int sign = (left < 0) == (right < 0) ? 1 : -1;
+        int low = Math.min(Math.abs(left), Math.abs(right));
+        int high = Math.max(Math.abs(left), Math.abs(right));
+        Long key = ((long) low << 32) | high;
+        Integer shared = xorGates.get(key);
+        if (shared == null) {
+            shared = newVariable();
+            gateLeft[shared] = low;
+            gateRight[shared] = high;
+            xor[shared] = true;
+            xorGates.put(key, shared);
+        }
+        return sign * shared;
+    }
+
+    /* (non-javadoc)
+     * Emits the clauses needed for a literal to be usable with its polarity,
+     * following the gates it depends on without recursion.
+     */
+    private void require(int root) {
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            int lit = pending.pop();
+            int var = Math.abs(lit);
+            if (var <= inputCount) {
+                continue;
+            }
+            int left = gateLeft[var];
+            int right = gateRight[var];
+            if (xor[var]) {
+                if (emitted[var] == 0) {
+                    emitted[var] = POSITIVE | NEGATIVE;
+                    emit(-var, left, right);
+                    emit(-var, -left, -right);
+                    emit(var, left, -right);
+                    emit(var, -left, right);
+                    pending.push(left);
+                    pending.push(-left);
+                    pending.push(right);
+                    pending.push(-right);
+                }
+            } else if (lit > 0 && (emitted[var] & POSITIVE) == 0) {
+                emitted[var] |= POSITIVE;
+                emit(-var, left);
+                emit(-var, right);
+                pending.push(left);
+                pending.push(right);
+            } else if (lit < 0 && (emitted[var] & NEGATIVE) == 0) {
+                emitted[var] |= NEGATIVE;
+                emit(var, -left, -right);
+                pending.push(-left);
+                pending.push(-right);
+            }
+        }
+    }
+
+    private int newVariable() {
+        variableCount++;
+        if (variableCount >= names.length) {
+            int capacity = names.length * 2;
+            names = Arrays.copyOf(names, capacity);
+            gateLeft = Arrays.copyOf(gateLeft, capacity);
+            gateRight = Arrays.copyOf(gateRight, capacity);
+            xor = Arrays.copyOf(xor, capacity);
+            emitted = Arrays.copyOf(emitted, capacity);
+        }
+        return variableCount;
+    }
+
+    /* (non-javadoc)
+     * Appends a clause followed by its terminator.
+     */
+    private void emit(int... clause) {
+        if (size + clause.length + 1 > literals.length) {
+            literals = Arrays.copyOf(literals, Math.max(literals.length * 2, size + clause.length + 1));
+        }
+        for (int lit : clause) {
+            literals[size++] = lit;
+        }
+        literals[size++] = 0;
+    }
+}
@@ -0,0 +1,701 @@
+package expressions;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A boolean expression compiled into a flat postfix program over integer variable indices.
+ *
+ * The variables of the expression are numbered from {@code 0} by its {@link SymbolTable},
+ * following their natural order.
+ * Each instruction is an int holding an opcode in its lowest {@link #OPCODE_BITS} bits and an
+ * operand (a variable index, a constant value or a register) in the remaining bits.
+ *
+ * Operands of binary nodes are emitted in Sethi-Ullman order, the one needing a deeper stack
+ * first, so the evaluation stack of a tree never holds more than {@code log2(leaves) + 1} values.
+ * Sub-expressions referenced more than once by identity (see {@link ExpressionFactory}) are
+ * evaluated once, kept in a register with {@link #STORE} and read back with {@link #LOAD}, so the
+ * size of the program is linear in the number of distinct nodes of the expression rather than in
+ * the size of its unfolded tree. Registers are released after their last use and reused.
+ *
+ * When the stack and the registers both fit in the bits of a single {@code long}, which is the
+ * case for any tree, evaluation is a tight loop that does not depend on variable names and
+ * allocates nothing.
+ *
+ * Expressions evaluated often enough through {@link Expression#evaluate(Interpretation)} can be
+ * compiled further, to the bytecode of a class of their own that the virtual machine compiles to
+ * machine code, see {@link #setJitThreshold(int)}.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> symbols and variables are not {@code null}, variables lists the names of symbols</li>
+ *  <li> code is not empty and leaves exactly one value on the stack</li>
+ *  <li> the stack depth of code never exceeds maxDepth</li>
+ *  <li> every register is stored before it is loaded and is below registers</li>
+ * </ul>
+ *
+ * @version 0.2
+ */
+public final class CompiledExpression {
+
+    /**
+     * The number of low bits of an instruction holding its opcode
+     */
+    public static final int OPCODE_BITS = 3;
+
+    /**
+     * Pushes the value of the variable whose index is the operand
+     */
+    public static final int VAR = 0;
+
+    /**
+     * Pushes the constant value given by the operand ({@code 0} or {@code 1})
+     */
+    public static final int CONST = 1;
+
+    /**
+     * Negates the value on top of the stack
+     */
+    public static final int NOT = 2;
+
+    /**
+     * Replaces the two values on top of the stack by their conjunction
+     */
+    public static final int AND = 3;
+
+    /**
+     * Replaces the two values on top of the stack by their disjunction
+     */
+    public static final int OR = 4;
+
+    /**
+     * Copies the value on top of the stack into the register given by the operand, without popping it
+     */
+    public static final int STORE = 5;
+
+    /**
+     * Pushes the value of the register given by the operand
+     */
+    public static final int LOAD = 6;
+
+    /**
+     * Replaces the two values on top of the stack by their exclusive or, {@code iff} and
+     * {@code implies} are compiled with it, {@link #OR} and {@link #NOT}
+     */
+    public static final int XOR = 7;
+
+    private static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    /* (non-javadoc)
+     * The number of evaluations of a node after which it is compiled to bytecode, 0 to never compile.
+     */
+    private static volatile int jitThreshold;
+
+    private final SymbolTable symbols;
+    private final List<String> variables;
+    private final int[] code;
+    private final int maxDepth;
+    private final int registers;
+
+    private CompiledExpression(SymbolTable symbols, int[] code, int maxDepth, int registers) {
+        this.symbols = symbols;
+        this.variables = List.copyOf(symbols.names());
+        this.code = code;
+        this.maxDepth = maxDepth;
+        this.registers = registers;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return the number of calls to {@link Expression#evaluate(Interpretation)} after which an expression
+     * is compiled to bytecode, {@code 0} if expressions are never compiled
+     */
+    public static int getJitThreshold() {
+        return jitThreshold;
+    }
+
+    /**
+     * Sets the number of calls to {@link Expression#evaluate(Interpretation)} of a negation or binary
+     * expression after which it is compiled to the bytecode of a class of its own, then used for its next
+     * evaluations instead of walking the expression. The class is unloaded once the expression is no
+     * longer used. Every node counts its own evaluations, including those made by the evaluation of its
+     * parents, so the threshold should be high enough for the expressions actually evaluated to reach it
+     * first. A compiled expression reads all its variables from the interpretation in a single ordered
+     * pass, then runs without branches, so it pays off for expressions whose evaluations read most of
+     * their variables rather than being decided early by short-circuiting. The results and the
+     * exceptions of evaluations are not changed.
+     * @param threshold the new threshold, {@code 0}, the default, never compiles expressions
+     * @throws IllegalArgumentException if {@code threshold} is negative
+     */
+    public static void setJitThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold cannot be negative");
+        }
+        jitThreshold = threshold;
+    }
+
+    /**
+     * Compiles an expression
+     * @param expression the expression to compile
+     * @return the compiled program for {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static CompiledExpression compile(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        SymbolTable symbols = SymbolTable.of(expression);
+        Map<Expression, Integer> need = stackNeeds(expression);
+        Map<Expression, Integer> references = references(expression);
+        Map<Expression, Integer> register = new IdentityHashMap<>();
+        Map<Expression, Integer> loads = new IdentityHashMap<>();
+        Deque<Integer> free = new ArrayDeque<>();
+        int registers = 0;
+
+        int[] code = new int[16];
+        int size = 0;
+        int depth = 0;
+        int maxDepth = 0;
+        Deque<Object> work = new ArrayDeque<>();
+        work.push(expression);
+        while (!work.isEmpty()) {
+            Object item = work.pop();
+            int instruction;
+            if (item instanceof Integer) {
+                instruction = (Integer) item;
+            } else if (item instanceof Constant) {
+                instruction = (((Constant) item).value() ? 1 : 0) << OPCODE_BITS | CONST;
+            } else if (item instanceof Variable) {
+                instruction = symbols.indexOf(((Variable) item).name()) << OPCODE_BITS | VAR;
+            } else if (register.containsKey(item)) {
+                Expression expr = (Expression) item;
+                int r = register.get(expr);
+                instruction = r << OPCODE_BITS | LOAD;
+                if (loads.merge(expr, -1, Integer::sum) == 0) {
+                    register.remove(expr);
+                    loads.remove(expr);
+                    free.push(r);
+                }
+            } else if (item instanceof Store) {
+                Expression expr = ((Store) item).node;
+                int r = free.isEmpty() ? registers++ : free.pop();
+                register.put(expr, r);
+                loads.put(expr, references.get(expr) - 1);
+                instruction = r << OPCODE_BITS | STORE;
+            } else if (item instanceof Negation || item instanceof BinaryExpression) {
+                Expression expr = (Expression) item;
+                if (references.get(expr) > 1) {
+                    work.push(new Store(expr));
+                }
+                expand(expr, need, work);
+                continue;
+            } else {
+                throw new IllegalArgumentException("unsupported expression " + item.getClass().getName());
+            }
+            int opcode = instruction & OPCODE_MASK;
+            if (opcode == VAR || opcode == CONST || opcode == LOAD) {
+                maxDepth = Math.max(maxDepth, ++depth);
+            } else if (opcode == AND || opcode == OR || opcode == XOR) {
+                depth--;
+            }
+            if (size == code.length) {
+                code = Arrays.copyOf(code, size * 2);
+            }
+            code[size++] = instruction;
+        }
+        return new CompiledExpression(symbols, Arrays.copyOf(code, size), maxDepth, registers);
+    }
+
+    /* (non-javadoc)
+     * Work item storing the value of a shared node once it is computed. Its register is only
+     * allocated then, so registers are not held while the operands of the node are evaluated.
+     */
+    private static final class Store {
+
+        private final Expression node;
+
+        private Store(Expression node) {
+            this.node = node;
+        }
+    }
+
+    /* (non-javadoc)
+     * Pushes the operator of a negation or binary node followed by its operands,
+     * the operand needing the deeper stack on top. The antecedent of an implication
+     * is negated once evaluated.
+     */
+    private static void expand(Expression expr, Map<Expression, Integer> need, Deque<Object> work) {
+        if (expr instanceof Negation) {
+            work.push(NOT);
+            work.push(((Negation) expr).operand());
+            return;
+        }
+        BinaryExpression binary = (BinaryExpression) expr;
+        switch (binary.operator()) {
+            case AND:
+                work.push(AND);
+                break;
+            case OR:
+            case IMPLIES:
+                work.push(OR);
+                break;
+            case IFF:
+                work.push(NOT);
+                work.push(XOR);
+                break;
+            case XOR:
+                work.push(XOR);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid op, expected AND, OR, IMPLIES, IFF or XOR");
+        }
+        Expression first = binary.left();
+        Expression second = binary.right();
+        boolean swapped = need.get(second) > need.get(first);
+        if (swapped) {
+            first = binary.right();
+            second = binary.left();
+        }
+        boolean implies = binary.operator() == BinaryExpression.BinaryOperator.IMPLIES;
+        if (implies && swapped) {
+            work.push(NOT);
+        }
+        work.push(second);
+        if (implies && !swapped) {
+            work.push(NOT);
+        }
+        work.push(first);
+    }
+
+    /* (non-javadoc)
+     * Counts, without recursion, how many parents refer to every node of the expression by identity.
+     */
+    private static Map<Expression, Integer> references(Expression expression) {
+        Map<Expression, Integer> references = new IdentityHashMap<>();
+        Deque<Expression> pending = new ArrayDeque<>();
+        references.put(expression, 0);
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.pop();
+            Expression[] children;
+            if (expr instanceof Negation) {
+                children = new Expression[] {((Negation) expr).operand()};
+            } else if (expr instanceof BinaryExpression) {
+                children = new Expression[] {((BinaryExpression) expr).left(), ((BinaryExpression) expr).right()};
+            } else {
+                continue;
+            }
+            for (Expression child : children) {
+                if (references.merge(child, 1, Integer::sum) == 1) {
+                    pending.push(child);
+                }
+            }
+        }
+        return references;
+    }
+
+    /* (non-javadoc)
+     * Computes, without recursion, the Sethi-Ullman number of every sub-expression,
+     * i.e.: the stack depth needed to evaluate it.
+     */
+    private static Map<Expression, Integer> stackNeeds(Expression expression) {
+        Map<Expression, Integer> need = new IdentityHashMap<>();
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.peek();
+            if (need.containsKey(expr)) {
+                pending.pop();
+            } else if (expr instanceof Negation) {
+                Integer operand = need.get(((Negation) expr).operand());
+                if (operand == null) {
+                    pending.push(((Negation) expr).operand());
+                } else {
+                    pending.pop();
+                    need.put(expr, operand);
+                }
+            } else if (expr instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) expr;
+                Integer left = need.get(binary.left());
+                Integer right = need.get(binary.right());
+                if (left == null || right == null) {
+                    if (left == null) {
+                        pending.push(binary.left());
+                    }
+                    if (right == null) {
+                        pending.push(binary.right());
+                    }
+                } else {
+                    pending.pop();
+                    need.put(expr, left.equals(right) ? left + 1 : Math.max(left, right));
+                }
+            } else {
+                pending.pop();
+                need.put(expr, 1);
+            }
+        }
+        return need;
+    }
+
+    /**
+     * @return the variables of the expression in their natural order, the index of a
+     * variable in this list is the operand used by {@link #VAR} instructions
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /**
+     * @return the symbol table numbering the variables of the expression
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the number of instructions of this program
+     */
+    public int size() {
+        return code.length;
+    }
+
+    /**
+     * @param pc the position of the instruction
+     * @return the opcode of the instruction at {@code pc}
+     */
+    public int opcode(int pc) {
+        return code[pc] & OPCODE_MASK;
+    }
+
+    /**
+     * @param pc the position of the instruction
+     * @return the operand of the instruction at {@code pc}
+     */
+    public int operand(int pc) {
+        return code[pc] >>> OPCODE_BITS;
+    }
+
+    /**
+     * @return the maximum number of values on the stack while running this program
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the number of registers used by {@link #STORE} and {@link #LOAD} instructions
+     */
+    public int registers() {
+        return registers;
+    }
+
+    /**
+     * Evaluates the expression
+     * @param assignment the values of the variables, bit {@code i} is the value of {@code variables().get(i)}
+     * @return the value of the expression under {@code assignment}
+     * @throws IllegalStateException if the expression has more than {@code 64} variables
+     */
+    public boolean evaluate(long assignment) {
+        if (variables.size() > 64) {
+            throw new IllegalStateException("expression has more than 64 variables");
+        }
+        if (!fitsInWord()) {
+            return evaluateWide(new long[] {assignment});
+        }
+        int[] code = this.code;
+        long stack = 0;
+        long regs = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            int instruction = code[pc];
+            switch (instruction & OPCODE_MASK) {
+                case VAR:
+                    stack = stack << 1 | (assignment >>> (instruction >>> OPCODE_BITS) & 1);
+                    break;
+                case CONST:
+                    stack = stack << 1 | instruction >>> OPCODE_BITS;
+                    break;
+                case NOT:
+                    stack ^= 1;
+                    break;
+                case AND:
+                    stack = stack >>> 1 & (stack | ~1L);
+                    break;
+                case OR:
+                    stack = stack >>> 1 | (stack & 1);
+                    break;
+                case XOR:
+                    stack = stack >>> 1 ^ (stack & 1);
+                    break;
+                case STORE:
+                    regs = store(regs, instruction >>> OPCODE_BITS, stack);
+                    break;
+                default:
+                    stack = stack << 1 | (regs >>> (instruction >>> OPCODE_BITS) & 1);
+                    break;
+            }
+        }
+        return (stack & 1) != 0;
+    }
+
+    /**
+     * Evaluates the expression
+     * @param assignment the values of the variables, {@code assignment[i]} is the value of {@code variables().get(i)}
+     * @return the value of the expression under {@code assignment}
+     * @throws IllegalArgumentException if {@code assignment} is {@code null}
+     * @throws IllegalArgumentException if {@code assignment} does not have a value for every variable
+     */
+    public boolean evaluate(boolean[] assignment) {
+        if (assignment == null) {
+            throw new IllegalArgumentException("assignment cannot be null");
+        }
+        if (assignment.length < variables.size()) {
+            throw new IllegalArgumentException("assignment does not provide all variables");
+        }
+        if (!fitsInWord()) {
+            long[] words = new long[Math.max(1, (variables.size() + 63) >>> 6)];
+            for (int i = 0; i < variables.size(); i++) {
+                if (assignment[i]) {
+                    words[i >>> 6] |= 1L << i;
+                }
+            }
+            return evaluateWide(words);
+        }
+        int[] code = this.code;
+        long stack = 0;
+        long regs = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            int instruction = code[pc];
+            switch (instruction & OPCODE_MASK) {
+                case VAR:
+                    stack = stack << 1 | (assignment[instruction >>> OPCODE_BITS] ? 1 : 0);
+                    break;
+                case CONST:
+                    stack = stack << 1 | instruction >>> OPCODE_BITS;
+                    break;
+                case NOT:
+                    stack ^= 1;
+                    break;
+                case AND:
+                    stack = stack >>> 1 & (stack | ~1L);
+                    break;
+                case OR:
+                    stack = stack >>> 1 | (stack & 1);
+                    break;
+                case XOR:
+                    stack = stack >>> 1 ^ (stack & 1);
+                    break;
+                case STORE:
+                    regs = store(regs, instruction >>> OPCODE_BITS, stack);
+                    break;
+                default:
+                    stack = stack << 1 | (regs >>> (instruction >>> OPCODE_BITS) & 1);
+                    break;
+            }
+        }
+        return (stack & 1) != 0;
+    }
+
+    /**
+     * Evaluates the expression
+     * @param assignment the values of the variables, bit {@code i % 64} of {@code assignment[i / 64]} is the value
+     * of {@code variables().get(i)}
+     * @return the value of the expression under {@code assignment}
+     * @throws IllegalArgumentException if {@code assignment} is {@code null}
+     * @throws IllegalArgumentException if {@code assignment} does not have a value for every variable
+     */
+    public boolean evaluate(long[] assignment) {
+        if (assignment == null) {
+            throw new IllegalArgumentException("assignment cannot be null");
+        }
+        if ((long) assignment.length << 6 < variables.size()) {
+            throw new IllegalArgumentException("assignment does not provide all variables");
+        }
+        if (!fitsInWord()) {
+            return evaluateWide(assignment);
+        }
+        int[] code = this.code;
+        long stack = 0;
+        long regs = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            int instruction = code[pc];
+            switch (instruction & OPCODE_MASK) {
+                case VAR:
+                    int var = instruction >>> OPCODE_BITS;
+                    stack = stack << 1 | (assignment[var >>> 6] >>> var & 1);
+                    break;
+                case CONST:
+                    stack = stack << 1 | instruction >>> OPCODE_BITS;
+                    break;
+                case NOT:
+                    stack ^= 1;
+                    break;
+                case AND:
+                    stack = stack >>> 1 & (stack | ~1L);
+                    break;
+                case OR:
+                    stack = stack >>> 1 | (stack & 1);
+                    break;
+                case XOR:
+                    stack = stack >>> 1 ^ (stack & 1);
+                    break;
+                case STORE:
+                    regs = store(regs, instruction >>> OPCODE_BITS, stack);
+                    break;
+                default:
+                    stack = stack << 1 | (regs >>> (instruction >>> OPCODE_BITS) & 1);
+                    break;
+            }
+        }
+        return (stack & 1) != 0;
+    }
+
+    /* (non-javadoc)
+     * Sets bit r of regs to the value on top of the stack.
+     */
+    private static long store(long regs, int r, long stack) {
+        return regs & ~(1L << r) | (stack & 1) << r;
+    }
+
+    /* (non-javadoc)
+     * Whether the stack and the registers of this program fit in the bits of a long.
+     */
+    private boolean fitsInWord() {
+        return maxDepth <= 64 && registers <= 64;
+    }
+
+    /* (non-javadoc)
+     * Evaluates programs whose stack or registers do not fit in a long, using arrays.
+     */
+    private boolean evaluateWide(long[] assignment) {
+        boolean[] stack = new boolean[maxDepth];
+        boolean[] regs = new boolean[registers];
+        int top = -1;
+        for (int instruction : code) {
+            int operand = instruction >>> OPCODE_BITS;
+            switch (instruction & OPCODE_MASK) {
+                case VAR:
+                    stack[++top] = (assignment[operand >>> 6] >>> operand & 1) != 0;
+                    break;
+                case CONST:
+                    stack[++top] = operand != 0;
+                    break;
+                case NOT:
+                    stack[top] = !stack[top];
+                    break;
+                case AND:
+                    top--;
+                    stack[top] &= stack[top + 1];
+                    break;
+                case OR:
+                    top--;
+                    stack[top] |= stack[top + 1];
+                    break;
+                case XOR:
+                    top--;
+                    stack[top] ^= stack[top + 1];
+                    break;
+                case STORE:
+                    regs[operand] = stack[top];
+                    break;
+                default:
+                    stack[++top] = regs[operand];
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Evaluates the expression under an interpretation.
+     * If {@code interpretation} uses the symbol table of this program its values are read directly,
+     * otherwise variables are looked up by name.
+     * @param interpretation the interpretation to use
+     * @return the value of the expression under {@code interpretation}
+     * @throws IllegalArgumentException if {@code interpretation} is {@code null}
+     * @throws IllegalArgumentException if {@code interpretation} does not provide all variables of the expression
+     */
+    public boolean evaluate(IndexedInterpretation interpretation) {
+        if (interpretation == null) {
+            throw new IllegalArgumentException("interpretation cannot be null");
+        }
+        if (interpretation.symbols() != symbols) {
+            return evaluate(interpretation.toInterpretation());
+        }
+        for (int i = 0; i < variables.size(); i++) {
+            if (!interpretation.isAssigned(i)) {
+                throw new IllegalArgumentException("variable " + variables.get(i) + " does not exist in interpretation");
+            }
+        }
+        return evaluate(interpretation.words());
+    }
+
+    /**
+     * Evaluates the expression under an interpretation
+     * @param interpretation the interpretation to use
+     * @return the value of the expression under {@code interpretation}
+     * @throws IllegalArgumentException if {@code interpretation} is {@code null}
+     * @throws IllegalArgumentException if {@code interpretation} does not provide all variables of the expression
+     */
+    public boolean evaluate(Interpretation interpretation) {
+        if (interpretation == null) {
+            throw new IllegalArgumentException("interpretation cannot be null");
+        }
+        long[] assignment = new long[Math.max(1, (variables.size() + 63) >>> 6)];
+        for (int i = 0; i < variables.size(); i++) {
+            Boolean value = interpretation.lookup(variables.get(i));
+            if (value == null) {
+                throw new IllegalArgumentException("variable " + variables.get(i) + " does not exist in interpretation");
+            }
+            if (value) {
+                assignment[i >>> 6] |= 1L << i;
+            }
+        }
+        return evaluate(assignment);
+    }
+
+    /* (non-javadoc)
+     * Shares the program with the other evaluators of this package.
+     */
+    int[] code() {
+        return code;
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        if (variables == null || code == null || code.length == 0) {
+            return false;
+        }
+        boolean[] stored = new boolean[registers];
+        int depth = 0;
+        for (int instruction : code) {
+            int opcode = instruction & OPCODE_MASK;
+            int operand = instruction >>> OPCODE_BITS;
+            if (opcode == STORE || opcode == LOAD) {
+                if (operand >= registers || (opcode == LOAD && !stored[operand])) {
+                    return false;
+                }
+                stored[operand] = true;
+            }
+            if (opcode == VAR || opcode == CONST || opcode == LOAD) {
+                depth++;
+            } else if (opcode == AND || opcode == OR || opcode == XOR) {
+                depth--;
+            } else if (opcode != NOT && opcode != STORE) {
+                return false;
+            }
+            if (depth < 1 || depth > maxDepth) {
+                return false;
+            }
+        }
+        return depth == 1;
+    }
+}
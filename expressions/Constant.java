@@ -14,7 +14,7 @@ import java.util.Set;
  */
 class Constant implements Expression {
 
-    private boolean value;
+    private final boolean value;
 
     /**
      * Constructs a new boolean value
@@ -27,6 +27,13 @@ class Constant implements Expression {
         }
     }
 
+    /**
+     * @return the boolean value this constant represents
+     */
+    boolean value() {
+        return this.value;
+    }
+
     @Override
     /**
      * Evaluates this constant expression under a particular interpretation
@@ -46,7 +53,7 @@ class Constant implements Expression {
      * @return an empty set since a constant expression contains no variables
      */
     public Set<String> variables() {
-        return Set.of();
+        return VariableSet.EMPTY;
     }
     
     @Override
@@ -57,6 +64,16 @@ class Constant implements Expression {
         return value ? "True" : "False";
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Constant && ((Constant) obj).value == this.value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(value);
+    }
+
     /**
      * Checks if the representation invariant is respected
      * @return {@code true} if the representation invariant is respected,and it will always be true
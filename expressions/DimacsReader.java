@@ -0,0 +1,271 @@
+package expressions;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads formulas in conjunctive normal form from files in the DIMACS CNF format.
+ *
+ * A file starts with optional comment lines beginning with {@code c}, followed by the header
+ * {@code p cnf <variables> <clauses>} and by the clauses, each one a sequence of non zero literals
+ * terminated by {@code 0}. Clauses may span several lines, the terminator of the last clause may be
+ * omitted and everything after a line starting with {@code %} is ignored, as in the SATLIB benchmarks.
+ *
+ * The file is memory mapped and its bytes are scanned directly into int literals, so reading does
+ * not allocate anything per token. Clauses can either be collected into a {@link Cnf} or streamed
+ * one at a time into a {@link ClauseSink}, in which case only the current clause is kept in memory.
+ *
+ * @version 0.1
+ */
+public final class DimacsReader {
+
+    /**
+     * Receives the contents of a DIMACS file as it is read
+     */
+    public interface ClauseSink {
+
+        /**
+         * Called once, before any clause
+         * @param variableCount the number of variables declared by the header
+         * @param clauseCount the number of clauses declared by the header
+         */
+        void header(int variableCount, int clauseCount);
+
+        /**
+         * Called for every clause, in file order
+         * @param literals a buffer holding the literals of the clause in {@code literals[from..to)},
+         * it is reused for the next clause
+         * @param from the index of the first literal of the clause
+         * @param to the index after the last literal of the clause
+         */
+        void clause(int[] literals, int from, int to);
+    }
+
+    /* (non-javadoc)
+     * Files larger than this are mapped in several chunks.
+     */
+    private static final long CHUNK = 1L << 30;
+
+    private final ClauseSink sink;
+    private int line = 1;
+    private boolean lineStart = true;
+    private boolean comment;
+    private boolean header;
+    private boolean done;
+    private final StringBuilder headerText = new StringBuilder();
+    private int variableCount = -1;
+    private int declaredClauses;
+    private int clauseCount;
+    private boolean negative;
+    private int digits;
+    private long value;
+    private int[] clause = new int[16];
+    private int clauseSize;
+
+    private DimacsReader(ClauseSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Reads a formula from a DIMACS file.
+     * Variable {@code v} of the file is named {@code x<v>}, so every declared variable counts as a
+     * variable of the formula even if it occurs in no clause.
+     * @param file the file to read
+     * @return the formula of {@code file}
+     * @throws IllegalArgumentException if {@code file} is {@code null}
+     * @throws IllegalArgumentException if {@code file} is not a well formed DIMACS CNF file
+     * @throws IOException if {@code file} cannot be read
+     */
+    public static Cnf read(Path file) throws IOException {
+        CnfBuilder builder = new CnfBuilder();
+        read(file, builder);
+        return builder.build();
+    }
+
+    /**
+     * Reads a DIMACS file clause by clause
+     * @param file the file to read
+     * @param sink receives the header and then every clause of {@code file}
+     * @throws IllegalArgumentException if {@code file} or {@code sink} is {@code null}
+     * @throws IllegalArgumentException if {@code file} is not a well formed DIMACS CNF file
+     * @throws IOException if {@code file} cannot be read
+     */
+    public static void read(Path file, ClauseSink sink) throws IOException {
+        if (file == null || sink == null) {
+            throw new IllegalArgumentException("file and sink cannot be null");
+        }
+        DimacsReader reader = new DimacsReader(sink);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            for (long position = 0; position < length && !reader.done; position += CHUNK) {
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(CHUNK, length - position));
+                reader.scan(bytes);
+            }
+        }
+        reader.finish();
+    }
+
+    /* (non-javadoc)
+     * Scans a chunk of the file. The state is kept in fields, so a token may span two chunks.
+     */
+    private void scan(MappedByteBuffer bytes) {
+        int limit = bytes.limit();
+        for (int i = 0; i < limit && !done; i++) {
+            byte b = bytes.get(i);
+            if (comment || header) {
+                if (b == '\n') {
+                    if (header) {
+                        parseHeader();
+                    }
+                    comment = false;
+                    header = false;
+                    lineStart = true;
+                    line++;
+                } else if (header) {
+                    headerText.append((char) b);
+                }
+            } else if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                endNumber();
+                if (b == '\n') {
+                    lineStart = true;
+                    line++;
+                }
+            } else if (lineStart && b == 'c') {
+                comment = true;
+            } else if (lineStart && b == 'p') {
+                if (variableCount >= 0) {
+                    throw error("duplicate header");
+                }
+                header = true;
+            } else if (lineStart && b == '%') {
+                done = true;
+            } else if (b >= '0' && b <= '9') {
+                lineStart = false;
+                value = value * 10 + (b - '0');
+                digits++;
+                if (value > Integer.MAX_VALUE) {
+                    throw error("literal out of range");
+                }
+            } else if (b == '-' && digits == 0 && !negative) {
+                lineStart = false;
+                negative = true;
+            } else {
+                throw error("unexpected character '" + (char) b + "'");
+            }
+        }
+    }
+
+    private void parseHeader() {
+        String[] fields = headerText.toString().trim().split("\\s+");
+        if (fields.length != 3 || !fields[0].equals("cnf")) {
+            throw error("header must be 'p cnf <variables> <clauses>'");
+        }
+        try {
+            variableCount = Integer.parseInt(fields[1]);
+            declaredClauses = Integer.parseInt(fields[2]);
+        } catch (NumberFormatException e) {
+            throw error("header must be 'p cnf <variables> <clauses>'");
+        }
+        if (variableCount < 0 || declaredClauses < 0) {
+            throw error("header counts cannot be negative");
+        }
+        sink.header(variableCount, declaredClauses);
+    }
+
+    private void endNumber() {
+        if (digits == 0) {
+            if (negative) {
+                throw error("'-' without a literal");
+            }
+            return;
+        }
+        int lit = (int) (negative ? -value : value);
+        negative = false;
+        digits = 0;
+        value = 0;
+        if (variableCount < 0) {
+            throw error("clause before the header");
+        }
+        if (lit == 0) {
+            endClause();
+            return;
+        }
+        if (Math.abs(lit) > variableCount) {
+            throw error("literal " + lit + " exceeds the " + variableCount + " declared variables");
+        }
+        if (clauseSize == clause.length) {
+            clause = Arrays.copyOf(clause, 2 * clauseSize);
+        }
+        clause[clauseSize++] = lit;
+    }
+
+    private void endClause() {
+        if (clauseCount == declaredClauses) {
+            throw error("more clauses than the " + declaredClauses + " declared");
+        }
+        clauseCount++;
+        sink.clause(clause, 0, clauseSize);
+        clauseSize = 0;
+    }
+
+    private void finish() {
+        if (header) {
+            parseHeader();
+            header = false;
+        }
+        endNumber();
+        if (clauseSize > 0) {
+            endClause();
+        }
+        if (variableCount < 0) {
+            throw error("missing header");
+        }
+        if (clauseCount != declaredClauses) {
+            throw error("found " + clauseCount + " clauses, " + declaredClauses + " declared");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("line " + line + ": " + message);
+    }
+
+    /* (non-javadoc)
+     * Collects the clauses into a single flat array of terminated clauses.
+     */
+    private static final class CnfBuilder implements ClauseSink {
+
+        private int variableCount;
+        private int[] literals = new int[0];
+        private int size;
+
+        @Override
+        public void header(int variableCount, int clauseCount) {
+            this.variableCount = variableCount;
+            this.literals = new int[(int) Math.min(1 << 20, 4L * clauseCount)];
+        }
+
+        @Override
+        public void clause(int[] clause, int from, int to) {
+            int length = to - from;
+            if (size + length + 1 > literals.length) {
+                literals = Arrays.copyOf(literals, Math.max(size + length + 1, 2 * literals.length));
+            }
+            System.arraycopy(clause, from, literals, size, length);
+            size += length;
+            literals[size++] = 0;
+        }
+
+        private Cnf build() {
+            String[] names = new String[variableCount + 1];
+            for (int v = 1; v <= variableCount; v++) {
+                names[v] = "x" + v;
+            }
+            return new Cnf(variableCount, size == literals.length ? literals : Arrays.copyOf(literals, size), names);
+        }
+    }
+}
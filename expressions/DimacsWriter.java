@@ -0,0 +1,140 @@
+package expressions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes formulas in conjunctive normal form in the DIMACS CNF format read by
+ * {@link DimacsReader} and by other solvers.
+ *
+ * The names of the named variables are written as comment lines {@code c var <index> <name>} before
+ * the header. Literals are formatted directly into a byte buffer, so writing does not allocate
+ * anything per literal.
+ *
+ * @version 0.1
+ */
+public final class DimacsWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    private DimacsWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes an expression to a DIMACS file after encoding it with {@link CnfEncoder#encode(Expression)}.
+     * The file is satisfiable iff {@code expression} is, use {@link CnfEncoder#encodeDefinitional(Expression)}
+     * and {@link #write(Cnf, Path)} when the models must also be preserved.
+     * @param expression the expression to write
+     * @param file the file to write, it is created or replaced
+     * @throws IllegalArgumentException if {@code expression} or {@code file} is {@code null}
+     * @throws IOException if {@code file} cannot be written
+     */
+    public static void write(Expression expression, Path file) throws IOException {
+        if (expression == null || file == null) {
+            throw new IllegalArgumentException("expression and file cannot be null");
+        }
+        write(CnfEncoder.encode(expression), file);
+    }
+
+    /**
+     * Writes a formula to a DIMACS file
+     * @param cnf the formula to write
+     * @param file the file to write, it is created or replaced
+     * @throws IllegalArgumentException if {@code cnf} or {@code file} is {@code null}
+     * @throws IOException if {@code file} cannot be written
+     */
+    public static void write(Cnf cnf, Path file) throws IOException {
+        if (cnf == null || file == null) {
+            throw new IllegalArgumentException("cnf and file cannot be null");
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(cnf, out);
+        }
+    }
+
+    /**
+     * Writes a formula in the DIMACS format to a stream, which is flushed but not closed
+     * @param cnf the formula to write
+     * @param out the stream to write to
+     * @throws IllegalArgumentException if {@code cnf} or {@code out} is {@code null}
+     * @throws IOException if {@code out} cannot be written
+     */
+    public static void write(Cnf cnf, OutputStream out) throws IOException {
+        if (cnf == null || out == null) {
+            throw new IllegalArgumentException("cnf and out cannot be null");
+        }
+        DimacsWriter writer = new DimacsWriter(out);
+        for (int v = 1; v <= cnf.variableCount(); v++) {
+            if (cnf.variableName(v) != null) {
+                writer.text("c var ");
+                writer.number(v);
+                writer.text(" " + cnf.variableName(v) + "\n");
+            }
+        }
+        writer.text("p cnf ");
+        writer.number(cnf.variableCount());
+        writer.text(" ");
+        writer.number(cnf.clauseCount());
+        writer.text("\n");
+        for (int lit : cnf.literals()) {
+            writer.number(lit);
+            writer.put(lit == 0 ? (byte) '\n' : (byte) ' ');
+        }
+        writer.flush();
+    }
+
+    private void text(String text) throws IOException {
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            put(b);
+        }
+    }
+
+    /* (non-javadoc)
+     * Formats an int in decimal into the buffer, the digits are produced backwards and then reversed.
+     */
+    private void number(int n) throws IOException {
+        if (position + 12 > buffer.length) {
+            flushBuffer();
+        }
+        long value = n;
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = b;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+}
@@ -53,6 +53,29 @@ public interface Expression {
         return new Variable(var);
     }
 
+    /**
+     * Parses a boolean expression written in infix notation, such as {@code p and (q -> not r)}.
+     * The operators, from the loosest to the tightest binding, are {@code iff} ({@code <->}),
+     * {@code implies} ({@code ->}, right associative), {@code xor} ({@code ^}), {@code or} ({@code |}),
+     * {@code and} ({@code &}) and {@code not} ({@code !}), parentheses group sub-expressions and
+     * {@code True} and {@code False} are the constants. Variables follow the same format as in
+     * {@link #createVariableExpression(String)} and operators are encoded as by the default methods
+     * of this interface, except that double negations are folded: {@code not not e} is parsed as
+     * {@code e}, so chains of negations do not deepen the result. Parsing does not recurse, so
+     * arbitrarily deep inputs are accepted; deeply nested binary operators are kept as written, and
+     * while {@link #variables()} and the solvers handle them, recursive methods such as
+     * {@link #evaluate(Interpretation)} and {@link #toString()} are bounded by the thread stack.
+     * @param text the text to parse
+     * @return the expression written in {@code text}
+     * @throws IllegalArgumentException if {@code text} is {@code null}
+     * @throws IllegalArgumentException if {@code text} is not a well formed expression, the message
+     * gives the position of the error
+     * @see {@link expressions.ExpressionParser}
+     */
+    public static Expression parse(String text) {
+        return ExpressionParser.parse(text);
+    }
+
     /**
      * Creates a new expression as the negation of a given one
      * @param expr the expression to negate
@@ -108,7 +131,7 @@ public interface Expression {
         if (antecedent == null || consequent == null) {
             throw new IllegalArgumentException("antecedent and consequent cannot be null");
         }
-        return or(not(antecedent),consequent);
+        return new BinaryExpression(antecedent, consequent, BinaryOperator.IMPLIES);
     }
 
     /**
@@ -123,7 +146,7 @@ public interface Expression {
         if (left == null || right == null) {
             throw new IllegalArgumentException("left and right cannot be null");
         }
-        return and(implies(left, right), implies(right, left));
+        return new BinaryExpression(left, right, BinaryOperator.IFF);
     }
 
     /**
@@ -138,10 +161,6 @@ public interface Expression {
         if (left == null || right == null) {
             throw new IllegalArgumentException("left and right cannot be null");
         }
-
-        Expression notRight = and(left, not(right));
-        Expression notLeft = and(right, not(left));
-
-        return or(notLeft,notRight);
+        return new BinaryExpression(left, right, BinaryOperator.XOR);
     }
 }
\ No newline at end of file
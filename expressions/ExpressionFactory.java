@@ -0,0 +1,289 @@
+package expressions;
+
+import expressions.BinaryExpression.BinaryOperator;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A factory of hash-consed boolean expressions.
+ * Every expression created or interned by a factory is the unique node of that factory with its
+ * structure, so identical sub-expressions are a single shared node and expressions built with a
+ * factory form a directed acyclic graph rather than a tree. Algorithms that memoize on node
+ * identity, such as {@link CnfEncoder}, {@link CompiledExpression} and {@link TruthTable}, then
+ * visit each distinct sub-expression once.
+ *
+ * Nodes are kept in a unique table holding weak references only, so nodes that are no longer
+ * used elsewhere are reclaimed by the garbage collector. A factory is safe to use from
+ * multiple threads.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> unique is not {@code null}</li>
+ *  <li> every live value of unique refers to its own key</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class ExpressionFactory {
+
+    private final Map<Expression, WeakReference<Expression>> unique = new WeakHashMap<>();
+
+    /**
+     * Constructs a new factory with an empty unique table
+     */
+    public ExpressionFactory() {
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Creates a boolean expression representing a constant boolean value
+     * @param value the boolean value for the constant
+     * @return the unique expression representing the constant expression {@code value}
+     */
+    public synchronized Expression constant(boolean value) {
+        return unique(new Constant(value));
+    }
+
+    /**
+     * Creates a boolean variable expression
+     * @param var the variable this expression represents
+     * @return the unique expression representing the boolean variable {@code var}
+     * @throws IllegalArgumentException if {@code var} is {@code null}
+     * @throws IllegalArgumentException if {@code var} does not follow the format {@code <letter>(<letter-or-number>)*}
+     */
+    public synchronized Expression variable(String var) {
+        if (var == null) {
+            throw new IllegalArgumentException("var cannot be null");
+        }
+        if (!Variable.checkFormat(var)) {
+            throw new IllegalArgumentException("var has an invalid format or value");
+        }
+        return unique(new Variable(var));
+    }
+
+    /**
+     * Creates the negation of an expression
+     * @param expr the expression to negate
+     * @return the unique expression representing {@code not expr}
+     * @throws IllegalArgumentException if {@code expr} is {@code null}
+     */
+    public synchronized Expression not(Expression expr) {
+        if (expr == null) {
+            throw new IllegalArgumentException("expr cannot be null");
+        }
+        return unique(new Negation(intern(expr)));
+    }
+
+    /**
+     * Creates the conjunction of two expressions
+     * @param left the left expression
+     * @param right the right expression
+     * @return the unique expression representing {@code left and right}
+     * @throws IllegalArgumentException if {@code left} or {@code right} is {@code null}
+     */
+    public synchronized Expression and(Expression left, Expression right) {
+        return binary(left, right, BinaryOperator.AND);
+    }
+
+    /**
+     * Creates the disjunction of two expressions
+     * @param left the left expression
+     * @param right the right expression
+     * @return the unique expression representing {@code left or right}
+     * @throws IllegalArgumentException if {@code left} or {@code right} is {@code null}
+     */
+    public synchronized Expression or(Expression left, Expression right) {
+        return binary(left, right, BinaryOperator.OR);
+    }
+
+    /**
+     * Creates the implication of two expressions
+     * @param antecedent the antecedent expression
+     * @param consequent the consequent expression
+     * @return the unique expression representing {@code antecedent implies consequent}
+     * @throws IllegalArgumentException if {@code antecedent} or {@code consequent} is {@code null}
+     */
+    public synchronized Expression implies(Expression antecedent, Expression consequent) {
+        if (antecedent == null || consequent == null) {
+            throw new IllegalArgumentException("antecedent and consequent cannot be null");
+        }
+        return binary(antecedent, consequent, BinaryOperator.IMPLIES);
+    }
+
+    /**
+     * Creates the equivalence of two expressions
+     * @param left the left expression
+     * @param right the right expression
+     * @return the unique expression representing {@code left iff right}
+     * @throws IllegalArgumentException if {@code left} or {@code right} is {@code null}
+     */
+    public synchronized Expression iff(Expression left, Expression right) {
+        if (left == null || right == null) {
+            throw new IllegalArgumentException("left and right cannot be null");
+        }
+        return binary(left, right, BinaryOperator.IFF);
+    }
+
+    /**
+     * Creates the exclusive or of two expressions
+     * @param left the left expression
+     * @param right the right expression
+     * @return the unique expression representing {@code left xor right}
+     * @throws IllegalArgumentException if {@code left} or {@code right} is {@code null}
+     */
+    public synchronized Expression xor(Expression left, Expression right) {
+        if (left == null || right == null) {
+            throw new IllegalArgumentException("left and right cannot be null");
+        }
+        return binary(left, right, BinaryOperator.XOR);
+    }
+
+    /**
+     * Returns the unique node of this factory with the same structure as an expression,
+     * interning all its sub-expressions
+     * @param expression the expression to intern
+     * @return the unique expression of this factory equal to {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public synchronized Expression intern(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        Map<Expression, Expression> canonical = new IdentityHashMap<>();
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.peek();
+            if (canonical.containsKey(expr)) {
+                pending.pop();
+            } else if (isUnique(expr)) {
+                pending.pop();
+                canonical.put(expr, expr);
+            } else if (expr instanceof Negation) {
+                Expression operand = canonical.get(((Negation) expr).operand());
+                if (operand == null) {
+                    pending.push(((Negation) expr).operand());
+                } else {
+                    pending.pop();
+                    canonical.put(expr, unique(operand == ((Negation) expr).operand() ? expr : new Negation(operand)));
+                }
+            } else if (expr instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) expr;
+                Expression left = canonical.get(binary.left());
+                Expression right = canonical.get(binary.right());
+                if (left == null || right == null) {
+                    if (left == null) {
+                        pending.push(binary.left());
+                    }
+                    if (right == null) {
+                        pending.push(binary.right());
+                    }
+                } else {
+                    pending.pop();
+                    boolean same = left == binary.left() && right == binary.right();
+                    canonical.put(expr, unique(same ? expr : new BinaryExpression(left, right, binary.operator())));
+                }
+            } else {
+                pending.pop();
+                canonical.put(expr, unique(expr));
+            }
+        }
+        return canonical.get(expression);
+    }
+
+    /**
+     * @return the number of live nodes in the unique table of this factory
+     */
+    public synchronized int size() {
+        return unique.size();
+    }
+
+    private Expression binary(Expression left, Expression right, BinaryOperator op) {
+        if (left == null || right == null) {
+            throw new IllegalArgumentException("left and right cannot be null");
+        }
+        return unique(new BinaryExpression(intern(left), intern(right), op));
+    }
+
+    private boolean isUnique(Expression node) {
+        WeakReference<Expression> ref = unique.get(node);
+        return ref != null && ref.get() == node;
+    }
+
+    /* (non-javadoc)
+     * Returns the node of the unique table equal to node, adding node if there is none.
+     * The children of node must already be unique.
+     */
+    private Expression unique(Expression node) {
+        WeakReference<Expression> ref = unique.get(node);
+        Expression existing = ref == null ? null : ref.get();
+        if (existing != null) {
+            return existing;
+        }
+        unique.put(node, new WeakReference<>(node));
+        return node;
+    }
+
+    /* (non-javadoc)
+     * Structural equality of two expressions, without recursion so that deep expressions do not
+     * overflow the stack. Pairs already being compared are remembered, so shared sub-expressions
+     * of a directed acyclic graph are compared once.
+     */
+    static boolean structurallyEqual(Expression x, Expression y) {
+        Map<Expression, Expression> compared = new IdentityHashMap<>();
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(x);
+        pending.push(y);
+        while (!pending.isEmpty()) {
+            Expression b = pending.pop();
+            Expression a = pending.pop();
+            if (a == b || compared.get(a) == b) {
+                continue;
+            }
+            if (a.getClass() != b.getClass() || a.hashCode() != b.hashCode()) {
+                return false;
+            }
+            compared.put(a, b);
+            if (a instanceof Negation) {
+                pending.push(((Negation) a).operand());
+                pending.push(((Negation) b).operand());
+            } else if (a instanceof BinaryExpression) {
+                BinaryExpression left = (BinaryExpression) a;
+                BinaryExpression right = (BinaryExpression) b;
+                if (left.operator() != right.operator()) {
+                    return false;
+                }
+                pending.push(left.left());
+                pending.push(right.left());
+                pending.push(left.right());
+                pending.push(right.right());
+            } else if (!a.equals(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public synchronized boolean repOk() {
+        if (unique == null) {
+            return false;
+        }
+        for (Map.Entry<Expression, WeakReference<Expression>> entry : unique.entrySet()) {
+            Expression value = entry.getValue().get();
+            if (value != null && value != entry.getKey()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,248 @@
+package expressions;
+
+import expressions.BinaryExpression.BinaryOperator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parser of boolean expressions written in infix notation.
+ *
+ * The grammar, from the loosest to the tightest binding operator, is:
+ * <pre>
+ * expression := expression ('iff' | '&lt;-&gt;' | '&lt;=&gt;') expression
+ *             | expression ('implies' | '-&gt;' | '=&gt;') expression     (right associative)
+ *             | expression ('xor' | '^') expression
+ *             | expression ('or' | '|' | '||') expression
+ *             | expression ('and' | '&amp;' | '&amp;&amp;') expression
+ *             | ('not' | '!' | '~') expression
+ *             | '(' expression ')' | 'True' | 'False' | variable
+ * </pre>
+ * where all binary operators but implication are left associative, {@code true} and {@code false}
+ * are also accepted and variables follow the format {@code <letter>(<letter-or-number>)*}.
+ * Operator words are reserved and cannot be used as variables.
+ *
+ * The parser reads the text once, without backtracking, and resolves precedence with explicit
+ * operator and operand stacks instead of recursion, so the depth of the input is only bounded by
+ * the available heap. Double negations are folded while parsing, so a chain of {@code not} operators
+ * yields at most one negation node, and occurrences of the same variable share a single node.
+ *
+ * @version 0.1
+ */
+final class ExpressionParser {
+
+    private static final int NOT = 0;
+    private static final int AND = 1;
+    private static final int OR = 2;
+    private static final int XOR = 3;
+    private static final int IMPLIES = 4;
+    private static final int IFF = 5;
+    private static final int OPEN = 6;
+
+    /* (non-javadoc)
+     * Binding strength of each operator, indexed by operator.
+     */
+    private static final int[] PRECEDENCE = {5, 4, 3, 2, 1, 0, -1};
+
+    /* (non-javadoc)
+     * Symbolic binary operators, longer symbols first so that a prefix never shadows them.
+     */
+    private static final String[] SYMBOLS = {"<->", "<=>", "->", "=>", "&&", "||", "&", "|", "^"};
+    private static final int[] SYMBOL_OPERATORS = {IFF, IFF, IMPLIES, IMPLIES, AND, OR, AND, OR, XOR};
+
+    private static final Map<String, Integer> KEYWORDS = new HashMap<>();
+
+    static {
+        KEYWORDS.put("not", NOT);
+        KEYWORDS.put("and", AND);
+        KEYWORDS.put("or", OR);
+        KEYWORDS.put("xor", XOR);
+        KEYWORDS.put("implies", IMPLIES);
+        KEYWORDS.put("iff", IFF);
+    }
+
+    private final String text;
+    private int position;
+
+    private final Map<String, Expression> variables = new HashMap<>();
+    private final List<Expression> operands = new ArrayList<>();
+    private int[] operators = new int[16];
+    private int[] operatorPositions = new int[16];
+    private int operatorCount;
+
+    private ExpressionParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses an expression
+     * @param text the text to parse
+     * @return the expression written in {@code text}
+     * @throws IllegalArgumentException if {@code text} is {@code null}
+     * @throws IllegalArgumentException if {@code text} is not a well formed expression
+     */
+    static Expression parse(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("text cannot be null");
+        }
+        return new ExpressionParser(text).parse();
+    }
+
+    private Expression parse() {
+        boolean expectOperand = true;
+        while (true) {
+            skipWhitespace();
+            int start = position;
+            if (position == text.length()) {
+                if (expectOperand) {
+                    throw error("unexpected end of input", start);
+                }
+                reduceUntil(-1);
+                if (operatorCount > 0) {
+                    throw error("unbalanced '('", operatorPositions[operatorCount - 1]);
+                }
+                return operands.get(0);
+            }
+            char c = text.charAt(position);
+            if (expectOperand) {
+                if (c == '(') {
+                    position++;
+                    pushOperator(OPEN, start);
+                } else if (c == '!' || c == '~') {
+                    position++;
+                    pushOperator(NOT, start);
+                } else if (Character.isLetterOrDigit(c)) {
+                    String word = word();
+                    Integer keyword = KEYWORDS.get(word);
+                    if (keyword != null && keyword == NOT) {
+                        pushOperator(NOT, start);
+                    } else if (keyword != null) {
+                        throw error("expected an operand but found '" + word + "'", start);
+                    } else {
+                        operands.add(operand(word, start));
+                        expectOperand = false;
+                    }
+                } else {
+                    throw error("expected an operand but found '" + c + "'", start);
+                }
+            } else if (c == ')') {
+                position++;
+                reduceUntil(-1);
+                if (operatorCount == 0) {
+                    throw error("unbalanced ')'", start);
+                }
+                operatorCount--;
+            } else {
+                int op = binaryOperator();
+                if (op < 0) {
+                    throw error("expected an operator", start);
+                }
+                reduceUntil(op == IMPLIES ? PRECEDENCE[op] + 1 : PRECEDENCE[op]);
+                pushOperator(op, start);
+                expectOperand = true;
+            }
+        }
+    }
+
+    /* (non-javadoc)
+     * Applies the operators on top of the stack binding at least as tightly as minimum, stopping
+     * at an open parenthesis.
+     */
+    private void reduceUntil(int minimum) {
+        while (operatorCount > 0 && operators[operatorCount - 1] != OPEN
+            && PRECEDENCE[operators[operatorCount - 1]] >= minimum) {
+            int op = operators[--operatorCount];
+            Expression right = operands.remove(operands.size() - 1);
+            if (op == NOT) {
+                operands.add(right instanceof Negation ? ((Negation) right).operand() : new Negation(right));
+                continue;
+            }
+            Expression left = operands.remove(operands.size() - 1);
+            operands.add(apply(op, left, right));
+        }
+    }
+
+    /* (non-javadoc)
+     * Builds a binary operator with the same encoding as the default methods of Expression.
+     */
+    private static Expression apply(int op, Expression left, Expression right) {
+        switch (op) {
+            case AND:
+                return new BinaryExpression(left, right, BinaryOperator.AND);
+            case OR:
+                return new BinaryExpression(left, right, BinaryOperator.OR);
+            case XOR:
+                return new BinaryExpression(left, right, BinaryOperator.XOR);
+            case IMPLIES:
+                return new BinaryExpression(left, right, BinaryOperator.IMPLIES);
+            default:
+                return new BinaryExpression(left, right, BinaryOperator.IFF);
+        }
+    }
+
+    private Expression operand(String word, int start) {
+        if (word.equals("True") || word.equals("true")) {
+            return new Constant(true);
+        }
+        if (word.equals("False") || word.equals("false")) {
+            return new Constant(false);
+        }
+        if (!Variable.checkFormat(word)) {
+            throw error("invalid variable '" + word + "'", start);
+        }
+        return variables.computeIfAbsent(word, Variable::new);
+    }
+
+    /* (non-javadoc)
+     * Reads a binary operator, returns -1 if there is none at the current position.
+     */
+    private int binaryOperator() {
+        char c = text.charAt(position);
+        if (Character.isLetter(c)) {
+            int start = position;
+            Integer keyword = KEYWORDS.get(word());
+            if (keyword != null && keyword != NOT) {
+                return keyword;
+            }
+            position = start;
+            return -1;
+        }
+        for (int i = 0; i < SYMBOLS.length; i++) {
+            if (text.startsWith(SYMBOLS[i], position)) {
+                position += SYMBOLS[i].length();
+                return SYMBOL_OPERATORS[i];
+            }
+        }
+        return -1;
+    }
+
+    private String word() {
+        int start = position;
+        while (position < text.length() && Character.isLetterOrDigit(text.charAt(position))) {
+            position++;
+        }
+        return text.substring(start, position);
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private void pushOperator(int op, int start) {
+        if (operatorCount == operators.length) {
+            operators = Arrays.copyOf(operators, 2 * operatorCount);
+            operatorPositions = Arrays.copyOf(operatorPositions, 2 * operatorCount);
+        }
+        operators[operatorCount] = op;
+        operatorPositions[operatorCount] = start;
+        operatorCount++;
+    }
+
+    private IllegalArgumentException error(String message, int at) {
+        return new IllegalArgumentException(message + " at position " + at);
+    }
+}
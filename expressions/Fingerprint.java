@@ -0,0 +1,343 @@
+package expressions;
+
+import expressions.BinaryExpression.BinaryOperator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A canonical structural fingerprint of an expression, which is the same for expressions that
+ * only differ by the names of their variables and by the order of the operands of {@code and},
+ * {@code or}, {@code iff} and {@code xor}.
+ *
+ * The fingerprint is a small program listing the distinct sub-expressions in post-order, each one
+ * referring to its operands by their position, where variables are numbered in the order they are
+ * first met. The operands of a commutative binary expression are visited in the order of a structural
+ * hash that ignores variable names and the order of commuted operands, so commuted operands are
+ * visited in the same order, while the operands of {@code implies} keep theirs. Variables are hashed
+ * by the shapes of the sub-expressions they occur in, refined a few times, so that most operands that
+ * only differ by their variables are ordered too.
+ *
+ * Two expressions with equal fingerprints are equal up to a renaming of their variables and the
+ * commutation of some operands, so they are satisfied by the same assignments of the numbered
+ * variables. The converse does not always hold: operands whose hashes tie keep their order.
+ *
+ * Equal sub-expressions share a single instruction, whether or not they are shared in the
+ * expression, and the expression is traversed without recursion.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> code and variables are not {@code null}</li>
+ *  <li> every variable has a distinct index, its position in variables</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class Fingerprint {
+
+    private static final int VAR = 0;
+    private static final int CONST = 1;
+    private static final int NOT = 2;
+    private static final int AND = 3;
+    private static final int OR = 4;
+    private static final int IMPLIES = 5;
+    private static final int IFF = 6;
+    private static final int XOR = 7;
+
+    /* (non-javadoc)
+     * The number of times the hashes of the variables are refined by the hashes of their parents.
+     */
+    private static final int REFINEMENTS = 2;
+
+    private final int[] code;
+    private final String[] variables;
+    private final Map<String, Integer> indexes;
+    private final int hash;
+
+    private Fingerprint(int[] code, String[] variables, Map<String, Integer> indexes) {
+        this.code = code;
+        this.variables = variables;
+        this.indexes = indexes;
+        this.hash = Arrays.hashCode(code);
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Computes the fingerprint of an expression
+     * @param expression the expression to use
+     * @return the fingerprint of {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Fingerprint of(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        Map<Expression, Long> shapes = shapes(expression, null);
+        for (int round = 0; round < REFINEMENTS; round++) {
+            shapes = shapes(expression, contexts(shapes));
+        }
+        Map<Expression, Integer> done = new IdentityHashMap<>();
+        Map<Long, Integer> instructions = new HashMap<>();
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int[] code = new int[48];
+        int size = 0;
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.peek();
+            if (done.containsKey(expr)) {
+                pending.pop();
+                continue;
+            }
+            int op;
+            int x;
+            int y = 0;
+            if (expr instanceof Constant) {
+                op = CONST;
+                x = ((Constant) expr).value() ? 1 : 0;
+            } else if (expr instanceof Variable) {
+                op = VAR;
+                String name = ((Variable) expr).name();
+                Integer index = indexes.get(name);
+                if (index == null) {
+                    index = names.size();
+                    indexes.put(name, index);
+                    names.add(name);
+                }
+                x = index;
+            } else if (expr instanceof Negation) {
+                Integer operand = done.get(((Negation) expr).operand());
+                if (operand == null) {
+                    pending.push(((Negation) expr).operand());
+                    continue;
+                }
+                op = NOT;
+                x = operand;
+            } else if (expr instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) expr;
+                Expression first = binary.left();
+                Expression second = binary.right();
+                if (binary.operator() != BinaryOperator.IMPLIES && shapes.get(second) < shapes.get(first)) {
+                    first = binary.right();
+                    second = binary.left();
+                }
+                Integer left = done.get(first);
+                Integer right = done.get(second);
+                if (left == null || right == null) {
+                    if (right == null) {
+                        pending.push(second);
+                    }
+                    if (left == null) {
+                        pending.push(first);
+                    }
+                    continue;
+                }
+                op = opcode(binary.operator());
+                x = left;
+                y = right;
+            } else {
+                throw new IllegalArgumentException("unsupported expression " + expr.getClass().getName());
+            }
+            pending.pop();
+            long key = ((long) op << 60) | ((long) x << 30) | y;
+            Integer instruction = instructions.get(key);
+            if (instruction == null) {
+                instruction = size / 3;
+                instructions.put(key, instruction);
+                if (size + 3 > code.length) {
+                    code = Arrays.copyOf(code, 2 * code.length);
+                }
+                code[size++] = op;
+                code[size++] = x;
+                code[size++] = y;
+            }
+            done.put(expr, instruction);
+        }
+        return new Fingerprint(Arrays.copyOf(code, size), names.toArray(new String[0]), indexes);
+    }
+
+    /* (non-javadoc)
+     * A hash of every sub-expression that ignores variable names and the order of the operands
+     * of commutative binary expressions, computed in post-order without recursion. Variables all hash alike,
+     * or by their entry in contexts when it is given.
+     */
+    private static Map<Expression, Long> shapes(Expression expression, Map<String, Long> contexts) {
+        Map<Expression, Long> shapes = new IdentityHashMap<>();
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.peek();
+            if (shapes.containsKey(expr)) {
+                pending.pop();
+            } else if (expr instanceof Constant) {
+                pending.pop();
+                shapes.put(expr, ((Constant) expr).value() ? 0x7472756555L : 0x66616c7365L);
+            } else if (expr instanceof Variable) {
+                pending.pop();
+                shapes.put(expr, contexts == null ? 0x766172L : contexts.getOrDefault(((Variable) expr).name(), 0x766172L));
+            } else if (expr instanceof Negation) {
+                Long operand = shapes.get(((Negation) expr).operand());
+                if (operand == null) {
+                    pending.push(((Negation) expr).operand());
+                } else {
+                    pending.pop();
+                    shapes.put(expr, mix(operand * 31 + NOT));
+                }
+            } else if (expr instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) expr;
+                Long left = shapes.get(binary.left());
+                Long right = shapes.get(binary.right());
+                if (left == null || right == null) {
+                    if (left == null) {
+                        pending.push(binary.left());
+                    }
+                    if (right == null) {
+                        pending.push(binary.right());
+                    }
+                } else {
+                    pending.pop();
+                    boolean ordered = binary.operator() == BinaryOperator.IMPLIES;
+                    long low = ordered ? left : Math.min(left, right);
+                    long high = ordered ? right : Math.max(left, right);
+                    shapes.put(expr, mix((mix(low) + high) * 31 + binary.operator().ordinal()));
+                }
+            } else {
+                throw new IllegalArgumentException("unsupported expression " + expr.getClass().getName());
+            }
+        }
+        return shapes;
+    }
+
+    private static int opcode(BinaryOperator op) {
+        switch (op) {
+            case AND:
+                return AND;
+            case OR:
+                return OR;
+            case IMPLIES:
+                return IMPLIES;
+            case IFF:
+                return IFF;
+            case XOR:
+                return XOR;
+            default:
+                throw new IllegalArgumentException("Invalid op, expected AND, OR, IMPLIES, IFF or XOR");
+        }
+    }
+
+    /* (non-javadoc)
+     * A hash of the places every variable occurs in, i.e.: of the distinct shapes of its parents,
+     * which tells apart most variables that a first hash of the shapes confuses. Distinct shapes are
+     * used so that sharing a sub-expression or repeating it gives the same hash.
+     */
+    private static Map<String, Long> contexts(Map<Expression, Long> shapes) {
+        Map<String, Set<Long>> parents = new HashMap<>();
+        for (Map.Entry<Expression, Long> entry : shapes.entrySet()) {
+            Expression expr = entry.getKey();
+            if (expr instanceof Negation) {
+                occurrence(parents, ((Negation) expr).operand(), entry.getValue());
+            } else if (expr instanceof BinaryExpression) {
+                occurrence(parents, ((BinaryExpression) expr).left(), entry.getValue());
+                occurrence(parents, ((BinaryExpression) expr).right(), entry.getValue());
+            }
+        }
+        Map<String, Long> contexts = new HashMap<>();
+        for (Map.Entry<String, Set<Long>> entry : parents.entrySet()) {
+            long context = 0;
+            for (long parent : entry.getValue()) {
+                context += mix(parent);
+            }
+            contexts.put(entry.getKey(), context);
+        }
+        return contexts;
+    }
+
+    private static void occurrence(Map<String, Set<Long>> parents, Expression child, long parent) {
+        if (child instanceof Variable) {
+            parents.computeIfAbsent(((Variable) child).name(), name -> new HashSet<>()).add(parent);
+        }
+    }
+
+    /* (non-javadoc)
+     * The finalizer of SplitMix64, spreading every bit of h over the result.
+     */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * @return the number of variables of the expression
+     */
+    public int variableCount() {
+        return variables.length;
+    }
+
+    /**
+     * @param index the index of a variable
+     * @return the name of the variable numbered {@code index} in the expression
+     * @throws IllegalArgumentException if {@code index} is not between {@code 0} and {@code variableCount() - 1}
+     */
+    public String variable(int index) {
+        if (index < 0 || index >= variables.length) {
+            throw new IllegalArgumentException("index must be between 0 and " + (variables.length - 1));
+        }
+        return variables[index];
+    }
+
+    /**
+     * @param var the name of a variable
+     * @return the index of {@code var} in the expression, or {@code -1} if it does not occur in it
+     */
+    public int indexOf(String var) {
+        Integer index = indexes.get(var);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the number of distinct sub-expressions of the expression
+     */
+    public int size() {
+        return code.length / 3;
+    }
+
+    @Override
+    /**
+     * @return {@code true} iff {@code obj} is the fingerprint of an expression with the same structure
+     * as this one, up to the names of the variables
+     */
+    public boolean equals(Object obj) {
+        return obj instanceof Fingerprint && ((Fingerprint) obj).hash == hash
+            && Arrays.equals(((Fingerprint) obj).code, code);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "Fingerprint[" + size() + " nodes, " + variables.length + " variables, " + Integer.toHexString(hash) + "]";
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        return code != null && variables != null && indexes != null && indexes.size() == variables.length
+            && code.length % 3 == 0;
+    }
+}
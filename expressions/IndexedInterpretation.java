@@ -0,0 +1,232 @@
+package expressions;
+
+import java.util.Arrays;
+
+/**
+ * Represents an interpretation of a boolean expression over the variables of a {@link SymbolTable}.
+ * Values are kept in bitsets indexed by the variable indices of the table, so reading or writing
+ * a variable by index is a single unchecked bit operation. Operations taking a variable name are
+ * validated as in {@link Interpretation}.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> symbols, assigned and values are not {@code null}</li>
+ *  <li> assigned and values have the same length</li>
+ *  <li> every bit set in values is also set in assigned</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class IndexedInterpretation implements Cloneable {
+
+    private final SymbolTable symbols;
+    private long[] assigned;
+    private long[] values;
+
+    /**
+     * Constructs a new empty interpretation
+     * @param symbols the symbol table of the variables
+     * @throws IllegalArgumentException if {@code symbols} is {@code null}
+     */
+    public IndexedInterpretation(SymbolTable symbols) {
+        if (symbols == null) {
+            throw new IllegalArgumentException("symbols cannot be null");
+        }
+        this.symbols = symbols;
+        this.assigned = new long[words(symbols.size())];
+        this.values = new long[assigned.length];
+        if (!repOk()) {
+            throw new IllegalStateException("Failed to initialize interpretation");
+        }
+    }
+
+    /**
+     * Constructs a new interpretation assigning every variable of a symbol table
+     * @param symbols the symbol table of the variables
+     * @param values the values of the variables, bit {@code i} (of word {@code i / 64}) is the value of
+     * the variable with index {@code i}
+     * @throws IllegalArgumentException if {@code symbols} or {@code values} is {@code null}
+     */
+    public IndexedInterpretation(SymbolTable symbols, long[] values) {
+        if (symbols == null || values == null) {
+            throw new IllegalArgumentException("symbols and values cannot be null");
+        }
+        int size = symbols.size();
+        this.symbols = symbols;
+        this.assigned = new long[words(size)];
+        this.values = Arrays.copyOf(values, assigned.length);
+        for (int i = 0; i < size; i++) {
+            assigned[i >>> 6] |= 1L << i;
+        }
+        for (int w = 0; w < assigned.length; w++) {
+            this.values[w] &= assigned[w];
+        }
+        if (!repOk()) {
+            throw new IllegalStateException("Failed to initialize interpretation");
+        }
+    }
+
+    /**
+     * Creates an interpretation assigning the variables of a symbol table as in another interpretation
+     * @param interpretation the interpretation to copy
+     * @param symbols the symbol table of the variables
+     * @return an interpretation with the values {@code interpretation} gives to the variables of {@code symbols}
+     * @throws IllegalArgumentException if {@code interpretation} or {@code symbols} is {@code null}
+     */
+    public static IndexedInterpretation of(Interpretation interpretation, SymbolTable symbols) {
+        if (interpretation == null) {
+            throw new IllegalArgumentException("interpretation cannot be null");
+        }
+        IndexedInterpretation result = new IndexedInterpretation(symbols);
+        for (int i = 0; i < symbols.size(); i++) {
+            Boolean value = interpretation.lookup(symbols.name(i));
+            if (value != null) {
+                result.set(i, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the symbol table of the variables of this interpretation
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Adds a variable with an associated boolean value, interning it if needed.
+     * If the variable is already in the interpretation, it's value will be modified.
+     * @param var the variable
+     * @param value the associated boolean value
+     * @throws IllegalArgumentException if {@code var} doesn't follow the following conditions
+     * <ul>
+     * <li>is not {@code null}</li>
+     * <li>is not empty</li>
+     * <li>follows the format <letter>(<letter-or-number>)*, i.e.: a letter followed by zero or more letters or numbers</li>
+     * </ul>
+     */
+    public void add(String var, boolean value) {
+        set(symbols.intern(var), value);
+    }
+
+    /**
+     * Checks if a variable is part of this interpretation
+     * @param var the variable to check
+     * @return {@code true} iff {@code var} is part of this interpretation
+     * @throws IllegalArgumentException if {@code var} is {@code null}
+     */
+    public boolean exists(String var) {
+        int index = symbols.indexOf(var);
+        return index >= 0 && isAssigned(index);
+    }
+
+    /**
+     * Returns the associated boolean value of a variable in this interpretation
+     * @param var the variable to check
+     * @return the associated boolean value for {@code var} under this interpretation
+     * @throws IllegalArgumentException if {@code var} is {@code null}
+     * @throws IllegalArgumentException if {@code var} doesn't exist in this interpretation
+     */
+    public boolean valueOf(String var) {
+        int index = symbols.indexOf(var);
+        if (index < 0 || !isAssigned(index)) {
+            throw new IllegalArgumentException("var does not exist in this interpretation");
+        }
+        return get(index);
+    }
+
+    /**
+     * Sets the value of a variable
+     * @param index the index of the variable, it must be a valid index of {@code symbols()}
+     * @param value the value of the variable
+     */
+    public void set(int index, boolean value) {
+        int word = index >>> 6;
+        if (word >= assigned.length) {
+            assigned = Arrays.copyOf(assigned, words(symbols.size()));
+            values = Arrays.copyOf(values, assigned.length);
+        }
+        long bit = 1L << index;
+        assigned[word] |= bit;
+        if (value) {
+            values[word] |= bit;
+        } else {
+            values[word] &= ~bit;
+        }
+    }
+
+    /**
+     * @param index the index of the variable, it must be a valid index of {@code symbols()}
+     * @return the value of the variable, {@code false} if it is not assigned
+     */
+    public boolean get(int index) {
+        int word = index >>> 6;
+        return word < values.length && (values[word] >>> index & 1) != 0;
+    }
+
+    /**
+     * @param index the index of the variable, it must be a valid index of {@code symbols()}
+     * @return {@code true} iff the variable is assigned in this interpretation
+     */
+    public boolean isAssigned(int index) {
+        int word = index >>> 6;
+        return word < assigned.length && (assigned[word] >>> index & 1) != 0;
+    }
+
+    /* (non-javadoc)
+     * The values of this interpretation, shared with the evaluators of this package.
+     */
+    long[] words() {
+        return values;
+    }
+
+    /**
+     * @return an equivalent {@link Interpretation} with the assigned variables of this interpretation
+     */
+    public Interpretation toInterpretation() {
+        Interpretation result = new Interpretation();
+        for (int w = 0; w < assigned.length; w++) {
+            long word = assigned[w];
+            while (word != 0) {
+                int index = (w << 6) | Long.numberOfTrailingZeros(word);
+                result.put(symbols.name(index), get(index));
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Object clone() {
+        IndexedInterpretation clone = new IndexedInterpretation(symbols);
+        clone.assigned = assigned.clone();
+        clone.values = values.clone();
+        return clone;
+    }
+
+    @Override
+    public String toString() {
+        return toInterpretation().toString();
+    }
+
+    private static int words(int variables) {
+        return Math.max(1, (variables + 63) >>> 6);
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        if (symbols == null || assigned == null || values == null || assigned.length != values.length) {
+            return false;
+        }
+        for (int w = 0; w < values.length; w++) {
+            if ((values[w] & ~assigned[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,8 +2,10 @@ package expressions;
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 /**
@@ -26,7 +28,7 @@ public class Interpretation implements Cloneable {
      * Constructs a new empty interpretation.
      */
     public Interpretation() {
-        interpretation = new TreeMap<>((String a, String b) -> {return a.compareTo(b);});
+        interpretation = new TreeMap<>();
         if (!repOk()) {
             throw new IllegalStateException("Failed to initialize interpretation map");
         }
@@ -57,7 +59,7 @@ public class Interpretation implements Cloneable {
             throw new IllegalArgumentException("booleanValues cannot be null");
         }
 
-        this.interpretation = new TreeMap<>((String a, String b) -> {return a.compareTo(b);});
+        this.interpretation = new TreeMap<>();
         for(int i = 0; i < variables.size(); i++) {
             add(variables.get(i), booleanValues.get(i));
         }
@@ -146,12 +148,72 @@ public class Interpretation implements Cloneable {
         return interpretation.get(var);
     }
 
+    /**
+     * @return the variables of this interpretation in their natural order, as an unmodifiable view
+     */
+    public Set<String> variables() {
+        return Collections.unmodifiableSet(interpretation.keySet());
+    }
+
+    /* (non-javadoc)
+     * Looks up a variable without validating it, for callers whose variable names were
+     * already validated, such as Variable.evaluate.
+     * @return the value of var, or null if var is not part of this interpretation
+     */
+    Boolean lookup(String var) {
+        return interpretation.get(var);
+    }
+
+    /* (non-javadoc)
+     * Packs the values of variables in natural order into words, the value of names[i] being bit i % 64
+     * of words[i / 64], which must be cleared. Unless this interpretation has many more variables than
+     * names, its variables are walked once in order alongside names rather than looked up one by one.
+     * @return false if a variable of names is not part of this interpretation
+     */
+    boolean pack(String[] names, long[] words) {
+        if (interpretation.size() > 4 * names.length) {
+            for (int i = 0; i < names.length; i++) {
+                Boolean value = interpretation.get(names[i]);
+                if (value == null) {
+                    return false;
+                }
+                if (value) {
+                    words[i >>> 6] |= 1L << i;
+                }
+            }
+            return true;
+        }
+        int i = 0;
+        for (Map.Entry<String, Boolean> entry : interpretation.entrySet()) {
+            if (i == names.length) {
+                return true;
+            }
+            int order = entry.getKey().compareTo(names[i]);
+            if (order > 0) {
+                return false;
+            }
+            if (order == 0) {
+                if (entry.getValue()) {
+                    words[i >>> 6] |= 1L << i;
+                }
+                i++;
+            }
+        }
+        return i == names.length;
+    }
+
+    /* (non-javadoc)
+     * Adds a variable without validating it, for callers whose variable names were
+     * already validated, such as a SymbolTable.
+     */
+    void put(String var, boolean value) {
+        interpretation.put(var, value);
+    }
+
     @Override
     public Object clone() {
         Interpretation clone = new Interpretation();
-        for (Map.Entry<String, Boolean> entry : interpretation.entrySet()) {
-            clone.interpretation.put(new String(entry.getKey()), Boolean.valueOf(entry.getValue()));
-        }
+        clone.interpretation.putAll(interpretation);
         return clone;
     }
     
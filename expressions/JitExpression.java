@@ -0,0 +1,361 @@
+package expressions;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The last tier of the evaluation of an expression: its {@link CompiledExpression} program turned
+ * into the bytecode of a class of its own, so that the JIT compiler of the virtual machine compiles
+ * it to machine code and inlines it into its callers.
+ *
+ * The program becomes straight-line code without any branch, the evaluation stack of the program
+ * being the operand stack of the virtual machine and its registers local variables: a variable
+ * is a shift and a mask of the word of the assignment holding it, and {@code and}, {@code or},
+ * {@code xor} and {@code not} are the matching integer instructions on {@code 0} and {@code 1}.
+ * The generated class implements {@link LongPredicate} when the expression has at most
+ * {@code 64} variables, taking the assignment as a single {@code long}, and {@link Predicate}
+ * of {@code long[]} in all cases.
+ *
+ * The class is defined as a hidden class when the virtual machine supports them (Java 15 and later),
+ * and otherwise by a class loader of its own. Either way nothing else refers to it, so it is unloaded
+ * once the expression is no longer used. Programs whose bytecode would be too large for the JIT
+ * compiler of the virtual machine, which leaves methods of more than {@link #MAX_BYTECODE} bytes
+ * to its interpreter, are run by the {@link CompiledExpression} interpreter instead.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> program and names are not {@code null}, names lists the variables of program</li>
+ *  <li> wide is not {@code null} unless the program is too large, narrow is {@code null} when the
+ *  program is too large or has more than {@code 64} variables</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+final class JitExpression {
+
+    /**
+     * The largest method the HotSpot JIT compilers compile by default
+     */
+    static final int MAX_BYTECODE = 8000;
+
+    /* (non-javadoc)
+     * The registers of a program are local variables addressed with a single byte.
+     */
+    private static final int MAX_LOCALS = 256;
+
+    private static final String NAME = "expressions/GeneratedExpression";
+
+    /* (non-javadoc)
+     * Lookup.defineHiddenClass(byte[], boolean, ClassOption...) and an empty array of options,
+     * or null before Java 15.
+     */
+    private static final Method DEFINE_HIDDEN_CLASS;
+    private static final Object NO_OPTIONS;
+
+    static {
+        Method define = null;
+        Object options = null;
+        try {
+            Class<?> option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            options = Array.newInstance(option, 0);
+            define = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, options.getClass());
+        } catch (ReflectiveOperationException e) {
+            define = null;
+        }
+        DEFINE_HIDDEN_CLASS = define;
+        NO_OPTIONS = options;
+    }
+
+    private final CompiledExpression program;
+    private final String[] names;
+    private final LongPredicate narrow;
+    private final Predicate<long[]> wide;
+
+    private JitExpression(CompiledExpression program, LongPredicate narrow, Predicate<long[]> wide) {
+        this.program = program;
+        this.names = program.variables().toArray(new String[0]);
+        this.narrow = narrow;
+        this.wide = wide;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Compiles an expression to bytecode, or to a {@link CompiledExpression} program only if its
+     * bytecode would be too large
+     * @param expression the expression to compile
+     * @return the compiled expression
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    static JitExpression compile(Expression expression) {
+        CompiledExpression program = CompiledExpression.compile(expression);
+        if (program.registers() + 3 > MAX_LOCALS) {
+            return new JitExpression(program, null, null);
+        }
+        boolean narrow = program.variables().size() <= 64;
+        byte[] narrowCode = narrow ? code(program, true) : null;
+        byte[] wideCode = code(program, false);
+        if (wideCode.length > MAX_BYTECODE || narrow && narrowCode.length > MAX_BYTECODE) {
+            return new JitExpression(program, null, null);
+        }
+        Object generated = instantiate(define(classFile(program, narrowCode, wideCode)));
+        @SuppressWarnings("unchecked")
+        Predicate<long[]> wide = (Predicate<long[]>) generated;
+        return new JitExpression(program, narrow ? (LongPredicate) generated : null, wide);
+    }
+
+    /**
+     * Evaluates the expression under an interpretation
+     * @param interpretation the interpretation to use
+     * @return {@code 1} if the expression is true under {@code interpretation}, {@code 0} if it is false
+     * and {@code -1} if {@code interpretation} does not provide all the variables of the expression,
+     * which is left to the caller since a short-circuiting evaluation may not need them all
+     */
+    int evaluate(Interpretation interpretation) {
+        long[] assignment = new long[Math.max(1, (names.length + 63) >>> 6)];
+        if (!interpretation.pack(names, assignment)) {
+            return -1;
+        }
+        boolean value;
+        if (narrow != null) {
+            value = narrow.test(assignment[0]);
+        } else {
+            value = wide != null ? wide.test(assignment) : program.evaluate(assignment);
+        }
+        return value ? 1 : 0;
+    }
+
+    /**
+     * @return {@code true} iff the expression runs as bytecode rather than as an interpreted program
+     */
+    boolean isGenerated() {
+        return wide != null;
+    }
+
+    /* (non-javadoc)
+     * The body of test(long) when narrow, of test(Object) with the assignment in local 1 otherwise,
+     * both ending with ireturn. Registers follow the assignment in the local variables.
+     */
+    private static byte[] code(CompiledExpression program, boolean narrow) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int base = narrow ? 3 : 2;
+        if (!narrow) {
+            out.write(0x2b);                                  // aload_1
+            out.write(0xc0);                                  // checkcast [J
+            u2(out, 18);
+            out.write(0x4c);                                  // astore_1
+        }
+        for (int pc = 0; pc < program.size(); pc++) {
+            int operand = program.operand(pc);
+            switch (program.opcode(pc)) {
+                case CompiledExpression.VAR:
+                    if (narrow) {
+                        out.write(0x1f);                      // lload_1
+                    } else {
+                        out.write(0x2b);                      // aload_1
+                        pushInt(out, operand >>> 6);
+                        out.write(0x2f);                      // laload
+                    }
+                    if ((operand & 63) != 0) {
+                        pushInt(out, operand & 63);
+                        out.write(0x7d);                      // lushr
+                    }
+                    out.write(0x88);                          // l2i
+                    out.write(0x04);                          // iconst_1
+                    out.write(0x7e);                          // iand
+                    break;
+                case CompiledExpression.CONST:
+                    out.write(operand != 0 ? 0x04 : 0x03);    // iconst_1, iconst_0
+                    break;
+                case CompiledExpression.NOT:
+                    out.write(0x04);                          // iconst_1
+                    out.write(0x82);                          // ixor
+                    break;
+                case CompiledExpression.AND:
+                    out.write(0x7e);                          // iand
+                    break;
+                case CompiledExpression.OR:
+                    out.write(0x80);                          // ior
+                    break;
+                case CompiledExpression.XOR:
+                    out.write(0x82);                          // ixor
+                    break;
+                case CompiledExpression.STORE:
+                    out.write(0x59);                          // dup
+                    out.write(0x36);                          // istore
+                    out.write(base + operand);
+                    break;
+                default:
+                    out.write(0x15);                          // iload
+                    out.write(base + operand);
+                    break;
+            }
+        }
+        out.write(0xac);                                      // ireturn
+        return out.toByteArray();
+    }
+
+    /* (non-javadoc)
+     * Pushes a non negative int below 32768.
+     */
+    private static void pushInt(ByteArrayOutputStream out, int value) {
+        if (value <= 5) {
+            out.write(0x03 + value);                          // iconst_<value>
+        } else if (value <= Byte.MAX_VALUE) {
+            out.write(0x10);                                  // bipush
+            out.write(value);
+        } else {
+            out.write(0x11);                                  // sipush
+            u2(out, value);
+        }
+    }
+
+    /* (non-javadoc)
+     * A class file for Java 11 of a public final class with a public constructor implementing
+     * LongPredicate with narrowCode unless it is null, and Predicate with wideCode.
+     * The code has no branch, so it needs no stack map frame.
+     */
+    private static byte[] classFile(CompiledExpression program, byte[] narrowCode, byte[] wideCode) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        u4(out, 0xcafebabe);
+        u2(out, 0);
+        u2(out, 55);
+        u2(out, 19);
+        utf8(out, NAME);                                      // 1
+        classEntry(out, 1);                                   // 2
+        utf8(out, "java/lang/Object");                        // 3
+        classEntry(out, 3);                                   // 4
+        utf8(out, "java/util/function/LongPredicate");        // 5
+        classEntry(out, 5);                                   // 6
+        utf8(out, "java/util/function/Predicate");            // 7
+        classEntry(out, 7);                                   // 8
+        utf8(out, "<init>");                                  // 9
+        utf8(out, "()V");                                     // 10
+        out.write(12);                                        // 11: NameAndType <init> ()V
+        u2(out, 9);
+        u2(out, 10);
+        out.write(10);                                        // 12: Methodref Object.<init>
+        u2(out, 4);
+        u2(out, 11);
+        utf8(out, "test");                                    // 13
+        utf8(out, "(J)Z");                                    // 14
+        utf8(out, "(Ljava/lang/Object;)Z");                   // 15
+        utf8(out, "Code");                                    // 16
+        utf8(out, "[J");                                      // 17
+        classEntry(out, 17);                                  // 18
+        u2(out, 0x0031);                                      // public final super
+        u2(out, 2);
+        u2(out, 4);
+        if (narrowCode != null) {
+            u2(out, 2);
+            u2(out, 6);
+        } else {
+            u2(out, 1);
+        }
+        u2(out, 8);
+        u2(out, 0);
+        u2(out, narrowCode != null ? 3 : 2);
+        method(out, 0x0001, 9, 10, 1, 1, new byte[] {0x2a, (byte) 0xb7, 0, 12, (byte) 0xb1});
+        int maxStack = program.maxDepth() + 3;
+        if (narrowCode != null) {
+            method(out, 0x0011, 13, 14, maxStack, 3 + program.registers(), narrowCode);
+        }
+        method(out, 0x0011, 13, 15, maxStack, 2 + program.registers(), wideCode);
+        u2(out, 0);
+        return out.toByteArray();
+    }
+
+    private static void method(ByteArrayOutputStream out, int access, int name, int descriptor, int maxStack, int maxLocals, byte[] code) {
+        u2(out, access);
+        u2(out, name);
+        u2(out, descriptor);
+        u2(out, 1);
+        u2(out, 16);
+        u4(out, 12 + code.length);
+        u2(out, maxStack);
+        u2(out, maxLocals);
+        u4(out, code.length);
+        out.write(code, 0, code.length);
+        u2(out, 0);
+        u2(out, 0);
+    }
+
+    private static void utf8(ByteArrayOutputStream out, String value) {
+        out.write(1);
+        u2(out, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            out.write(value.charAt(i));
+        }
+    }
+
+    private static void classEntry(ByteArrayOutputStream out, int name) {
+        out.write(7);
+        u2(out, name);
+    }
+
+    private static void u2(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void u4(ByteArrayOutputStream out, int value) {
+        u2(out, value >>> 16);
+        u2(out, value);
+    }
+
+    /* (non-javadoc)
+     * Defines a class as a hidden class of this package, unloaded with its last instance,
+     * or with a class loader of its own before Java 15.
+     */
+    private static Class<?> define(byte[] classFile) {
+        if (DEFINE_HIDDEN_CLASS != null) {
+            try {
+                Object lookup = DEFINE_HIDDEN_CLASS.invoke(MethodHandles.lookup(), classFile, true, NO_OPTIONS);
+                return ((MethodHandles.Lookup) lookup).lookupClass();
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("cannot define the class of an expression", e);
+            }
+        }
+        return new Loader(JitExpression.class.getClassLoader()).define(classFile);
+    }
+
+    private static Object instantiate(Class<?> generated) {
+        try {
+            return generated.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot instantiate the class of an expression", e);
+        }
+    }
+
+    /* (non-javadoc)
+     * A class loader defining a single class.
+     */
+    private static final class Loader extends ClassLoader {
+
+        private Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(byte[] classFile) {
+            return defineClass(null, classFile, 0, classFile.length);
+        }
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        if (program == null || names == null || !List.of(names).equals(program.variables())) {
+            return false;
+        }
+        return wide != null || narrow == null;
+    }
+}
@@ -14,7 +14,17 @@ import java.util.Set;
  */
 class Negation implements Expression {
 
-    private Expression expression;
+    private final Expression expression;
+    private final int hash;
+    private Set<String> variables;
+    /* (non-javadoc)
+     * Expressions are shared between threads, so the compiled class is published through a volatile field
+     * and every thread sees it once it exists. The evaluation counter is deliberately racy: a lost update
+     * only delays the compilation, and threads compiling at the same time build equivalent classes, one of
+     * which is kept.
+     */
+    private int evaluations;
+    private volatile JitExpression jit;
 
     /**
      * Constructs a new negated expression
@@ -26,14 +36,23 @@ class Negation implements Expression {
             throw new IllegalArgumentException("expression cannot be null");
         }
         this.expression = expression;
+        this.hash = 31 * expression.hashCode() + 0x4e4f54;
         if (!repOk()) {
             throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
         }
     }
 
+    /**
+     * @return the negated sub-expression
+     */
+    Expression operand() {
+        return this.expression;
+    }
+
     @Override
     /**
-     * Evaluates this negated expression under a particular interpretation
+     * Evaluates this negated expression under a particular interpretation, with the bytecode it is
+     * compiled to once it was evaluated {@link CompiledExpression#getJitThreshold()} times
      * @param interpretation the interpretation to use
      * @return the logical negation of the evaluation of the sub-expression
      * @throws IllegalArgumentException if {@code interpretation} is {@code null}
@@ -42,15 +61,42 @@ class Negation implements Expression {
         if(interpretation == null){
             throw new IllegalArgumentException("interpretation cannot be null");
         }
+        JitExpression compiled = jit;
+        if (compiled == null) {
+            int threshold = CompiledExpression.getJitThreshold();
+            if (threshold > 0 && ++evaluations >= threshold) {
+                compiled = JitExpression.compile(this);
+                jit = compiled;
+            }
+        }
+        if (compiled != null) {
+            int value = compiled.evaluate(interpretation);
+            if (value >= 0) {
+                return value != 0;
+            }
+        }
         return !this.expression.evaluate(interpretation);
     }
 
     @Override
     /**
-     * @return the set of variables in the negated expression
+     * @return the set of variables in the negated expression, as an unmodifiable set in natural
+     * order computed on the first call
      */
     public Set<String> variables() {
-        return this.expression.variables();
+        Set<String> result = variables;
+        if (result == null) {
+            result = VariableSet.of(this);
+            variables = result;
+        }
+        return result;
+    }
+
+    /* (non-javadoc)
+     * Whether the variables of this expression were already computed.
+     */
+    boolean knowsVariables() {
+        return variables != null;
     }
 
     @Override
@@ -60,6 +106,23 @@ class Negation implements Expression {
     public String toString() {
         return "(not " + expression.toString() + ")";
     }
+
+    @Override
+    /**
+     * @return {@code true} iff {@code obj} is an expression with the same structure as this one
+     */
+    public boolean equals(Object obj) {
+        return obj instanceof Expression && ExpressionFactory.structurallyEqual(this, (Expression) obj);
+    }
+
+    @Override
+    /**
+     * @return a structural hash code, computed once at construction
+     */
+    public int hashCode() {
+        return hash;
+    }
+
     /**
      * Checks if the representation invariant is respected
      * @return {@code true} if the representation invariant is respected, {@code false} otherwise
@@ -0,0 +1,351 @@
+package expressions;
+
+import expressions.BinaryExpression.BinaryOperator;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Rewrites a boolean expression into a smaller equivalent one before it is solved.
+ *
+ * The rewriting folds constants, removes double negations, and simplifies every conjunction and
+ * disjunction by looking at the flattened operands of its nested chains of the same operator: an
+ * operand already in the other side of the chain is dropped (idempotence), an operand meeting its
+ * negation turns the chain into a constant, and an operand of the dual operator sharing an operand
+ * with the other side is absorbed, e.g.: {@code a and (a or b)} becomes {@code a}. Implications,
+ * equivalences and exclusive ors are folded when an operand is constant or when their operands are
+ * equal or complementary, e.g.: {@code a xor true} becomes {@code not a}.
+ *
+ * The shape of the expression is kept where nothing simplifies, so the sub-expressions it shares,
+ * and that {@link CnfEncoder} encodes once, stay shared; flattened chains only serve to find the
+ * simplifications, and are looked at up to {@link #MAX_CHAIN} operands and {@link #MAX_CHAIN} nested
+ * operators, so that every node is simplified in constant time however deep its chain is.
+ *
+ * The result is equivalent to the expression under every interpretation, but may have fewer
+ * variables: an interpretation of the result is extended to one of the expression by giving any
+ * value to the variables that were simplified away. Equal sub-expressions of the result are a
+ * single shared node, and the expression is traversed without recursion.
+ *
+ * @version 0.1
+ */
+public final class Simplifier {
+
+    /**
+     * The largest number of operands of a flattened chain looked at by a simplification
+     */
+    public static final int MAX_CHAIN = 16;
+
+    private final Expression trueConstant = new Constant(true);
+    private final Expression falseConstant = new Constant(false);
+    private final Map<Expression, Expression> simplified = new IdentityHashMap<>();
+
+    /* (non-javadoc)
+     * The unique nodes built by this simplifier: variables by name, negations and binary expressions
+     * by their operator and the identity of their operands, which are unique themselves. The first
+     * node of the expression with a name, or whose operands are unchanged, is the unique node itself,
+     * so an expression in which nothing simplifies is its own simplification.
+     */
+    private final Map<String, Expression> variables = new HashMap<>();
+    private final Map<Node, Expression> nodes = new HashMap<>();
+
+    /* (non-javadoc)
+     * The operands of the chains looked at by combine.
+     */
+    private final Expression[] lefts = new Expression[MAX_CHAIN];
+    private final Expression[] rights = new Expression[MAX_CHAIN];
+    private final Expression[] duals = new Expression[MAX_CHAIN];
+
+    /* (non-javadoc)
+     * The pending nodes of the chain walked by chain, which pushes at most one more than it pops
+     * for each of its at most MAX_CHAIN nodes.
+     */
+    private final Expression[] stack = new Expression[MAX_CHAIN + 1];
+
+    private Simplifier() {
+    }
+
+    /**
+     * Simplifies an expression
+     * @param expression the expression to simplify
+     * @return an expression equivalent to {@code expression} whose variables are a subset of its variables
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Expression simplify(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        return new Simplifier().run(expression);
+    }
+
+    /* (non-javadoc)
+     * Simplifies every sub-expression in post-order.
+     */
+    private Expression run(Expression root) {
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.peek();
+            if (simplified.containsKey(expr)) {
+                pending.pop();
+            } else if (expr instanceof Constant) {
+                pending.pop();
+                simplified.put(expr, ((Constant) expr).value() ? trueConstant : falseConstant);
+            } else if (expr instanceof Variable) {
+                pending.pop();
+                simplified.put(expr, variables.computeIfAbsent(((Variable) expr).name(), name -> expr));
+            } else if (expr instanceof Negation) {
+                Expression operand = simplified.get(((Negation) expr).operand());
+                if (operand == null) {
+                    pending.push(((Negation) expr).operand());
+                } else {
+                    pending.pop();
+                    if (operand == ((Negation) expr).operand()) {
+                        nodes.putIfAbsent(new Node(null, operand, null), expr);
+                    }
+                    simplified.put(expr, negate(operand));
+                }
+            } else if (expr instanceof BinaryExpression) {
+                BinaryExpression binary = (BinaryExpression) expr;
+                Expression left = simplified.get(binary.left());
+                Expression right = simplified.get(binary.right());
+                if (left == null || right == null) {
+                    if (left == null) {
+                        pending.push(binary.left());
+                    }
+                    if (right == null) {
+                        pending.push(binary.right());
+                    }
+                } else {
+                    pending.pop();
+                    if (left == binary.left() && right == binary.right()) {
+                        nodes.putIfAbsent(new Node(binary.operator(), left, right), expr);
+                    }
+                    simplified.put(expr, combine(binary.operator(), left, right));
+                }
+            } else {
+                throw new IllegalArgumentException("unsupported expression " + expr.getClass().getName());
+            }
+        }
+        return simplified.get(root);
+    }
+
+    private Expression negate(Expression operand) {
+        if (operand instanceof Constant) {
+            return ((Constant) operand).value() ? falseConstant : trueConstant;
+        }
+        if (operand instanceof Negation) {
+            return ((Negation) operand).operand();
+        }
+        return node(null, operand, null);
+    }
+
+    /* (non-javadoc)
+     * The simplification of "left op right" for simplified operands.
+     */
+    private Expression combine(BinaryOperator op, Expression left, Expression right) {
+        if (op == BinaryOperator.IMPLIES) {
+            return implies(left, right);
+        }
+        if (op == BinaryOperator.IFF || op == BinaryOperator.XOR) {
+            return parity(op, left, right);
+        }
+        Expression absorbing = op == BinaryOperator.AND ? falseConstant : trueConstant;
+        Expression neutral = op == BinaryOperator.AND ? trueConstant : falseConstant;
+        if (left == absorbing || right == absorbing) {
+            return absorbing;
+        }
+        if (left == neutral) {
+            return right;
+        }
+        if (right == neutral || left == right) {
+            return left;
+        }
+        if (left instanceof Variable && right instanceof Variable) {
+            return node(op, left, right);
+        }
+        int leftCount = chain(left, op, lefts);
+        int rightCount = chain(right, op, rights);
+        if (leftCount >= 0 && rightCount >= 0) {
+            if (complementary(leftCount, rightCount)) {
+                return absorbing;
+            }
+            if (contains(lefts, leftCount, rights, rightCount)) {
+                return left;
+            }
+            if (contains(rights, rightCount, lefts, leftCount)) {
+                return right;
+            }
+            BinaryOperator dual = op == BinaryOperator.AND ? BinaryOperator.OR : BinaryOperator.AND;
+            if (right instanceof BinaryExpression && absorbs(lefts, leftCount, chain(right, dual, duals))) {
+                return left;
+            }
+            if (left instanceof BinaryExpression && absorbs(rights, rightCount, chain(left, dual, duals))) {
+                return right;
+            }
+        }
+        return node(op, left, right);
+    }
+
+    /* (non-javadoc)
+     * The simplification of "left implies right" for simplified operands.
+     */
+    private Expression implies(Expression left, Expression right) {
+        if (left == falseConstant || right == trueConstant || left == right) {
+            return trueConstant;
+        }
+        if (left == trueConstant || isNegation(left, right)) {
+            return right;
+        }
+        if (right == falseConstant || isNegation(right, left)) {
+            return negate(left);
+        }
+        return node(BinaryOperator.IMPLIES, left, right);
+    }
+
+    /* (non-javadoc)
+     * The simplification of "left iff right" or "left xor right" for simplified operands.
+     */
+    private Expression parity(BinaryOperator op, Expression left, Expression right) {
+        Expression same = op == BinaryOperator.IFF ? trueConstant : falseConstant;
+        Expression different = op == BinaryOperator.IFF ? falseConstant : trueConstant;
+        if (left == right || isNegation(left, right) || isNegation(right, left)) {
+            return left == right ? same : different;
+        }
+        if (left == same || right == same) {
+            return left == same ? right : left;
+        }
+        if (left == different || right == different) {
+            return negate(left == different ? right : left);
+        }
+        return node(op, left, right);
+    }
+
+    /* (non-javadoc)
+     * Whether expr is the negation of operand.
+     */
+    private static boolean isNegation(Expression expr, Expression operand) {
+        return expr instanceof Negation && ((Negation) expr).operand() == operand;
+    }
+
+    /* (non-javadoc)
+     * Collects in operands the distinct operands of the chain of op rooted at expr, i.e.: expr itself
+     * unless it is a binary expression of op, walking at most MAX_CHAIN nodes of op with an explicit stack.
+     * @return the number of operands collected, or -1 if there are more than MAX_CHAIN of them or
+     * the chain has more than MAX_CHAIN nodes of op
+     */
+    private int chain(Expression expr, BinaryOperator op, Expression[] operands) {
+        int count = 0;
+        int nodes = 0;
+        int depth = 0;
+        stack[depth++] = expr;
+        while (depth > 0) {
+            Expression next = stack[--depth];
+            if (next instanceof BinaryExpression && ((BinaryExpression) next).operator() == op) {
+                if (nodes++ == MAX_CHAIN) {
+                    return -1;
+                }
+                stack[depth++] = ((BinaryExpression) next).right();
+                stack[depth++] = ((BinaryExpression) next).left();
+            } else if (indexOf(operands, count, next) < 0) {
+                if (count == MAX_CHAIN) {
+                    return -1;
+                }
+                operands[count++] = next;
+            }
+        }
+        return count;
+    }
+
+    private static int indexOf(Expression[] operands, int count, Expression expr) {
+        for (int i = 0; i < count; i++) {
+            if (operands[i] == expr) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /* (non-javadoc)
+     * Whether all of the first count operands of others are in the first size operands.
+     */
+    private static boolean contains(Expression[] operands, int size, Expression[] others, int count) {
+        for (int i = 0; i < count; i++) {
+            if (indexOf(operands, size, others[i]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* (non-javadoc)
+     * Whether an operand of one chain is the negation of an operand of the other.
+     */
+    private boolean complementary(int leftCount, int rightCount) {
+        for (int i = 0; i < leftCount; i++) {
+            if (lefts[i] instanceof Negation && indexOf(rights, rightCount, ((Negation) lefts[i]).operand()) >= 0) {
+                return true;
+            }
+        }
+        for (int i = 0; i < rightCount; i++) {
+            if (rights[i] instanceof Negation && indexOf(lefts, leftCount, ((Negation) rights[i]).operand()) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* (non-javadoc)
+     * Whether a chain absorbs the chain of the dual operator in duals, by sharing one of its operands.
+     */
+    private boolean absorbs(Expression[] operands, int size, int dualCount) {
+        if (dualCount < 2) {
+            return false;
+        }
+        for (int i = 0; i < dualCount; i++) {
+            if (indexOf(operands, size, duals[i]) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* (non-javadoc)
+     * The unique negation of left when op is null, otherwise the unique binary expression.
+     */
+    private Expression node(BinaryOperator op, Expression left, Expression right) {
+        Node key = new Node(op, left, right);
+        Expression node = nodes.get(key);
+        if (node == null) {
+            node = op == null ? new Negation(left) : new BinaryExpression(left, right, op);
+            nodes.put(key, node);
+        }
+        return node;
+    }
+
+    /* (non-javadoc)
+     * The key of a unique node, comparing operands by identity.
+     */
+    private static final class Node {
+        private final BinaryOperator op;
+        private final Expression left;
+        private final Expression right;
+
+        Node(BinaryOperator op, Expression left, Expression right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Node && ((Node) obj).op == op && ((Node) obj).left == left && ((Node) obj).right == right;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * System.identityHashCode(left) + System.identityHashCode(right)) * 31 + (op == null ? 2 : op.ordinal());
+        }
+    }
+}
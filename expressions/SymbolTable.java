@@ -0,0 +1,133 @@
+package expressions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A table interning variable names into dense indices {@code 0, 1, 2, ...}.
+ * Names are validated once, when they are interned, so code working with indices
+ * never has to check them again.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> indices and names are not {@code null}</li>
+ *  <li> {@code names.get(indices.get(n)).equals(n)} for every interned name {@code n}</li>
+ *  <li> every interned name follows the format {@code <letter>(<letter-or-number>)*}</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class SymbolTable {
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Constructs a new empty symbol table
+     */
+    public SymbolTable() {
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Creates the symbol table of an expression, its variables are numbered following their natural order
+     * @param expression the expression to use
+     * @return a symbol table with all variables of {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static SymbolTable of(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        SymbolTable symbols = new SymbolTable();
+        for (String var : new TreeSet<>(expression.variables())) {
+            symbols.intern(var);
+        }
+        return symbols;
+    }
+
+    /**
+     * Interns a variable name
+     * @param var the variable name
+     * @return the index of {@code var}, a new index if it was not interned yet
+     * @throws IllegalArgumentException if {@code var} doesn't follow the following conditions
+     * <ul>
+     * <li>is not {@code null}</li>
+     * <li>is not empty</li>
+     * <li>follows the format {@code <letter>(<letter-or-number>)*}, i.e.: a letter followed by zero or more letters or numbers</li>
+     * </ul>
+     */
+    public int intern(String var) {
+        Integer index = indices.get(var);
+        if (index != null) {
+            return index;
+        }
+        if (!Variable.checkFormat(var)) {
+            throw new IllegalArgumentException("var has an invalid format or value");
+        }
+        indices.put(var, names.size());
+        names.add(var);
+        return names.size() - 1;
+    }
+
+    /**
+     * @param var the variable name
+     * @return the index of {@code var}, or {@code -1} if it is not interned
+     * @throws IllegalArgumentException if {@code var} is {@code null}
+     */
+    public int indexOf(String var) {
+        if (var == null) {
+            throw new IllegalArgumentException("var cannot be null");
+        }
+        Integer index = indices.get(var);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index the index of a variable
+     * @return the name interned with {@code index}
+     * @throws IllegalArgumentException if {@code index} is not between {@code 0} and {@code size() - 1}
+     */
+    public String name(int index) {
+        if (index < 0 || index >= names.size()) {
+            throw new IllegalArgumentException("index is out of range");
+        }
+        return names.get(index);
+    }
+
+    /**
+     * @return the number of interned names
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * @return an unmodifiable view of the interned names, ordered by index
+     */
+    public List<String> names() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        if (indices == null || names == null || indices.size() != names.size()) {
+            return false;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            if (!Variable.checkFormat(names.get(i)) || indices.get(names.get(i)) != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
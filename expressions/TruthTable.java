@@ -0,0 +1,261 @@
+package expressions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The truth table of a boolean expression, computed 64 rows at a time.
+ *
+ * The variables of the expression are sorted in their natural order, and in row {@code r}
+ * the {@code i}-th variable is {@code true} iff bit {@code i} of {@code r} is set.
+ * Every variable is given a truth table column made of the standard bit patterns for its
+ * index ({@code 0xAAAA...}, {@code 0xCCCC...}, {@code 0xF0F0...}, ...), and every node of
+ * the {@link CompiledExpression} program of the expression is run with word-wide {@code &},
+ * {@code |}, {@code ^} and {@code ~}, so one machine operation evaluates a node under 64 interpretations.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> variables is not {@code null} and sorted</li>
+ *  <li> bits has one bit per row, unused bits of the last word are cleared</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class TruthTable {
+
+    /**
+     * The maximum number of variables of an expression whose truth table can be computed
+     */
+    public static final int MAX_VARIABLES = 30;
+
+    /* (non-javadoc)
+     * The patterns of the first six variables inside a single word.
+     */
+    private static final long[] PATTERNS = {
+        0xAAAAAAAAAAAAAAAAL,
+        0xCCCCCCCCCCCCCCCCL,
+        0xF0F0F0F0F0F0F0F0L,
+        0xFF00FF00FF00FF00L,
+        0xFFFF0000FFFF0000L,
+        0xFFFFFFFF00000000L,
+    };
+
+    /* (non-javadoc)
+     * Number of words computed at once, bounds the size of the evaluation stack.
+     */
+    private static final int BLOCK = 1024;
+
+    /* (non-javadoc)
+     * Maximum number of words of the stack and registers together, programs with many
+     * shared sub-expressions are run on smaller blocks.
+     */
+    private static final int SCRATCH = 1 << 20;
+
+    private final SymbolTable symbols;
+    private final List<String> variables;
+    private final long rows;
+    private final long[] bits;
+
+    private TruthTable(SymbolTable symbols, List<String> variables, long[] bits) {
+        this.symbols = symbols;
+        this.variables = variables;
+        this.rows = 1L << variables.size();
+        this.bits = bits;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Computes the truth table of an expression
+     * @param expression the expression to use
+     * @return the truth table of {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     * @throws IllegalArgumentException if {@code expression} has more than {@link #MAX_VARIABLES} variables
+     */
+    public static TruthTable of(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        CompiledExpression program = CompiledExpression.compile(expression);
+        List<String> variables = program.variables();
+        if (variables.size() > MAX_VARIABLES) {
+            throw new IllegalArgumentException("expression has more than " + MAX_VARIABLES + " variables");
+        }
+        int words = (int) Math.max(1, (1L << variables.size()) >>> 6);
+        long[] bits = new long[words];
+        int block = Math.min(words, Math.max(1, Math.min(BLOCK, SCRATCH / (program.maxDepth() + program.registers()))));
+        long[][] stack = new long[program.maxDepth()][block];
+        long[][] registers = new long[program.registers()][block];
+        for (int from = 0; from < words; from += block) {
+            int length = Math.min(block, words - from);
+            run(program.code(), stack, registers, from, length);
+            System.arraycopy(stack[0], 0, bits, from, length);
+        }
+        if (variables.size() < 6) {
+            bits[0] &= (1L << (1 << variables.size())) - 1;
+        }
+        return new TruthTable(program.symbols(), variables, bits);
+    }
+
+    /**
+     * @return the variables of this truth table in their natural order
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /**
+     * @return the number of rows of this truth table, i.e.: {@code 2^variables().size()}
+     */
+    public long rowCount() {
+        return rows;
+    }
+
+    /**
+     * @param row the row to check
+     * @return the value of the expression in {@code row}
+     * @throws IllegalArgumentException if {@code row} is not between {@code 0} and {@code rowCount() - 1}
+     */
+    public boolean value(long row) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("row is out of range");
+        }
+        return (bits[(int) (row >>> 6)] >>> (row & 63) & 1) != 0;
+    }
+
+    /**
+     * @return the number of rows where the expression is {@code true}
+     */
+    public long countTrue() {
+        long count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return {@code true} iff the expression is {@code true} in every row
+     */
+    public boolean isTautology() {
+        return countTrue() == rows;
+    }
+
+    /**
+     * @return {@code true} iff the expression is {@code false} in every row
+     */
+    public boolean isContradiction() {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param row the row to use
+     * @return the interpretation assigning the variables as in {@code row}
+     * @throws IllegalArgumentException if {@code row} is not between {@code 0} and {@code rowCount() - 1}
+     */
+    public Interpretation interpretation(long row) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("row is out of range");
+        }
+        return new IndexedInterpretation(symbols, new long[] {row}).toInterpretation();
+    }
+
+    /**
+     * @param value the value of the expression to look for
+     * @return a new list with the interpretations of all rows where the expression evaluates to {@code value}
+     */
+    public List<Interpretation> interpretations(boolean value) {
+        List<Interpretation> result = new ArrayList<>();
+        long flip = value ? 0 : -1L;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w] ^ flip;
+            if (rows < 64) {
+                word &= (1L << rows) - 1;
+            }
+            while (word != 0) {
+                long row = ((long) w << 6) | Long.numberOfTrailingZeros(word);
+                result.add(interpretation(row));
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    /* (non-javadoc)
+     * Runs the program over words [from, from + length) of the truth table,
+     * leaving the result in stack[0].
+     */
+    private static void run(int[] program, long[][] stack, long[][] registers, int from, int length) {
+        int top = -1;
+        for (int instruction : program) {
+            int operand = instruction >>> CompiledExpression.OPCODE_BITS;
+            long[] out;
+            switch (instruction & ((1 << CompiledExpression.OPCODE_BITS) - 1)) {
+                case CompiledExpression.VAR:
+                    out = stack[++top];
+                    if (operand < 6) {
+                        Arrays.fill(out, 0, length, PATTERNS[operand]);
+                    } else {
+                        for (int w = 0; w < length; w++) {
+                            out[w] = ((from + w) >>> (operand - 6) & 1) != 0 ? -1L : 0L;
+                        }
+                    }
+                    break;
+                case CompiledExpression.CONST:
+                    Arrays.fill(stack[++top], 0, length, operand != 0 ? -1L : 0L);
+                    break;
+                case CompiledExpression.NOT:
+                    out = stack[top];
+                    for (int w = 0; w < length; w++) {
+                        out[w] = ~out[w];
+                    }
+                    break;
+                case CompiledExpression.AND:
+                    out = stack[--top];
+                    long[] and = stack[top + 1];
+                    for (int w = 0; w < length; w++) {
+                        out[w] &= and[w];
+                    }
+                    break;
+                case CompiledExpression.OR:
+                    out = stack[--top];
+                    long[] or = stack[top + 1];
+                    for (int w = 0; w < length; w++) {
+                        out[w] |= or[w];
+                    }
+                    break;
+                case CompiledExpression.XOR:
+                    out = stack[--top];
+                    long[] xor = stack[top + 1];
+                    for (int w = 0; w < length; w++) {
+                        out[w] ^= xor[w];
+                    }
+                    break;
+                case CompiledExpression.STORE:
+                    System.arraycopy(stack[top], 0, registers[operand], 0, length);
+                    break;
+                default:
+                    System.arraycopy(registers[operand], 0, stack[++top], 0, length);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        if (variables == null || bits == null || bits.length != Math.max(1, rows >>> 6)) {
+            return false;
+        }
+        return rows >= 64 || (bits[0] & ~((1L << rows) - 1)) == 0;
+    }
+}
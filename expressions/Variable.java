@@ -17,7 +17,8 @@ import java.util.Set;
  */
 class Variable implements Expression {
 
-    private String var;
+    private final String var;
+    private final Set<String> variables;
 
     /**
      * Constructs a new variable expression
@@ -40,6 +41,7 @@ class Variable implements Expression {
             throw new IllegalArgumentException("var has an invalid format or value");
         }
         this.var = var;
+        this.variables = VariableSet.of(var);
         if (!repOk()) {
             throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
         }
@@ -72,28 +74,46 @@ class Variable implements Expression {
         }
         return true;
     }
-    
+
+    /**
+     * @return the name of this variable
+     */
+    String name() {
+        return this.var;
+    }
 
     @Override
     public boolean evaluate(Interpretation interpretation) {
         if (interpretation == null) {
             throw new IllegalArgumentException("interpretation cannot be null");
         }
-        if (!interpretation.exists(this.var)) {
+        Boolean value = interpretation.lookup(this.var);
+        if (value == null) {
             throw new IllegalArgumentException("variable " + this.var + " does not exist in interpretation");
         }
-        return interpretation.valueOf(this.var);
+        return value;
     }
 
     @Override
     public Set<String> variables() {
-        return Set.of(this.var);
+        return variables;
     }
     
     @Override
     public String toString() {
         return var;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Variable && ((Variable) obj).var.equals(this.var);
+    }
+
+    @Override
+    public int hashCode() {
+        return var.hashCode();
+    }
+
     /**
      * Checks if the representation invariant is respected
      * @return {@code true} if the representation invariant is respected, {@code false} otherwise
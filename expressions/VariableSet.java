@@ -0,0 +1,143 @@
+package expressions;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable set of variable names kept as a sorted array.
+ * It is the variable support cached by the nodes of an expression: iteration follows the natural
+ * order of the names, membership is a binary search and the set cannot be modified.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> names is not {@code null}, sorted and without duplicates</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+final class VariableSet extends AbstractSet<String> {
+
+    /**
+     * The set without variables
+     */
+    static final VariableSet EMPTY = new VariableSet(new String[0]);
+
+    private final String[] names;
+
+    private VariableSet(String[] names) {
+        this.names = names;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Creates the set of a single variable
+     * @param var the variable name
+     * @return the set containing only {@code var}
+     */
+    static VariableSet of(String var) {
+        return new VariableSet(new String[] {var});
+    }
+
+    /**
+     * Computes the variables of an expression.
+     * Every distinct node is visited once and without recursion, and nodes that already know their
+     * variables are not visited further, so the cost is linear in the number of new nodes.
+     * @param expression the expression to use
+     * @return the variables of {@code expression}
+     */
+    static VariableSet of(Expression expression) {
+        List<String> found = new ArrayList<>();
+        Set<Expression> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Expression> pending = new ArrayDeque<>();
+        pending.push(expression);
+        while (!pending.isEmpty()) {
+            Expression expr = pending.pop();
+            if (!visited.add(expr)) {
+                continue;
+            }
+            if (expr instanceof Negation && !((Negation) expr).knowsVariables()) {
+                pending.push(((Negation) expr).operand());
+            } else if (expr instanceof BinaryExpression && !((BinaryExpression) expr).knowsVariables()) {
+                pending.push(((BinaryExpression) expr).right());
+                pending.push(((BinaryExpression) expr).left());
+            } else {
+                found.addAll(expr.variables());
+            }
+        }
+        if (found.isEmpty()) {
+            return EMPTY;
+        }
+        String[] names = found.toArray(new String[0]);
+        Arrays.sort(names);
+        int size = 1;
+        for (int i = 1; i < names.length; i++) {
+            if (!names[i].equals(names[size - 1])) {
+                names[size++] = names[i];
+            }
+        }
+        return new VariableSet(size == names.length ? names : Arrays.copyOf(names, size));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && Arrays.binarySearch(names, o) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < names.length;
+            }
+
+            @Override
+            public String next() {
+                if (next >= names.length) {
+                    throw new NoSuchElementException();
+                }
+                return names[next++];
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return names.clone();
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        if (names == null) {
+            return false;
+        }
+        for (int i = 1; i < names.length; i++) {
+            if (names[i - 1].compareTo(names[i]) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package solver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The budget of a running query: what it has spent of a {@link SolverBudget} and, once it has run
+ * out, which limit it hit. It is shared by all threads working for the query, which check it
+ * cooperatively; once exhausted it stays exhausted.
+ *
+ * @version 0.1
+ */
+final class Budget {
+
+    /* (non-javadoc)
+     * The estimated size of an interpretation: the interpretation and its tree map, and a tree map
+     * entry per variable.
+     */
+    private static final long INTERPRETATION_BYTES = 64;
+    private static final long VARIABLE_BYTES = 40;
+
+    private final SolverBudget limits;
+    private final Thread caller;
+    private final long deadline;
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder memory = new LongAdder();
+    private volatile SolverResult.Limit exhausted;
+
+    Budget(SolverBudget limits, Thread caller) {
+        this.limits = limits;
+        this.caller = caller;
+        long now = System.nanoTime();
+        this.deadline = limits.timeoutNanos() > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + limits.timeoutNanos();
+    }
+
+    /**
+     * @return the number of conflicts a single search may still find
+     */
+    long remainingConflicts() {
+        return Math.max(0, limits.conflicts() - conflicts.sum());
+    }
+
+    /**
+     * @return the number of evaluations that may still be done
+     */
+    long remainingEvaluations() {
+        return Math.max(0, limits.evaluations() - evaluations.sum());
+    }
+
+    /**
+     * @return the limit that stopped the query, or {@code null} if it is not exhausted
+     */
+    SolverResult.Limit exhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Checks the time and the interruption of the calling thread
+     * @return {@code true} iff the query must stop
+     */
+    boolean check() {
+        if (exhausted != null) {
+            return true;
+        }
+        if (caller.isInterrupted()) {
+            return stop(SolverResult.Limit.INTERRUPTED);
+        }
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+            return stop(SolverResult.Limit.TIMEOUT);
+        }
+        return false;
+    }
+
+    /**
+     * Spends conflicts of a search and checks the time
+     * @return {@code true} iff the query must stop
+     */
+    boolean conflicts(long count) {
+        conflicts.add(count);
+        if (limits.conflicts() != Long.MAX_VALUE && conflicts.sum() >= limits.conflicts()) {
+            return stop(SolverResult.Limit.CONFLICTS);
+        }
+        return check();
+    }
+
+    /**
+     * Spends evaluations, before doing them
+     * @return {@code true} iff the query must stop, in which case they must not be done
+     */
+    boolean evaluations(long count) {
+        if (limits.evaluations() != Long.MAX_VALUE) {
+            evaluations.add(count);
+            if (evaluations.sum() > limits.evaluations()) {
+                return stop(SolverResult.Limit.EVALUATIONS);
+            }
+        }
+        return check();
+    }
+
+    /**
+     * Spends the memory of interpretations, before creating them
+     * @param count the number of interpretations to create
+     * @param variables the number of variables of every interpretation
+     * @return the number of interpretations that may be created, less than {@code count} iff the query must stop
+     */
+    long interpretations(long count, int variables) {
+        if (limits.memory() == Long.MAX_VALUE) {
+            return count;
+        }
+        long each = INTERPRETATION_BYTES + VARIABLE_BYTES * variables;
+        long affordable = Math.min(count, Math.max(0, (limits.memory() - memory.sum()) / each));
+        memory.add(affordable * each);
+        if (affordable < count) {
+            stop(SolverResult.Limit.MEMORY);
+        }
+        return affordable;
+    }
+
+    /**
+     * Stops the query, unless it is already stopped
+     * @param limit the limit the query ran out of
+     * @return {@code true}
+     */
+    boolean stop(SolverResult.Limit limit) {
+        if (exhausted == null) {
+            exhausted = limit;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,1180 @@
+package solver;
+
+import expressions.Cnf;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A conflict-driven clause-learning (CDCL) search engine.
+ * Clauses are given with DIMACS literals, i.e.: variable {@code v} is the literal {@code v} and
+ * its negation is the literal {@code -v}, variables are numbered from {@code 1}.
+ *
+ * The engine uses two watched literals with blockers for unit propagation, first-UIP conflict
+ * analysis with clause minimization, VSIDS variable activities with phase saving, Luby restarts
+ * and activity based reduction of the learnt clause database.
+ *
+ * The engine is incremental: clauses may be added between searches, and a search may assume some
+ * literals, which are decided before any other variable. Learnt clauses never depend on the
+ * assumptions, so they are kept from one search to the next. When the clauses are unsatisfiable
+ * under the assumptions, the subset of the assumptions used to derive the conflict is available.
+ *
+ * The polarity of decisions, the restart policy, the decay of variable activities and a frequency
+ * of random decisions can be configured, so that several engines run on the same clauses explore
+ * different parts of the search space. Such engines may also share their short learnt clauses
+ * through a {@link ClauseExchange}, and a search can be interrupted from another thread or stopped
+ * after a number of conflicts. A lookahead on the variables helps splitting the search space into
+ * cubes solved independently. Parity constraints encoded by clauses can be detected and
+ * propagated by Gauss-Jordan elimination, which decides parity problems that are out of reach of
+ * resolution.
+ *
+ * Internally variable {@code v} is numbered {@code v - 1} and the literals of variable {@code x}
+ * are {@code 2x} (positive) and {@code 2x + 1} (negative).
+ *
+ * @version 0.1
+ */
+final class CdclSolver {
+
+    private static final byte UNDEF = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = -1;
+
+    private static final int RESTART_UNIT = 100;
+    private static final double VAR_DECAY = 0.95;
+    private static final double CLAUSE_DECAY = 0.999;
+    private static final double GEOMETRIC_FACTOR = 1.5;
+
+    /* (non-javadoc)
+     * The budget of a search is checked every BUDGET_CONFLICTS conflicts and every BUDGET_DECISIONS
+     * decisions, both powers of two.
+     */
+    private static final int BUDGET_CONFLICTS = 256;
+    private static final int BUDGET_DECISIONS = 4096;
+
+    /* (non-javadoc)
+     * Parity constraints are reasoned on by Gauss-Jordan elimination when the matrix has at most
+     * MAX_MATRIX_WORDS words.
+     */
+    private static final int MAX_MATRIX_WORDS = 1 << 18;
+
+    /**
+     * The value given to a decision variable
+     */
+    enum Polarity {
+        /** the value the variable last had, initially {@code false} */
+        SAVED,
+        /** always {@code false} */
+        NEGATIVE,
+        /** always {@code true} */
+        POSITIVE,
+        /** a random value */
+        RANDOM
+    }
+
+    /**
+     * The number of conflicts allowed between two restarts
+     */
+    enum RestartPolicy {
+        /** {@code 100} times the Luby sequence {@code 1, 1, 2, 1, 1, 2, 4, ...} */
+        LUBY,
+        /** {@code 100} initially, then {@code 1.5} times more after every restart */
+        GEOMETRIC
+    }
+
+    /* (non-javadoc)
+     * A clause, the first two literals are the watched ones.
+     * For a clause that is the reason of an assignment, the implied literal is lits[0].
+     */
+    private static final class Clause {
+        final int[] lits;
+        final boolean learnt;
+        double activity;
+
+        Clause(int[] lits, boolean learnt) {
+            this.lits = lits;
+            this.learnt = learnt;
+        }
+    }
+
+    /* (non-javadoc)
+     * The clauses watching a literal, each one with a blocker literal that,
+     * when true, makes visiting the clause unnecessary.
+     */
+    private static final class WatchList {
+        Clause[] clauses = new Clause[4];
+        int[] blockers = new int[4];
+        int size;
+
+        void add(Clause clause, int blocker) {
+            if (size == clauses.length) {
+                clauses = Arrays.copyOf(clauses, size * 2);
+                blockers = Arrays.copyOf(blockers, size * 2);
+            }
+            clauses[size] = clause;
+            blockers[size] = blocker;
+            size++;
+        }
+    }
+
+    private int variables;
+    private boolean ok = true;
+
+    private byte[] values = new byte[0];
+    private int[] levels = new int[0];
+    private Clause[] reasons = new Clause[0];
+    private boolean[] phases = new boolean[0];
+    private boolean[] seen = new boolean[0];
+    private double[] activity = new double[0];
+    private WatchList[] watches = new WatchList[0];
+    private boolean[] model;
+    private int[] assumptions = new int[0];
+    private final IntVec failed = new IntVec();
+
+    private int[] trail = new int[0];
+    private int trailSize;
+    private int qhead;
+    private int[] trailLimits = new int[16];
+    private int decisionLevel;
+
+    private final List<Clause> clauses = new ArrayList<>();
+    private final List<Clause> learnts = new ArrayList<>();
+    private double maxLearnts;
+    private long conflicts;
+    private long decisions;
+    private long propagations;
+    private double varIncrement = 1.0;
+    private double clauseIncrement = 1.0;
+
+    private int[] heap = new int[0];
+    private int[] heapIndex = new int[0];
+    private int heapSize;
+
+    private final IntVec learnt = new IntVec();
+    private final IntVec toClear = new IntVec();
+
+    private Polarity polarity = Polarity.SAVED;
+    private RestartPolicy restartPolicy = RestartPolicy.LUBY;
+    private double varDecay = VAR_DECAY;
+    private double randomFrequency;
+    private Random random = new Random(0);
+    private boolean perturb;
+    private volatile boolean interrupted;
+    private Budget budget;
+
+    private GaussJordan gauss;
+    private boolean gaussPending;
+
+    private ClauseExchange exchange;
+    private int worker;
+    private long exchangeCursor;
+
+    /**
+     * Constructs a new solver with no variables and no clauses
+     */
+    CdclSolver() {
+    }
+
+    /**
+     * Constructs a new solver loaded with all clauses of a formula
+     * @param cnf the formula to load
+     */
+    CdclSolver(Cnf cnf) {
+        addClauses(cnf);
+    }
+
+    /**
+     * Adds all clauses of a formula, its variables are the variables of this solver with the same number
+     * @param cnf the formula to add
+     */
+    void addClauses(Cnf cnf) {
+        ensureVariables(cnf.variableCount());
+        int[] lits = cnf.literals();
+        int start = 0;
+        for (int i = 0; i < lits.length && ok; i++) {
+            if (lits[i] == 0) {
+                addClause(lits, start, i);
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Sets the seed of the random choices, the initial activities of the variables added from now on
+     * are slightly perturbed so that engines with different seeds break ties differently
+     * @param seed the seed
+     */
+    void setSeed(long seed) {
+        random = new Random(seed);
+        perturb = true;
+    }
+
+    /**
+     * @param polarity how decision variables are given a value
+     */
+    void setPolarity(Polarity polarity) {
+        this.polarity = polarity;
+    }
+
+    /**
+     * @param restartPolicy how many conflicts are allowed between two restarts
+     */
+    void setRestartPolicy(RestartPolicy restartPolicy) {
+        this.restartPolicy = restartPolicy;
+    }
+
+    /**
+     * @param decay the factor applied to variable activities after every conflict, the lower it is
+     * the more the search focuses on recent conflicts, in {@code (0, 1)}
+     */
+    void setVariableDecay(double decay) {
+        this.varDecay = decay;
+    }
+
+    /**
+     * @param frequency the probability of deciding a random variable instead of the most active one,
+     * in {@code [0, 1]}
+     */
+    void setRandomFrequency(double frequency) {
+        this.randomFrequency = frequency;
+    }
+
+    /**
+     * Shares the short clauses learnt by this solver with the other solvers of an exchange and adds
+     * the ones they learnt at every restart. All solvers of an exchange must have been given the
+     * same clauses.
+     * @param exchange the exchange to use
+     * @param worker the identifier of this solver in {@code exchange}
+     */
+    void share(ClauseExchange exchange, int worker) {
+        this.exchange = exchange;
+        this.worker = worker;
+        this.exchangeCursor = 0;
+    }
+
+    /**
+     * Makes the running search, or the next one, give up as soon as possible.
+     * It can be called from any thread.
+     */
+    void interrupt() {
+        interrupted = true;
+    }
+
+    /**
+     * Makes the searches spend a budget shared with other work: they give up as soon as possible
+     * once it is exhausted, which is checked every few hundred conflicts and every few thousand
+     * decisions. An exhausted budget interrupts this solver for good.
+     * @param budget the budget to spend, {@code null} for none
+     */
+    void limit(Budget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @return the number of variables of this solver
+     */
+    int variableCount() {
+        return variables;
+    }
+
+    /**
+     * Makes sure variables {@code 1..count} exist
+     * @param count the number of variables
+     */
+    void ensureVariables(int count) {
+        if (count <= variables) {
+            return;
+        }
+        values = Arrays.copyOf(values, 2 * count);
+        levels = Arrays.copyOf(levels, count);
+        reasons = Arrays.copyOf(reasons, count);
+        phases = Arrays.copyOf(phases, count);
+        seen = Arrays.copyOf(seen, count);
+        activity = Arrays.copyOf(activity, count);
+        trail = Arrays.copyOf(trail, count);
+        watches = Arrays.copyOf(watches, 2 * count);
+        heap = Arrays.copyOf(heap, count);
+        heapIndex = Arrays.copyOf(heapIndex, count);
+        for (int v = variables; v < count; v++) {
+            watches[2 * v] = new WatchList();
+            watches[2 * v + 1] = new WatchList();
+            heapIndex[v] = -1;
+            if (perturb) {
+                activity[v] = 1e-5 * random.nextDouble();
+            }
+            heapInsert(v);
+        }
+        variables = count;
+    }
+
+    /**
+     * Adds a clause, it must be called at decision level {@code 0}
+     * @param lits the DIMACS literals of the clause
+     * @return {@code false} iff the clauses of this solver are already known to be unsatisfiable
+     */
+    boolean addClause(int... lits) {
+        return addClause(lits, 0, lits.length);
+    }
+
+    /**
+     * Adds the clause formed by the DIMACS literals {@code lits[from..to)}
+     * @return {@code false} iff the clauses of this solver are already known to be unsatisfiable
+     */
+    boolean addClause(int[] lits, int from, int to) {
+        if (!ok) {
+            return false;
+        }
+        learnt.clear();
+        for (int i = from; i < to; i++) {
+            int v = Math.abs(lits[i]);
+            ensureVariables(v);
+            learnt.add(lits[i] > 0 ? 2 * (v - 1) : 2 * (v - 1) + 1);
+        }
+        int[] clause = learnt.toArray();
+        Arrays.sort(clause);
+        int size = 0;
+        int previous = -1;
+        for (int lit : clause) {
+            if (lit == (previous ^ 1) || values[lit] == TRUE) {
+                return true;
+            }
+            if (lit != previous && values[lit] != FALSE) {
+                clause[size++] = lit;
+            }
+            previous = lit;
+        }
+        if (size == 0) {
+            ok = false;
+        } else if (size == 1) {
+            assign(clause[0], null);
+            ok = propagate() == null;
+        } else {
+            Clause c = new Clause(Arrays.copyOf(clause, size), false);
+            clauses.add(c);
+            attach(c);
+        }
+        return ok;
+    }
+
+    /**
+     * Searches for a model of all clauses added so far
+     * @return {@code true} iff the clauses are satisfiable, in which case the model is
+     * available through {@link #modelValue(int)}
+     */
+    boolean solve() {
+        return solve(new int[0]);
+    }
+
+    /**
+     * Searches for a model of all clauses added so far in which some literals are true
+     * @param assumed the DIMACS literals assumed to be true
+     * @return {@code true} iff the clauses are satisfiable under {@code assumed}, in which case the
+     * model is available through {@link #modelValue(int)}, otherwise the assumptions responsible
+     * are available through {@link #failedAssumptions()}
+     */
+    boolean solve(int[] assumed) {
+        return run(assumed) > 0;
+    }
+
+    /**
+     * Searches for a model of all clauses added so far in which some literals are true, until the
+     * search is interrupted
+     * @param assumed the DIMACS literals assumed to be true
+     * @return {@code 1} if the clauses are satisfiable under {@code assumed}, {@code -1} if they are
+     * not and {@code 0} if the search was interrupted by {@link #interrupt()}
+     */
+    int run(int[] assumed) {
+        return run(assumed, Long.MAX_VALUE);
+    }
+
+    /**
+     * Searches for a model of all clauses added so far in which some literals are true, until the
+     * search is interrupted or has found a number of conflicts
+     * @param assumed the DIMACS literals assumed to be true
+     * @param conflictBudget the maximum number of conflicts of this search
+     * @return {@code 1} if the clauses are satisfiable under {@code assumed}, {@code -1} if they are
+     * not and {@code 0} if the search was interrupted or ran out of conflicts
+     */
+    int run(int[] assumed, long conflictBudget) {
+        model = null;
+        failed.clear();
+        assumptions = new int[assumed.length];
+        for (int i = 0; i < assumed.length; i++) {
+            int v = Math.abs(assumed[i]);
+            ensureVariables(v);
+            assumptions[i] = assumed[i] > 0 ? 2 * (v - 1) : 2 * (v - 1) + 1;
+        }
+        if (!ok) {
+            return -1;
+        }
+        if (propagate() != null) {
+            ok = false;
+            return -1;
+        }
+        if (maxLearnts == 0) {
+            maxLearnts = Math.max(clauses.size() / 3.0, 2000);
+        }
+        long start = conflicts;
+        for (int restarts = 0; ; restarts++) {
+            if (interrupted || conflicts - start >= conflictBudget) {
+                return 0;
+            }
+            importShared();
+            if (!ok) {
+                return -1;
+            }
+            int status = search(Math.min(restartBudget(restarts), conflictBudget - (conflicts - start)));
+            cancelUntil(0);
+            if (status != 0) {
+                return status;
+            }
+        }
+    }
+
+    /* (non-javadoc)
+     * The number of conflicts allowed before the given restart.
+     */
+    private long restartBudget(int restarts) {
+        if (restartPolicy == RestartPolicy.GEOMETRIC) {
+            return (long) (RESTART_UNIT * Math.pow(GEOMETRIC_FACTOR, restarts));
+        }
+        return luby(restarts) * RESTART_UNIT;
+    }
+
+    /**
+     * Chooses a variable to split the search space on under a cube, by assigning every candidate
+     * variable both ways in turn and scoring it with the numbers {@code p} and {@code n} of assignments
+     * each side propagates, as {@code p * n + p + n}. When one side of a candidate fails, the other
+     * side is implied by the cube, it is kept for the following candidates and reported.
+     * It must be called at decision level {@code 0}, where it leaves the solver with its saved phases
+     * unchanged.
+     * @param cube the DIMACS literals assumed to be true
+     * @param candidates DIMACS variables, in order of preference
+     * @param limit the maximum number of unassigned candidates to score
+     * @param implied receives the DIMACS literals found to be implied by {@code cube}
+     * @return the variable with the best score, {@code 0} if all candidates are assigned by {@code cube},
+     * or {@code -1} if propagation alone shows that the clauses are unsatisfiable under {@code cube}
+     */
+    int lookahead(int[] cube, int[] candidates, int limit, IntVec implied) {
+        if (!ok || propagate() != null) {
+            ok = false;
+            return -1;
+        }
+        for (int lit : cube) {
+            ensureVariables(Math.abs(lit));
+        }
+        boolean[] savedPhases = phases.clone();
+        int best = chooseSplit(cube, candidates, limit, implied);
+        phases = savedPhases;
+        return best;
+    }
+
+    /* (non-javadoc)
+     * The lookahead itself, cancelling probes overwrites the saved phases of the probed variables.
+     */
+    private int chooseSplit(int[] cube, int[] candidates, int limit, IntVec implied) {
+        newDecisionLevel();
+        for (int lit : cube) {
+            int p = lit > 0 ? 2 * (lit - 1) : 2 * (-lit - 1) + 1;
+            if (values[p] == FALSE) {
+                cancelUntil(0);
+                return -1;
+            }
+            if (values[p] == UNDEF) {
+                assign(p, null);
+            }
+        }
+        if (propagate() != null) {
+            cancelUntil(0);
+            return -1;
+        }
+        int best = 0;
+        long bestScore = -1;
+        int probed = 0;
+        for (int i = 0; i < candidates.length && probed < limit; i++) {
+            int v = candidates[i] - 1;
+            if (values[2 * v] != UNDEF) {
+                continue;
+            }
+            probed++;
+            int positive = probe(2 * v);
+            int negative = probe(2 * v + 1);
+            if (positive < 0 && negative < 0) {
+                cancelUntil(0);
+                return -1;
+            }
+            if (positive < 0 || negative < 0) {
+                implied.add(positive < 0 ? -(v + 1) : v + 1);
+                assign(positive < 0 ? 2 * v + 1 : 2 * v, null);
+                if (propagate() != null) {
+                    cancelUntil(0);
+                    return -1;
+                }
+                continue;
+            }
+            long score = (long) positive * negative + positive + negative;
+            if (score > bestScore) {
+                bestScore = score;
+                best = v + 1;
+            }
+        }
+        if (best != 0 && values[2 * (best - 1)] != UNDEF) {
+            best = 0;
+            for (int i = 0; i < candidates.length && best == 0; i++) {
+                if (values[2 * (candidates[i] - 1)] == UNDEF) {
+                    best = candidates[i];
+                }
+            }
+        }
+        cancelUntil(0);
+        return best;
+    }
+
+    /**
+     * Recovers the parity constraints encoded by the clauses and reasons on them by Gauss-Jordan
+     * elimination during the next searches, it must be called at decision level {@code 0}.
+     * The constraints are recovered by {@link GaussJordan#detect(int[][], byte[], int[])} from the
+     * clauses left once the values assigned at level {@code 0} are taken into account.
+     * Nothing is done unless a constraint has more than two variables, since shorter ones are
+     * equivalences already well handled by unit propagation, or if the matrix is too large.
+     * @return the number of parity constraints used
+     */
+    int detectXors() {
+        if (!ok) {
+            return 0;
+        }
+        int[][] lits = new int[clauses.size()][];
+        for (int i = 0; i < lits.length; i++) {
+            lits[i] = clauses.get(i).lits;
+        }
+        List<int[]> constraints = GaussJordan.detect(lits, values, null);
+        boolean wide = false;
+        for (int[] constraint : constraints) {
+            wide |= constraint.length > 2;
+        }
+        boolean[] used = new boolean[variables];
+        int columns = 0;
+        for (int[] constraint : constraints) {
+            for (int lit : constraint) {
+                if (!used[lit >> 1]) {
+                    used[lit >> 1] = true;
+                    columns++;
+                }
+            }
+        }
+        if (!wide || (long) constraints.size() * ((columns + 63) >>> 6) > MAX_MATRIX_WORDS) {
+            return 0;
+        }
+        gauss = new GaussJordan(constraints, variables);
+        gaussPending = true;
+        ok = gauss.isConsistent() && propagate() == null;
+        return constraints.size();
+    }
+
+    /**
+     * @return {@code false} iff the clauses are unsatisfiable without any assumption
+     */
+    boolean isConsistent() {
+        return ok;
+    }
+
+    /**
+     * Returns the assumptions of the last search that, together with the clauses, were found to
+     * be unsatisfiable. It is empty when the clauses are unsatisfiable on their own.
+     * @return the DIMACS literals of the responsible assumptions
+     * @throws IllegalStateException if the last call to {@link #solve(int[])} found a model
+     */
+    int[] failedAssumptions() {
+        if (model != null) {
+            throw new IllegalStateException("the last search found a model");
+        }
+        int[] result = new int[failed.size()];
+        for (int i = 0; i < result.length; i++) {
+            int lit = failed.get(i);
+            result[i] = (lit & 1) == 0 ? (lit >> 1) + 1 : -((lit >> 1) + 1);
+        }
+        return result;
+    }
+
+    /**
+     * @return {@code true} iff the last search found a model
+     */
+    boolean hasModel() {
+        return model != null;
+    }
+
+    /**
+     * @param var a DIMACS variable
+     * @return the value of {@code var} in the last model found
+     * @throws IllegalStateException if the last call to {@link #solve()} did not find a model
+     */
+    boolean modelValue(int var) {
+        if (model == null) {
+            throw new IllegalStateException("no model available");
+        }
+        return var <= model.length && model[var - 1];
+    }
+
+    /**
+     * @return the number of conflicts found so far
+     */
+    long conflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return the number of decisions made so far
+     */
+    long decisions() {
+        return decisions;
+    }
+
+    /**
+     * @return the number of propagated assignments so far
+     */
+    long propagations() {
+        return propagations;
+    }
+
+    /* (non-javadoc)
+     * Runs the CDCL loop until a model is found, unsatisfiability is proved
+     * or the conflict budget is exhausted.
+     * @return 1 if satisfiable, -1 if unsatisfiable, 0 if the budget was exhausted
+     */
+    private int search(long conflictBudget) {
+        long restartConflicts = 0;
+        while (true) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                restartConflicts++;
+                conflicts++;
+                if (budget != null && (conflicts & (BUDGET_CONFLICTS - 1)) == 0 && budget.conflicts(BUDGET_CONFLICTS)) {
+                    interrupted = true;
+                }
+                if (decisionLevel == 0) {
+                    ok = false;
+                    return -1;
+                }
+                int backjump = analyze(conflict);
+                cancelUntil(backjump);
+                int[] lits = learnt.toArray();
+                if (exchange != null && lits.length <= ClauseExchange.MAX_LENGTH) {
+                    exchange.publish(worker, lits.clone());
+                }
+                if (lits.length == 1) {
+                    assign(lits[0], null);
+                } else {
+                    Clause c = new Clause(lits, true);
+                    learnts.add(c);
+                    attach(c);
+                    bumpClause(c);
+                    assign(lits[0], c);
+                }
+                varIncrement /= varDecay;
+                clauseIncrement /= CLAUSE_DECAY;
+            } else {
+                if (restartConflicts >= conflictBudget || interrupted) {
+                    return 0;
+                }
+                if (learnts.size() - trailSize >= maxLearnts) {
+                    reduceLearnts();
+                    maxLearnts *= 1.1;
+                }
+                int next = -1;
+                while (decisionLevel < assumptions.length && next < 0) {
+                    int p = assumptions[decisionLevel];
+                    if (values[p] == TRUE) {
+                        newDecisionLevel();
+                    } else if (values[p] == FALSE) {
+                        analyzeFinal(p);
+                        return -1;
+                    } else {
+                        next = p;
+                    }
+                }
+                if (next < 0) {
+                    int v = pickBranchVariable();
+                    if (v < 0) {
+                        model = new boolean[variables];
+                        for (int u = 0; u < variables; u++) {
+                            model[u] = values[2 * u] == TRUE;
+                        }
+                        return 1;
+                    }
+                    decisions++;
+                    if (budget != null && (decisions & (BUDGET_DECISIONS - 1)) == 0 && budget.check()) {
+                        interrupted = true;
+                    }
+                    next = decide(v) ? 2 * v : 2 * v + 1;
+                }
+                newDecisionLevel();
+                assign(next, null);
+            }
+        }
+    }
+
+    /* (non-javadoc)
+     * Assigns lit at a new decision level and propagates it, then undoes both.
+     * @return the number of propagated assignments, or -1 if there was a conflict
+     */
+    private int probe(int lit) {
+        int start = trailSize;
+        newDecisionLevel();
+        assign(lit, null);
+        boolean conflict = propagate() != null;
+        int count = trailSize - start;
+        cancelUntil(decisionLevel - 1);
+        return conflict ? -1 : count;
+    }
+
+    private void newDecisionLevel() {
+        if (decisionLevel == trailLimits.length) {
+            trailLimits = Arrays.copyOf(trailLimits, decisionLevel * 2);
+        }
+        trailLimits[decisionLevel++] = trailSize;
+    }
+
+    private void assign(int lit, Clause reason) {
+        int v = lit >> 1;
+        values[lit] = TRUE;
+        values[lit ^ 1] = FALSE;
+        levels[v] = decisionLevel;
+        reasons[v] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    private void attach(Clause c) {
+        watches[c.lits[0]].add(c, c.lits[1]);
+        watches[c.lits[1]].add(c, c.lits[0]);
+    }
+
+    /* (non-javadoc)
+     * Propagates all enqueued assignments through the clauses and the parity constraints, the
+     * implications of the parity constraints being assigned with the row they come from as reason.
+     * @return the conflicting clause, or null if there is no conflict
+     */
+    private Clause propagate() {
+        while (true) {
+            Clause conflict = propagateClauses();
+            if (conflict != null || !gaussPending) {
+                return conflict;
+            }
+            List<int[]> found = gauss.next(values);
+            if (found.isEmpty()) {
+                gaussPending = false;
+                return null;
+            }
+            for (int[] lits : found) {
+                Clause reason = new Clause(lits, false);
+                if (lits.length == 0 || values[lits[0]] == FALSE) {
+                    return reason;
+                }
+                assign(lits[0], reason);
+            }
+        }
+    }
+
+    /* (non-javadoc)
+     * Propagates all enqueued assignments through the clauses, noting when a variable of the
+     * parity constraints is assigned.
+     * @return the conflicting clause, or null if there is no conflict
+     */
+    private Clause propagateClauses() {
+        while (qhead < trailSize) {
+            int falseLit = trail[qhead++] ^ 1;
+            propagations++;
+            if (gauss != null && gauss.contains(falseLit >> 1)) {
+                gaussPending = true;
+            }
+            WatchList ws = watches[falseLit];
+            Clause[] cs = ws.clauses;
+            int[] bs = ws.blockers;
+            int n = ws.size;
+            int i = 0;
+            int j = 0;
+            while (i < n) {
+                int blocker = bs[i];
+                if (values[blocker] == TRUE) {
+                    cs[j] = cs[i];
+                    bs[j++] = blocker;
+                    i++;
+                    continue;
+                }
+                Clause c = cs[i++];
+                int[] lits = c.lits;
+                if (lits[0] == falseLit) {
+                    lits[0] = lits[1];
+                    lits[1] = falseLit;
+                }
+                int first = lits[0];
+                if (first != blocker && values[first] == TRUE) {
+                    cs[j] = c;
+                    bs[j++] = first;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < lits.length; k++) {
+                    if (values[lits[k]] != FALSE) {
+                        lits[1] = lits[k];
+                        lits[k] = falseLit;
+                        watches[lits[1]].add(c, first);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                cs[j] = c;
+                bs[j++] = first;
+                if (values[first] == FALSE) {
+                    while (i < n) {
+                        cs[j] = cs[i];
+                        bs[j++] = bs[i++];
+                    }
+                    ws.size = j;
+                    qhead = trailSize;
+                    return c;
+                }
+                assign(first, c);
+            }
+            ws.size = j;
+        }
+        return null;
+    }
+
+    /* (non-javadoc)
+     * First-UIP conflict analysis, leaves the learnt clause in learnt with the
+     * asserting literal first and a literal of the backjump level second.
+     * @return the backjump level
+     */
+    private int analyze(Clause conflict) {
+        learnt.clear();
+        learnt.add(-1);
+        int pathCount = 0;
+        int p = -1;
+        int index = trailSize - 1;
+        Clause c = conflict;
+        do {
+            if (c.learnt) {
+                bumpClause(c);
+            }
+            int[] lits = c.lits;
+            for (int k = p == -1 ? 0 : 1; k < lits.length; k++) {
+                int q = lits[k];
+                int v = q >> 1;
+                if (!seen[v] && levels[v] > 0) {
+                    bumpVariable(v);
+                    seen[v] = true;
+                    if (levels[v] >= decisionLevel) {
+                        pathCount++;
+                    } else {
+                        learnt.add(q);
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            p = trail[index--];
+            c = reasons[p >> 1];
+            seen[p >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt.set(0, p ^ 1);
+
+        toClear.clear();
+        for (int i = 1; i < learnt.size(); i++) {
+            toClear.add(learnt.get(i) >> 1);
+        }
+        int size = 1;
+        for (int i = 1; i < learnt.size(); i++) {
+            int q = learnt.get(i);
+            if (!isRedundant(q)) {
+                learnt.set(size++, q);
+            }
+        }
+        learnt.shrink(size);
+        for (int i = 0; i < toClear.size(); i++) {
+            seen[toClear.get(i)] = false;
+        }
+
+        if (learnt.size() == 1) {
+            return 0;
+        }
+        int max = 1;
+        for (int i = 2; i < learnt.size(); i++) {
+            if (levels[learnt.get(i) >> 1] > levels[learnt.get(max) >> 1]) {
+                max = i;
+            }
+        }
+        int swap = learnt.get(1);
+        learnt.set(1, learnt.get(max));
+        learnt.set(max, swap);
+        return levels[learnt.get(1) >> 1];
+    }
+
+    /* (non-javadoc)
+     * Collects into failed the assumption p, found false, and the assumptions its negation was
+     * implied from, walking the implication graph backwards on the trail.
+     */
+    private void analyzeFinal(int p) {
+        failed.add(p);
+        if (decisionLevel == 0) {
+            return;
+        }
+        seen[p >> 1] = true;
+        for (int i = trailSize - 1; i >= trailLimits[0]; i--) {
+            int v = trail[i] >> 1;
+            if (!seen[v]) {
+                continue;
+            }
+            Clause reason = reasons[v];
+            if (reason == null) {
+                failed.add(trail[i]);
+            } else {
+                for (int k = 1; k < reason.lits.length; k++) {
+                    if (levels[reason.lits[k] >> 1] > 0) {
+                        seen[reason.lits[k] >> 1] = true;
+                    }
+                }
+            }
+            seen[v] = false;
+        }
+        seen[p >> 1] = false;
+    }
+
+    /* (non-javadoc)
+     * A literal of the learnt clause is redundant when all the other literals
+     * of its reason are already in the clause or assigned at level 0.
+     */
+    private boolean isRedundant(int lit) {
+        Clause reason = reasons[lit >> 1];
+        if (reason == null) {
+            return false;
+        }
+        int[] lits = reason.lits;
+        for (int k = 1; k < lits.length; k++) {
+            int v = lits[k] >> 1;
+            if (!seen[v] && levels[v] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void cancelUntil(int level) {
+        if (decisionLevel <= level) {
+            return;
+        }
+        int limit = trailLimits[level];
+        for (int i = trailSize - 1; i >= limit; i--) {
+            int lit = trail[i];
+            int v = lit >> 1;
+            values[lit] = UNDEF;
+            values[lit ^ 1] = UNDEF;
+            reasons[v] = null;
+            phases[v] = (lit & 1) == 0;
+            if (heapIndex[v] < 0) {
+                heapInsert(v);
+            }
+        }
+        trailSize = limit;
+        qhead = limit;
+        decisionLevel = level;
+    }
+
+    /* (non-javadoc)
+     * The value given to the decision variable v according to the polarity.
+     */
+    private boolean decide(int v) {
+        switch (polarity) {
+            case NEGATIVE:
+                return false;
+            case POSITIVE:
+                return true;
+            case RANDOM:
+                return random.nextBoolean();
+            default:
+                return phases[v];
+        }
+    }
+
+    /* (non-javadoc)
+     * Adds the clauses learnt by the other solvers of the exchange since the last call, at level 0.
+     * Shared clauses are implied by the clauses all solvers were given, so they are added as learnt
+     * clauses, without the literals already false and unless one of them is already true.
+     */
+    private void importShared() {
+        if (exchange == null) {
+            return;
+        }
+        exchangeCursor = exchange.collect(worker, exchangeCursor, shared -> {
+            if (!ok) {
+                return;
+            }
+            int[] lits = new int[shared.length];
+            int size = 0;
+            for (int lit : shared) {
+                if (values[lit] == TRUE) {
+                    return;
+                }
+                if (values[lit] != FALSE) {
+                    lits[size++] = lit;
+                }
+            }
+            if (size == 0) {
+                ok = false;
+            } else if (size == 1) {
+                assign(lits[0], null);
+                ok = propagate() == null;
+            } else {
+                Clause c = new Clause(Arrays.copyOf(lits, size), true);
+                learnts.add(c);
+                attach(c);
+                bumpClause(c);
+            }
+        });
+    }
+
+    private int pickBranchVariable() {
+        if (randomFrequency > 0 && heapSize > 0 && random.nextDouble() < randomFrequency) {
+            int v = heap[random.nextInt(heapSize)];
+            if (values[2 * v] == UNDEF) {
+                return v;
+            }
+        }
+        while (heapSize > 0) {
+            int v = heapRemoveMax();
+            if (values[2 * v] == UNDEF) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    /* (non-javadoc)
+     * Removes the less active half of the learnt clauses, keeping binary clauses
+     * and clauses that are the reason of a current assignment.
+     */
+    private void reduceLearnts() {
+        learnts.sort((a, b) -> Double.compare(a.activity, b.activity));
+        int limit = learnts.size() / 2;
+        List<Clause> kept = new ArrayList<>(learnts.size() - limit);
+        for (int i = 0; i < learnts.size(); i++) {
+            Clause c = learnts.get(i);
+            boolean locked = reasons[c.lits[0] >> 1] == c && values[c.lits[0]] == TRUE;
+            if (i >= limit || locked || c.lits.length == 2) {
+                kept.add(c);
+            }
+        }
+        learnts.clear();
+        learnts.addAll(kept);
+        for (WatchList ws : watches) {
+            Arrays.fill(ws.clauses, 0, ws.size, null);
+            ws.size = 0;
+        }
+        for (Clause c : clauses) {
+            attach(c);
+        }
+        for (Clause c : learnts) {
+            attach(c);
+        }
+    }
+
+    private void bumpVariable(int v) {
+        activity[v] += varIncrement;
+        if (activity[v] > 1e100) {
+            for (int i = 0; i < variables; i++) {
+                activity[i] *= 1e-100;
+            }
+            varIncrement *= 1e-100;
+        }
+        if (heapIndex[v] >= 0) {
+            siftUp(heapIndex[v]);
+        }
+    }
+
+    private void bumpClause(Clause c) {
+        c.activity += clauseIncrement;
+        if (c.activity > 1e20) {
+            for (Clause l : learnts) {
+                l.activity *= 1e-20;
+            }
+            clauseIncrement *= 1e-20;
+        }
+    }
+
+    /* (non-javadoc)
+     * @return the i-th element of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     */
+    static long luby(int i) {
+        long size = 1;
+        int seq = 0;
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        long x = i;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            seq--;
+            x = x % size;
+        }
+        return 1L << seq;
+    }
+
+    private void heapInsert(int v) {
+        heapIndex[v] = heapSize;
+        heap[heapSize] = v;
+        siftUp(heapSize++);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[v]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[v]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+}
@@ -0,0 +1,102 @@
+package solver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lock-free buffer through which solvers working on the same clauses share the short clauses
+ * they learn.
+ *
+ * Published clauses are written to a ring of slots at a position reserved with a single atomic
+ * increment, and every reader keeps its own cursor. The exchange is lossy: a reader that falls
+ * more than a ring behind, or that reads a slot whose writer has not finished yet, skips the
+ * clauses it missed. Losing a shared clause only costs the work of learning it again.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> slots is not {@code null} and its length is a power of two</li>
+ *  <li> a slot holds either {@code null} or the last clause published at its position</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+final class ClauseExchange {
+
+    /**
+     * The maximum number of literals of a shared clause, longer clauses are rarely useful to other solvers
+     */
+    static final int MAX_LENGTH = 8;
+
+    /* (non-javadoc)
+     * A published clause with the sequence number it was published at and its publisher.
+     */
+    private static final class Entry {
+        final long sequence;
+        final int worker;
+        final int[] lits;
+
+        Entry(long sequence, int worker, int[] lits) {
+            this.sequence = sequence;
+            this.worker = worker;
+            this.lits = lits;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLong next = new AtomicLong();
+    private final int mask;
+
+    /**
+     * Constructs a new empty exchange
+     * @param capacity the number of clauses kept, rounded up to a power of two
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    ClauseExchange(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Publishes a clause
+     * @param worker the identifier of the publisher
+     * @param lits the literals of the clause, they must not be modified afterwards
+     */
+    void publish(int worker, int[] lits) {
+        long sequence = next.getAndIncrement();
+        slots.set((int) (sequence & mask), new Entry(sequence, worker, lits));
+    }
+
+    /**
+     * Passes the clauses published by other workers since a cursor to a consumer
+     * @param worker the identifier of the reader, its own clauses are skipped
+     * @param cursor the value returned by the previous call of the reader, {@code 0} for the first call
+     * @param consumer receives the literals of every clause, it must not modify them
+     * @return the cursor to pass to the next call
+     */
+    long collect(int worker, long cursor, Consumer<int[]> consumer) {
+        long end = next.get();
+        for (long sequence = Math.max(cursor, end - slots.length()); sequence < end; sequence++) {
+            Entry entry = slots.get((int) (sequence & mask));
+            if (entry != null && entry.sequence == sequence && entry.worker != worker) {
+                consumer.accept(entry.lits);
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        return slots != null && Integer.bitCount(slots.length()) == 1 && mask == slots.length() - 1;
+    }
+}
@@ -0,0 +1,200 @@
+package solver;
+
+import expressions.Cnf;
+import expressions.CnfEncoder;
+import expressions.CompiledExpression;
+import expressions.Expression;
+import expressions.IndexedInterpretation;
+import expressions.Interpretation;
+import expressions.SymbolTable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enumerates the interpretations under which an expression has a given value by splitting them
+ * into cubes, searched by work-stealing tasks on the common {@link ForkJoinPool}.
+ *
+ * A cube fixes the values of the variables with the highest indexes. Before a cube is split further,
+ * a CDCL search checks whether the expression can have the wanted value in it at all, in which case
+ * the whole cube is skipped, and whether it can have the other value, in which case every
+ * interpretation of the cube is produced without being evaluated. Only the cubes where the value of
+ * the expression really depends on the remaining variables are enumerated, once they are small
+ * enough, by evaluating the compiled expression.
+ *
+ * The interpretations are produced in the order of their index, as with a sequential enumeration.
+ * When a budget runs out, the cubes not yet enumerated are left out.
+ *
+ * @version 0.1
+ */
+final class CubeEnumerator {
+
+    /* (non-javadoc)
+     * Cubes with at most this many unassigned variables are enumerated directly.
+     */
+    private static final int LEAF_VARIABLES = 12;
+
+    /* (non-javadoc)
+     * The number of conflicts after which the check of a cube gives up and the cube is split.
+     */
+    private static final long CHECK_CONFLICTS = 1000;
+
+    /* (non-javadoc)
+     * The number of rows of a leaf after which the budget is checked again, a power of two.
+     */
+    private static final int CHECK_ROWS = 1024;
+
+    private final CompiledExpression program;
+    private final SymbolTable symbols;
+    private final int size;
+    private final boolean value;
+    private final Cnf wanted;
+    private final Cnf unwanted;
+    private final Map<Thread, CdclSolver[]> solvers = new ConcurrentHashMap<>();
+    private final LongAdder evaluations = new LongAdder();
+    private final Budget budget;
+
+    /**
+     * Constructs a new enumerator
+     * @param expression the expression to check
+     * @param value the value of {@code expression} under the interpretations to enumerate
+     */
+    CubeEnumerator(Expression expression, boolean value) {
+        this(expression, value, null);
+    }
+
+    /**
+     * Constructs a new enumerator spending a budget, which stops as soon as possible once the budget
+     * is exhausted with some of the interpretations
+     * @param expression the expression to check
+     * @param value the value of {@code expression} under the interpretations to enumerate
+     * @param budget the budget to spend, {@code null} for none
+     */
+    CubeEnumerator(Expression expression, boolean value, Budget budget) {
+        this.budget = budget;
+        this.program = CompiledExpression.compile(expression);
+        this.symbols = program.symbols();
+        this.size = symbols.size();
+        this.value = value;
+        Cnf positive = CnfEncoder.encode(expression);
+        Cnf negative = CnfEncoder.encode(expression.not(expression));
+        this.wanted = value ? positive : negative;
+        this.unwanted = value ? negative : positive;
+    }
+
+    /**
+     * @return all interpretations of the variables of the expression under which it has the value,
+     * in the order of their index
+     */
+    List<Interpretation> enumerate() {
+        long[] words = new long[Math.max(1, (size + 63) >>> 6)];
+        return ForkJoinPool.commonPool().invoke(new Cube(words, size, false));
+    }
+
+    /**
+     * Adds the work of the enumeration to a trace: the searches of all threads and the evaluations of the leaves
+     */
+    void report(Trace trace) {
+        for (CdclSolver[] pair : solvers.values()) {
+            trace.search(pair[0]);
+            trace.search(pair[1]);
+        }
+        trace.evaluations(evaluations.sum());
+    }
+
+    /* (non-javadoc)
+     * The interpretations whose variables free and above have the values of words.
+     * When all is set, the expression is known to have the value under all of them.
+     */
+    private final class Cube extends RecursiveTask<List<Interpretation>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] words;
+        private final int free;
+        private final boolean all;
+
+        Cube(long[] words, int free, boolean all) {
+            this.words = words;
+            this.free = free;
+            this.all = all;
+        }
+
+        @Override
+        protected List<Interpretation> compute() {
+            if (budget != null && budget.check()) {
+                return Collections.emptyList();
+            }
+            boolean whole = all;
+            if (!whole) {
+                CdclSolver[] pair = solvers.computeIfAbsent(Thread.currentThread(), thread -> newSolvers());
+                int[] cube = literals();
+                if (pair[0].run(cube, CHECK_CONFLICTS) < 0) {
+                    return Collections.emptyList();
+                }
+                whole = pair[1].run(cube, CHECK_CONFLICTS) < 0;
+            }
+            if (free <= LEAF_VARIABLES) {
+                return leaf(whole);
+            }
+            int split = free - 1;
+            long[] high = words.clone();
+            high[split >>> 6] |= 1L << (split & 63);
+            Cube right = new Cube(high, split, whole);
+            right.fork();
+            List<Interpretation> result = new Cube(words, split, whole).compute();
+            List<Interpretation> rest = right.join();
+            if (result.isEmpty()) {
+                return rest;
+            }
+            result.addAll(rest);
+            return result;
+        }
+
+        private CdclSolver[] newSolvers() {
+            CdclSolver[] pair = {new CdclSolver(wanted), new CdclSolver(unwanted)};
+            pair[0].limit(budget);
+            pair[1].limit(budget);
+            return pair;
+        }
+
+        private int[] literals() {
+            int[] cube = new int[size - free];
+            for (int i = free; i < size; i++) {
+                boolean set = (words[i >>> 6] >>> (i & 63) & 1) != 0;
+                cube[i - free] = set ? i + 1 : -(i + 1);
+            }
+            return cube;
+        }
+
+        private List<Interpretation> leaf(boolean whole) {
+            List<Interpretation> result = new ArrayList<>();
+            if (!whole) {
+                if (budget != null && budget.evaluations(1L << free)) {
+                    return result;
+                }
+                evaluations.add(1L << free);
+            }
+            long[] row = words.clone();
+            long base = words[0];
+            for (long index = 0; index < 1L << free; index++) {
+                if (budget != null && (index & CHECK_ROWS - 1) == CHECK_ROWS - 1 && budget.check()) {
+                    break;
+                }
+                row[0] = base | index;
+                if (whole || (size <= 64 ? program.evaluate(row[0]) : program.evaluate(row)) == value) {
+                    if (budget != null && budget.interpretations(1, size) == 0) {
+                        break;
+                    }
+                    result.add(new IndexedInterpretation(symbols, row).toInterpretation());
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package solver;
+
+import expressions.Cnf;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decides a formula by cube-and-conquer: the search space is divided into cubes, i.e.: conjunctions
+ * of literals, which are searched independently by work-stealing tasks on a {@link ForkJoinPool}.
+ *
+ * Cubes are split on the variable chosen by a lookahead (see {@link CdclSolver#lookahead}), which
+ * also adds to both halves the literals it finds implied. The first levels are split eagerly so that
+ * every thread of the pool gets work, then each cube is searched for a bounded number of conflicts
+ * and split again if it is not decided by then, so hard regions of the search space are divided
+ * further while easy ones are not. The search stops as soon as a cube is satisfiable or the formula
+ * is found to be unsatisfiable regardless of the cube.
+ *
+ * Every thread of the pool has its own CDCL engine, loaded once and reused for all the cubes the
+ * thread searches. Learnt clauses do not depend on the cube, so they are kept from one cube to the
+ * next and short ones are shared between the threads through a {@link ClauseExchange}.
+ *
+ * @version 0.1
+ */
+final class CubeSolver {
+
+    /* (non-javadoc)
+     * The number of unassigned variables the lookahead scores before choosing one.
+     */
+    private static final int LOOKAHEAD_CANDIDATES = 64;
+
+    /* (non-javadoc)
+     * The number of conflicts a cube is searched for before it is split again.
+     */
+    private static final long CUBE_CONFLICTS = 2000;
+
+    /* (non-javadoc)
+     * The number of eager splitting levels added to log2 of the parallelism, so that there are
+     * several cubes per thread to balance.
+     */
+    private static final int EXTRA_LEVELS = 3;
+
+    private static final int EXCHANGE_CAPACITY = 1 << 14;
+
+    private final Cnf cnf;
+    private final ForkJoinPool pool;
+    private final int[] candidates;
+    private final int eagerLevels;
+    private final ClauseExchange exchange = new ClauseExchange(EXCHANGE_CAPACITY);
+    private final AtomicInteger workers = new AtomicInteger();
+    private final Map<Thread, CdclSolver> solvers = new ConcurrentHashMap<>();
+    private final AtomicReference<boolean[]> model = new AtomicReference<>();
+    private volatile boolean refuted;
+
+    /**
+     * Constructs a new cube solver
+     * @param cnf the formula to decide
+     * @param pool the pool searching the cubes
+     * @throws IllegalArgumentException if {@code cnf} or {@code pool} is {@code null}
+     */
+    CubeSolver(Cnf cnf, ForkJoinPool pool) {
+        if (cnf == null || pool == null) {
+            throw new IllegalArgumentException("cnf and pool cannot be null");
+        }
+        this.cnf = cnf;
+        this.pool = pool;
+        this.candidates = byOccurrences(cnf);
+        this.eagerLevels = 32 - Integer.numberOfLeadingZeros(pool.getParallelism() - 1) + EXTRA_LEVELS;
+    }
+
+    /**
+     * Searches all cubes until one of them is satisfiable or all of them are not
+     * @return {@code true} iff the formula is satisfiable, in which case the model is available
+     * through {@link #modelValue(int)}
+     */
+    boolean solve() {
+        try {
+            pool.invoke(new Cube(new int[0], 0));
+        } finally {
+            stop();
+        }
+        return model.get() != null;
+    }
+
+    /**
+     * @param var a DIMACS variable
+     * @return the value of {@code var} in the model found
+     * @throws IllegalStateException if the last call to {@link #solve()} did not find a model
+     */
+    boolean modelValue(int var) {
+        boolean[] values = model.get();
+        if (values == null) {
+            throw new IllegalStateException("no model available");
+        }
+        return var < values.length && values[var];
+    }
+
+    /* (non-javadoc)
+     * A cube to search, satisfiable iff one of the cubes it is split into is.
+     */
+    private final class Cube extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] literals;
+        private final int level;
+
+        Cube(int[] literals, int level) {
+            this.literals = literals;
+            this.level = level;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (isDone()) {
+                return false;
+            }
+            CdclSolver solver = solvers.computeIfAbsent(Thread.currentThread(), thread -> newSolver());
+            if (level >= eagerLevels) {
+                int status = solver.run(literals, CUBE_CONFLICTS);
+                if (status > 0) {
+                    found(solver);
+                    return true;
+                }
+                if (status < 0) {
+                    if (!solver.isConsistent()) {
+                        refuted = true;
+                        stop();
+                    }
+                    return false;
+                }
+                if (isDone()) {
+                    return false;
+                }
+            }
+            IntVec implied = new IntVec();
+            int split = solver.lookahead(literals, candidates, LOOKAHEAD_CANDIDATES, implied);
+            if (split < 0) {
+                return false;
+            }
+            int[] base = Arrays.copyOf(literals, literals.length + implied.size() + 1);
+            for (int i = 0; i < implied.size(); i++) {
+                base[literals.length + i] = implied.get(i);
+            }
+            if (split == 0) {
+                base = Arrays.copyOf(base, base.length - 1);
+                if (solver.run(base) > 0) {
+                    found(solver);
+                    return true;
+                }
+                return false;
+            }
+            int[] positive = base.clone();
+            base[base.length - 1] = -split;
+            positive[positive.length - 1] = split;
+            Cube right = new Cube(base, level + 1);
+            right.fork();
+            if (new Cube(positive, level + 1).compute()) {
+                return true;
+            }
+            return right.join();
+        }
+    }
+
+    /* (non-javadoc)
+     * Checked before every cube, so that a solver created after stop() still searches at most one
+     * bounded cube.
+     */
+    private boolean isDone() {
+        return refuted || model.get() != null;
+    }
+
+    private void found(CdclSolver solver) {
+        boolean[] values = new boolean[cnf.variableCount() + 1];
+        for (int v = 1; v <= cnf.variableCount(); v++) {
+            values[v] = solver.modelValue(v);
+        }
+        if (model.compareAndSet(null, values)) {
+            stop();
+        }
+    }
+
+    /* (non-javadoc)
+     * Interrupts the searches of all threads, the cubes not started yet return at once.
+     */
+    private void stop() {
+        for (CdclSolver solver : solvers.values()) {
+            solver.interrupt();
+        }
+    }
+
+    private CdclSolver newSolver() {
+        CdclSolver solver = new CdclSolver();
+        solver.share(exchange, workers.getAndIncrement());
+        solver.addClauses(cnf);
+        return solver;
+    }
+
+    /* (non-javadoc)
+     * The variables of a formula, the ones occurring in more clauses first.
+     */
+    private static int[] byOccurrences(Cnf cnf) {
+        int n = cnf.variableCount();
+        int[] occurrences = new int[n + 1];
+        for (int lit : cnf.literals()) {
+            occurrences[Math.abs(lit)]++;
+        }
+        Integer[] order = new Integer[n];
+        for (int v = 1; v <= n; v++) {
+            order[v - 1] = v;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(occurrences[b], occurrences[a]));
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+}
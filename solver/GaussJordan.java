@@ -0,0 +1,527 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Gauss-Jordan elimination engine reasoning on parity constraints alongside the unit propagation
+ * of a {@link CdclSolver}.
+ *
+ * Every constraint {@code x1 xor ... xor xk = parity} is a row of a matrix over {@code GF(2)}, with one
+ * bit per variable packed in longs, kept in reduced row echelon form: every row has a basic variable
+ * that occurs in no other row. Under a partial assignment, a row whose basic variable is assigned
+ * trades it for an unassigned variable of the row, which is eliminated from the other rows, as in the
+ * simplex method. Once every row with unassigned variables has an unassigned basic variable, a row with
+ * a single unassigned variable implies its value, a row with none either holds or is a conflict, and no
+ * other value is implied by the constraints: propagation is complete for them, so a parity problem
+ * is decided in polynomial time instead of the exponentially many resolution steps its clauses need.
+ *
+ * Pivoting replaces rows by sums of rows, which are implied by the constraints, so the matrix does not
+ * need to be restored when the search backtracks. The reason of an implication or a conflict is the
+ * row it comes from, as the clause of its assigned variables with their values negated.
+ *
+ * Variables and literals are numbered as inside {@link CdclSolver}: variable {@code v} has the literals
+ * {@code 2v} (positive) and {@code 2v + 1} (negative).
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> variables, columns, rows, parities and basics are not {@code null}</li>
+ *  <li> {@code columns[variables[c]] == c} for every column {@code c}</li>
+ *  <li> the basic column of every row is set in it and in no other row</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+final class GaussJordan {
+
+    /* (non-javadoc)
+     * Parity constraints are recovered from clauses of at most MAX_XOR_VARIABLES variables.
+     */
+    private static final int MAX_XOR_VARIABLES = 6;
+
+    private final int[] variables;
+    private final int[] columns;
+    private final int words;
+    private long[][] rows;
+    private boolean[] parities;
+    private int[] basics;
+    private int size;
+    private boolean consistent = true;
+
+    /* (non-javadoc)
+     * The assigned columns and the columns assigned true, refreshed by next and updated with the values it implies.
+     */
+    private final long[] assigned;
+    private final long[] trueValues;
+
+    /**
+     * Constructs a new engine, eliminating the constraints into reduced row echelon form
+     * @param constraints the constraints, each one a list of literals whose exclusive or is {@code true}
+     * @param variableCount the number of variables of the solver
+     */
+    GaussJordan(List<int[]> constraints, int variableCount) {
+        this.columns = new int[variableCount];
+        Arrays.fill(columns, -1);
+        int count = 0;
+        for (int[] constraint : constraints) {
+            for (int lit : constraint) {
+                if (columns[lit >> 1] < 0) {
+                    columns[lit >> 1] = count++;
+                }
+            }
+        }
+        this.variables = new int[count];
+        for (int v = 0; v < variableCount; v++) {
+            if (columns[v] >= 0) {
+                variables[columns[v]] = v;
+            }
+        }
+        this.words = Math.max(1, (count + 63) >>> 6);
+        this.assigned = new long[words];
+        this.trueValues = new long[words];
+        this.rows = new long[constraints.size()][];
+        this.parities = new boolean[constraints.size()];
+        this.basics = new int[constraints.size()];
+        for (int[] constraint : constraints) {
+            long[] row = new long[words];
+            boolean parity = true;
+            for (int lit : constraint) {
+                int c = columns[lit >> 1];
+                row[c >>> 6] ^= 1L << c;
+                parity ^= (lit & 1) != 0;
+            }
+            rows[size] = row;
+            parities[size++] = parity;
+        }
+        eliminate();
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return {@code false} iff the constraints were found to have no solution, whatever the assignment
+     */
+    boolean isConsistent() {
+        return consistent;
+    }
+
+    /**
+     * @return the number of independent constraints
+     */
+    int rowCount() {
+        return size;
+    }
+
+    /**
+     * @return the number of words of the matrix
+     */
+    long matrixWords() {
+        return (long) size * words;
+    }
+
+    /**
+     * @param var a variable
+     * @return {@code true} iff {@code var} occurs in a constraint
+     */
+    boolean contains(int var) {
+        return var < columns.length && columns[var] >= 0;
+    }
+
+    /**
+     * Finds the values implied by the constraints under an assignment, and a constraint it violates if any.
+     * The values are found in a single pass, each one counting as assigned to find the next ones, so their
+     * reasons only have literals assigned before them when they are assigned in order.
+     * @param values the value of every literal, positive when true, negative when false, {@code 0} when unassigned
+     * @return the reasons of the implied literals, each one coming first in its reason, in the order they
+     * must be assigned, followed by the conflicting clause, whose literals are all false once the implied
+     * literals are assigned, if there is one; empty if nothing is implied
+     */
+    List<int[]> next(byte[] values) {
+        List<int[]> found = new ArrayList<>();
+        if (!consistent) {
+            found.add(new int[0]);
+            return found;
+        }
+        Arrays.fill(assigned, 0);
+        Arrays.fill(trueValues, 0);
+        for (int c = 0; c < variables.length; c++) {
+            byte value = values[2 * variables[c]];
+            if (value != 0) {
+                assigned[c >>> 6] |= 1L << c;
+                if (value > 0) {
+                    trueValues[c >>> 6] |= 1L << c;
+                }
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < size; r++) {
+                long[] row = rows[r];
+                int basic = basics[r];
+                int free = -1;
+                int freeCount = 0;
+                for (int w = 0; w < words && freeCount < 2; w++) {
+                    long unassigned = row[w] & ~assigned[w];
+                    if (unassigned != 0) {
+                        free = free < 0 ? w << 6 | Long.numberOfTrailingZeros(unassigned) : free;
+                        freeCount += Long.bitCount(unassigned) > 1 ? 2 : 1;
+                    }
+                }
+                if ((assigned[basic >>> 6] & 1L << basic) != 0 && free >= 0) {
+                    pivot(r, free);
+                    changed = true;
+                    basic = free;
+                }
+                if (freeCount == 0) {
+                    if (parity(row) != parities[r]) {
+                        found.add(reason(row, -1));
+                        return found;
+                    }
+                } else if (freeCount == 1) {
+                    boolean value = parity(row) != parities[r];
+                    found.add(reason(row, value ? 2 * variables[basic] : 2 * variables[basic] + 1));
+                    assigned[basic >>> 6] |= 1L << basic;
+                    if (value) {
+                        trueValues[basic >>> 6] |= 1L << basic;
+                    }
+                    changed = true;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Recovers the parity constraints encoded by clauses under an assignment.
+     * The constraint {@code x1 xor ... xor xk} is encoded by the {@code 2^(k-1)} clauses over
+     * {@code x1, ..., xk} with an even number of negated literals, and its negation by those with
+     * an odd number, which are looked for among the clauses of at most {@code 6} variables left
+     * once the assigned values are taken into account.
+     * @param clauses the clauses, with literals numbered as inside {@link CdclSolver}
+     * @param values the value of every literal, positive when true, negative when false, {@code 0} when unassigned
+     * @param constraintOf receives for every clause the index of the constraint it encodes in the result,
+     * or {@code -1} if it encodes none, unless it is {@code null}
+     * @return the constraints, each one a list of literals whose exclusive or is {@code true}
+     */
+    static List<int[]> detect(int[][] clauses, byte[] values, int[] constraintOf) {
+        if (constraintOf != null) {
+            Arrays.fill(constraintOf, -1);
+        }
+        long[] keys = new long[clauses.length];
+        int count = 0;
+        for (int i = 0; i < clauses.length; i++) {
+            int size = 0;
+            int hash = 0;
+            for (int lit : clauses[i]) {
+                if (values[lit] > 0) {
+                    size = -1;
+                    break;
+                }
+                if (values[lit] == 0) {
+                    size++;
+                    hash += (lit >> 1) * 0x9e3779b1;
+                }
+            }
+            if (size >= 2 && size <= MAX_XOR_VARIABLES) {
+                keys[count++] = (long) (8 * (hash ^ hash >>> 16) + size) << 32 | i;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        List<int[]> constraints = new ArrayList<>();
+        for (int start = 0, end = 0; start < count; start = end) {
+            while (end < count && keys[end] >>> 32 == keys[start] >>> 32) {
+                end++;
+            }
+            if (end - start < 1 << ((keys[start] >>> 32 & 7) - 1)) {
+                continue;
+            }
+            int[][] candidates = new int[end - start][];
+            for (int i = start; i < end; i++) {
+                candidates[i - start] = unassignedLiterals(clauses[(int) keys[i]], values);
+            }
+            boolean[] grouped = new boolean[candidates.length];
+            int[] masks = new int[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                if (grouped[i]) {
+                    continue;
+                }
+                int[] first = candidates[i];
+                long present = 0;
+                for (int j = i; j < candidates.length; j++) {
+                    int[] other = candidates[j];
+                    if (!grouped[j] && sameVariables(first, other)) {
+                        grouped[j] = true;
+                        for (int k = 0; k < other.length; k++) {
+                            masks[j] |= (other[k] & 1) << k;
+                        }
+                        present |= 1L << masks[j];
+                    }
+                }
+                long even = 0;
+                long odd = 0;
+                for (int mask = 0; mask < 1 << first.length; mask++) {
+                    if ((Integer.bitCount(mask) & 1) == 0) {
+                        even |= 1L << mask;
+                    } else {
+                        odd |= 1L << mask;
+                    }
+                }
+                int evenIndex = -1;
+                int oddIndex = -1;
+                int[] constraint = new int[first.length];
+                for (int k = 0; k < first.length; k++) {
+                    constraint[k] = first[k] & ~1;
+                }
+                if ((present & even) == even) {
+                    evenIndex = constraints.size();
+                    constraints.add(constraint);
+                }
+                if ((present & odd) == odd) {
+                    constraint = constraint.clone();
+                    constraint[0] |= 1;
+                    oddIndex = constraints.size();
+                    constraints.add(constraint);
+                }
+                for (int j = i; j < candidates.length && constraintOf != null; j++) {
+                    if (masks[j] >= 0 && sameVariables(first, candidates[j])) {
+                        constraintOf[(int) keys[start + j]] = (Integer.bitCount(masks[j]) & 1) == 0 ? evenIndex : oddIndex;
+                        masks[j] = -1;
+                    }
+                }
+            }
+        }
+        return constraints;
+    }
+
+    /**
+     * Computes the rank of parity constraints by Gaussian elimination on sparse rows, each one the
+     * sorted list of its variables, which fits systems far larger than the matrix of an engine when,
+     * as for the constraints of chains of exclusive ors, eliminating a variable fills in few rows
+     * @param constraints the constraints, each one a list of literals whose exclusive or is {@code true}
+     * @param variableCount the number of variables of the literals
+     * @return the number of independent constraints, or {@code -1} if the constraints have no solution
+     */
+    static int rank(List<int[]> constraints, int variableCount) {
+        int[][] rows = new int[constraints.size()][];
+        boolean[] parities = new boolean[rows.length];
+        IntVec[] occurrences = new IntVec[variableCount];
+        for (int r = 0; r < rows.length; r++) {
+            int[] constraint = constraints.get(r);
+            int[] vars = new int[constraint.length];
+            boolean parity = true;
+            for (int k = 0; k < constraint.length; k++) {
+                vars[k] = constraint[k] >> 1;
+                parity ^= (constraint[k] & 1) != 0;
+            }
+            Arrays.sort(vars);
+            rows[r] = sum(vars, new int[0]);
+            parities[r] = parity;
+            for (int v : rows[r]) {
+                if (occurrences[v] == null) {
+                    occurrences[v] = new IntVec();
+                }
+                occurrences[v].add(r);
+            }
+        }
+        int rank = 0;
+        for (int r = 0; r < rows.length; r++) {
+            int[] row = rows[r];
+            if (row.length == 0) {
+                if (parities[r]) {
+                    return -1;
+                }
+                continue;
+            }
+            int pivot = row[0];
+            for (int v : row) {
+                if (occurrences[v].size() < occurrences[pivot].size()) {
+                    pivot = v;
+                }
+            }
+            IntVec rowsOfPivot = occurrences[pivot];
+            for (int i = 0; i < rowsOfPivot.size(); i++) {
+                int other = rowsOfPivot.get(i);
+                if (other > r && Arrays.binarySearch(rows[other], pivot) >= 0) {
+                    for (int v : row) {
+                        if (Arrays.binarySearch(rows[other], v) < 0) {
+                            occurrences[v].add(other);
+                        }
+                    }
+                    rows[other] = sum(rows[other], row);
+                    parities[other] ^= parities[r];
+                }
+            }
+            rank++;
+        }
+        return rank;
+    }
+
+    /* (non-javadoc)
+     * The variables in exactly one of two sorted lists, a list being allowed to repeat a variable.
+     */
+    private static int[] sum(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int v = j == b.length || i < a.length && a[i] < b[j] ? a[i++] : b[j++];
+            if (size > 0 && result[size - 1] == v) {
+                size--;
+            } else {
+                result[size++] = v;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /* (non-javadoc)
+     * The sorted unassigned literals of a clause.
+     */
+    private static int[] unassignedLiterals(int[] clause, byte[] values) {
+        int[] lits = new int[clause.length];
+        int size = 0;
+        for (int lit : clause) {
+            if (values[lit] == 0) {
+                lits[size++] = lit;
+            }
+        }
+        lits = Arrays.copyOf(lits, size);
+        Arrays.sort(lits);
+        return lits;
+    }
+
+    /* (non-javadoc)
+     * Whether two clauses with sorted literals have the same variables.
+     */
+    private static boolean sameVariables(int[] a, int[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int k = 0; k < a.length; k++) {
+            if (a[k] >> 1 != b[k] >> 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* (non-javadoc)
+     * Reduces the rows to reduced row echelon form, dropping the rows that become empty.
+     */
+    private void eliminate() {
+        for (int r = 0; r < size; r++) {
+            long[] row = rows[r];
+            int pivot = -1;
+            for (int w = 0; w < words && pivot < 0; w++) {
+                if (row[w] != 0) {
+                    pivot = w << 6 | Long.numberOfTrailingZeros(row[w]);
+                }
+            }
+            basics[r] = pivot;
+            if (pivot < 0) {
+                consistent &= !parities[r];
+            } else {
+                pivot(r, pivot);
+            }
+        }
+        int kept = 0;
+        for (int r = 0; r < size; r++) {
+            if (basics[r] >= 0) {
+                rows[kept] = rows[r];
+                parities[kept] = parities[r];
+                basics[kept++] = basics[r];
+            }
+        }
+        size = kept;
+        rows = Arrays.copyOf(rows, kept);
+        parities = Arrays.copyOf(parities, kept);
+        basics = Arrays.copyOf(basics, kept);
+    }
+
+    /* (non-javadoc)
+     * Makes column the basic variable of row r, eliminating it from the other rows.
+     */
+    private void pivot(int r, int column) {
+        long bit = 1L << column;
+        for (int other = 0; other < size; other++) {
+            if (other != r && (rows[other][column >>> 6] & bit) != 0) {
+                add(other, rows[r], parities[r]);
+            }
+        }
+        basics[r] = column;
+    }
+
+    /* (non-javadoc)
+     * Adds row, whose parity is parity, to row r.
+     */
+    private void add(int r, long[] row, boolean parity) {
+        long[] target = rows[r];
+        for (int w = 0; w < words; w++) {
+            target[w] ^= row[w];
+        }
+        parities[r] ^= parity;
+    }
+
+    /* (non-javadoc)
+     * The exclusive or of the values of the assigned true variables of row.
+     */
+    private boolean parity(long[] row) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(row[w] & trueValues[w]);
+        }
+        return (count & 1) != 0;
+    }
+
+    /* (non-javadoc)
+     * The clause of the assigned variables of row with their values negated, after implied unless it is -1.
+     */
+    private int[] reason(long[] row, int implied) {
+        int count = implied < 0 ? 0 : 1;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(row[w] & assigned[w]);
+        }
+        int[] lits = new int[count];
+        int size = 0;
+        if (implied >= 0) {
+            lits[size++] = implied;
+        }
+        for (int w = 0; w < words; w++) {
+            long bits = row[w] & assigned[w];
+            while (bits != 0) {
+                int c = w << 6 | Long.numberOfTrailingZeros(bits);
+                lits[size++] = (trueValues[w] & Long.lowestOneBit(bits)) != 0 ? 2 * variables[c] + 1 : 2 * variables[c];
+                bits &= bits - 1;
+            }
+        }
+        return lits;
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        if (variables == null || columns == null || rows == null || parities == null || basics == null) {
+            return false;
+        }
+        for (int c = 0; c < variables.length; c++) {
+            if (columns[variables[c]] != c) {
+                return false;
+            }
+        }
+        for (int r = 0; r < size; r++) {
+            int basic = basics[r];
+            for (int other = 0; other < size; other++) {
+                if (((rows[other][basic >>> 6] & 1L << basic) != 0) != (other == r)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of primitive {@code int} values, used by the search engines
+ * to avoid boxing on their hot paths.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> data is not {@code null}</li>
+ *  <li> {@code 0 <= size <= data.length}</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+final class IntVec {
+
+    private int[] data;
+    private int size;
+
+    /**
+     * Constructs a new empty vector
+     */
+    IntVec() {
+        this.data = new int[16];
+    }
+
+    void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    int get(int index) {
+        return data[index];
+    }
+
+    void set(int index, int value) {
+        data[index] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Keeps only the first {@code newSize} elements
+     * @param newSize the new size, must not be greater than the current size
+     */
+    void shrink(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * @return a copy of the elements of this vector
+     */
+    int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        return data != null && size >= 0 && size <= data.length;
+    }
+}
@@ -0,0 +1,113 @@
+package solver;
+
+import expressions.IndexedInterpretation;
+import expressions.Interpretation;
+import expressions.SymbolTable;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A lazy spliterator over a range of interpretations.
+ * Interpretation number {@code i} assigns {@code true} to the {@code k}-th variable iff
+ * bit {@code k} of {@code i} is set. Interpretations are only created when they are
+ * consumed, and splitting halves the remaining index range, so parallel streams get
+ * evenly balanced work and memory use does not depend on the number of interpretations.
+ *
+ * Only the lowest {@code 62} bits are enumerated by a single spliterator, higher bits are
+ * given as a fixed prefix (see {@link SatSolver#interpretations(expressions.Expression)}).
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> symbols and prefix are not {@code null}</li>
+ *  <li> {@code 0 <= origin <= fence}</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+final class InterpretationSpliterator implements Spliterator<Interpretation> {
+
+    /**
+     * The number of low bits enumerated by a single spliterator
+     */
+    static final int INDEX_BITS = 62;
+
+    private final SymbolTable symbols;
+    private final long[] prefix;
+    private long origin;
+    private final long fence;
+
+    /**
+     * Constructs a new spliterator
+     * @param symbols the variables to assign
+     * @param prefix the words of the interpretation index above bit {@link #INDEX_BITS}, starting at word {@code 0}
+     * whose lowest {@code 62} bits are ignored
+     * @param origin the first index, inclusive
+     * @param fence the last index, exclusive
+     */
+    InterpretationSpliterator(SymbolTable symbols, long[] prefix, long origin, long fence) {
+        this.symbols = symbols;
+        this.prefix = prefix;
+        this.origin = origin;
+        this.fence = fence;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Interpretation> action) {
+        if (origin >= fence) {
+            return false;
+        }
+        action.accept(interpretation(origin++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Interpretation> action) {
+        long end = fence;
+        for (long i = origin; i < end; i++) {
+            action.accept(interpretation(i));
+        }
+        origin = end;
+    }
+
+    @Override
+    public Spliterator<Interpretation> trySplit() {
+        long middle = origin + (fence - origin) / 2;
+        if (middle <= origin) {
+            return null;
+        }
+        Spliterator<Interpretation> low = new InterpretationSpliterator(symbols, prefix, origin, middle);
+        origin = middle;
+        return low;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL | DISTINCT;
+    }
+
+    private Interpretation interpretation(long index) {
+        long[] words = prefix.clone();
+        if (words.length == 0) {
+            words = new long[] {index};
+        } else {
+            words[0] |= index;
+        }
+        return new IndexedInterpretation(symbols, words).toInterpretation();
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        return symbols != null && prefix != null && 0 <= origin && origin <= fence;
+    }
+}
@@ -0,0 +1,603 @@
+package solver;
+
+import expressions.Cnf;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An exact model counter for formulas in conjunctive normal form.
+ *
+ * The counter is a DPLL search with unit propagation that, after every decision, splits the clauses
+ * that are not satisfied yet into connected components, i.e.: groups of clauses that share no
+ * unassigned variable. Components are counted independently and their counts multiplied, unassigned
+ * variables that no longer occur in any clause contribute a factor of {@code 2} each, and the count
+ * of every component is cached, so independent parts of a formula are never enumerated together
+ * and a component met again in another branch is not counted twice.
+ *
+ * A component is identified by its unassigned variables and the indices of its clauses, which
+ * together determine exactly which literals remain in each clause. A component whose clauses all
+ * encode parity constraints, as recovered by {@link GaussJordan#detect(int[][], byte[], int[])}, is
+ * counted without branching: a consistent system of {@code r} independent constraints over {@code k}
+ * variables has {@code 2^(k-r)} solutions, so chains of exclusive ors, which need exponentially many
+ * branches, are counted in polynomial time. The search keeps its pending
+ * products and branches on an explicit stack, so it does not recurse however many decisions deep it goes.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> clauses, occurrences, named, values, trail, position, score, distance, queue, parities,
+ *  parityOf and counted are not {@code null}</li>
+ *  <li> values has an entry for every variable, {@code 0} for unassigned ones</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+final class ModelCounter {
+
+    /* (non-javadoc)
+     * The component cache is cleared when it reaches this many entries, or when its keys reach
+     * this many variables and clause indices in total.
+     */
+    private static final int MAX_CACHE_ENTRIES = 1 << 20;
+    private static final long MAX_CACHE_SIZE = 1L << 24;
+
+    private final int variableCount;
+    private final int[][] clauses;
+    private final int[][] occurrences;
+    private final boolean[] named;
+    private final byte[] values;
+    private final int[] trail;
+    private int trailSize;
+    private final int[] position;
+    private final int[] score;
+    private final int[] distance;
+    private final int[] queue;
+    private final Map<ComponentKey, BigInteger> cache = new HashMap<>();
+
+    /* (non-javadoc)
+     * The parity constraints encoded by the clauses, with literals numbered as inside CdclSolver,
+     * the index of the constraint every clause encodes or -1, and the constraints taken by parityCount.
+     */
+    private final List<int[]> parities;
+    private final int[] parityOf;
+    private final boolean[] counted;
+    private long cacheSize;
+    private long decisions;
+
+    /**
+     * Constructs a new counter
+     * @param cnf the formula whose models are counted
+     * @throws IllegalArgumentException if {@code cnf} is {@code null}
+     */
+    ModelCounter(Cnf cnf) {
+        if (cnf == null) {
+            throw new IllegalArgumentException("cnf cannot be null");
+        }
+        this.variableCount = cnf.variableCount();
+        this.clauses = new int[cnf.clauseCount()][];
+        int[] literals = cnf.literals();
+        int[] occurrenceCount = new int[2 * variableCount + 2];
+        int start = 0;
+        int index = 0;
+        for (int i = 0; i < literals.length; i++) {
+            if (literals[i] == 0) {
+                clauses[index++] = Arrays.copyOfRange(literals, start, i);
+                start = i + 1;
+            } else {
+                occurrenceCount[code(literals[i])]++;
+            }
+        }
+        this.occurrences = new int[occurrenceCount.length][];
+        for (int lit = 0; lit < occurrences.length; lit++) {
+            occurrences[lit] = new int[occurrenceCount[lit]];
+        }
+        Arrays.fill(occurrenceCount, 0);
+        for (int c = 0; c < clauses.length; c++) {
+            for (int lit : clauses[c]) {
+                occurrences[code(lit)][occurrenceCount[code(lit)]++] = c;
+            }
+        }
+        this.named = new boolean[variableCount + 1];
+        for (int v = 1; v <= variableCount; v++) {
+            named[v] = cnf.variableName(v) != null;
+        }
+        this.values = new byte[variableCount + 1];
+        this.trail = new int[variableCount];
+        this.position = new int[variableCount + 1];
+        this.score = new int[variableCount + 1];
+        this.distance = new int[variableCount + 1];
+        Arrays.fill(distance, -1);
+        this.queue = new int[variableCount];
+        int[][] encoded = new int[clauses.length][];
+        for (int c = 0; c < clauses.length; c++) {
+            encoded[c] = new int[clauses[c].length];
+            for (int i = 0; i < clauses[c].length; i++) {
+                encoded[c][i] = code(clauses[c][i]);
+            }
+        }
+        this.parityOf = new int[clauses.length];
+        this.parities = GaussJordan.detect(encoded, new byte[2 * variableCount + 2], parityOf);
+        this.counted = new boolean[parities.size()];
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Counts the models of the formula.
+     * Auxiliary variables, i.e.: variables without a name, that occur in no clause are not part of
+     * the formula and are not counted.
+     * @return the number of assignments of the variables of the formula that satisfy it
+     */
+    BigInteger count() {
+        trailSize = 0;
+        decisions = 0;
+        Arrays.fill(values, (byte) 0);
+        for (int[] clause : clauses) {
+            if (clause.length == 0) {
+                return BigInteger.ZERO;
+            }
+        }
+        for (int[] clause : clauses) {
+            if (clause.length == 1 && !assign(clause[0])) {
+                return BigInteger.ZERO;
+            }
+        }
+        int[] allClauses = new int[clauses.length];
+        for (int c = 0; c < clauses.length; c++) {
+            allClauses[c] = c;
+        }
+        IntVec counted = new IntVec();
+        for (int v = 1; v <= variableCount; v++) {
+            if (named[v] || occurrences[code(v)].length > 0 || occurrences[code(-v)].length > 0) {
+                counted.add(v);
+            }
+        }
+        return countResidual(allClauses, counted.toArray());
+    }
+
+    /**
+     * @return the number of decisions made by the last count
+     */
+    long decisions() {
+        return decisions;
+    }
+
+    /* (non-javadoc)
+     * Counts the assignments of the unassigned variables among vars satisfying the clauses that
+     * are not satisfied yet among clauseIds. The search runs on an explicit stack of frames instead
+     * of recursing once per decision, so it is as deep as the formula needs without growing the
+     * call stack: a product multiplies the counts of the components of a residual formula, and a
+     * branch adds the counts of the residual formulas left by both values of a variable of a component.
+     */
+    private BigInteger countResidual(int[] clauseIds, int[] vars) {
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(split(clauseIds, vars));
+        BigInteger returned = null;
+        while (true) {
+            Object top = stack.peek();
+            if (top instanceof Product) {
+                Product product = (Product) top;
+                if (returned != null) {
+                    product.result = returned.signum() == 0 ? BigInteger.ZERO : product.result.multiply(returned);
+                    product.next = returned.signum() == 0 ? product.clauseIds.length : product.next;
+                    returned = null;
+                }
+                if (product.next == product.clauseIds.length) {
+                    stack.pop();
+                    if (stack.isEmpty()) {
+                        return product.result;
+                    }
+                    returned = product.result;
+                    continue;
+                }
+                ComponentKey key = new ComponentKey(product.vars[product.next], product.clauseIds[product.next]);
+                product.vars[product.next] = null;
+                product.clauseIds[product.next++] = null;
+                returned = cache.get(key);
+                if (returned == null) {
+                    returned = parityCount(key.clauseIds, key.vars);
+                }
+                if (returned == null) {
+                    stack.push(new Branch(key, branchVariable(key.clauseIds, key.vars)));
+                }
+            } else {
+                Branch branch = (Branch) top;
+                if (returned != null) {
+                    branch.total = branch.total.add(returned);
+                    returned = null;
+                    undo(branch.mark);
+                }
+                if (branch.next == 2) {
+                    stack.pop();
+                    if (cache.size() >= MAX_CACHE_ENTRIES || cacheSize + branch.key.size() > MAX_CACHE_SIZE) {
+                        cache.clear();
+                        cacheSize = 0;
+                    }
+                    cache.put(branch.key, branch.total);
+                    cacheSize += branch.key.size();
+                    returned = branch.total;
+                    continue;
+                }
+                int lit = branch.next++ == 0 ? branch.variable : -branch.variable;
+                decisions++;
+                branch.mark = trailSize;
+                if (assign(lit)) {
+                    stack.push(split(branch.key.clauseIds, branch.key.vars));
+                } else {
+                    undo(branch.mark);
+                }
+            }
+        }
+    }
+
+    /* (non-javadoc)
+     * Splits the clauses that are not satisfied yet among clauseIds into connected components of the
+     * unassigned variables among vars, the product of their counts starting with a factor of 2 for
+     * every unassigned variable in none of them.
+     */
+    private Product split(int[] clauseIds, int[] vars) {
+        int[] parent = new int[vars.length];
+        int[] size = new int[vars.length];
+        int free = 0;
+        for (int i = 0; i < vars.length; i++) {
+            parent[i] = i;
+            size[i] = 1;
+            position[vars[i]] = i;
+        }
+        IntVec active = new IntVec();
+        for (int c : clauseIds) {
+            if (isSatisfied(clauses[c])) {
+                continue;
+            }
+            active.add(c);
+            int first = -1;
+            for (int lit : clauses[c]) {
+                if (values[Math.abs(lit)] == 0) {
+                    int root = find(parent, position[Math.abs(lit)]);
+                    if (first < 0) {
+                        first = root;
+                    } else if (root != first) {
+                        if (size[root] > size[first]) {
+                            int swap = root;
+                            root = first;
+                            first = swap;
+                        }
+                        parent[root] = first;
+                        size[first] += size[root];
+                    }
+                }
+            }
+        }
+        boolean[] constrained = new boolean[vars.length];
+        int[] component = new int[vars.length];
+        Arrays.fill(component, -1);
+        List<IntVec> componentClauses = new ArrayList<>();
+        for (int i = 0; i < active.size(); i++) {
+            int c = active.get(i);
+            int root = -1;
+            for (int lit : clauses[c]) {
+                if (values[Math.abs(lit)] == 0) {
+                    int p = position[Math.abs(lit)];
+                    constrained[p] = true;
+                    root = find(parent, p);
+                }
+            }
+            if (component[root] < 0) {
+                component[root] = componentClauses.size();
+                componentClauses.add(new IntVec());
+            }
+            componentClauses.get(component[root]).add(c);
+        }
+        IntVec[] componentVariables = new IntVec[componentClauses.size()];
+        for (int i = 0; i < vars.length; i++) {
+            if (values[vars[i]] != 0) {
+                continue;
+            }
+            if (!constrained[i]) {
+                free++;
+            } else {
+                int k = component[find(parent, i)];
+                if (componentVariables[k] == null) {
+                    componentVariables[k] = new IntVec();
+                }
+                componentVariables[k].add(vars[i]);
+            }
+        }
+        int[][] ids = new int[componentClauses.size()][];
+        int[][] componentVars = new int[ids.length][];
+        for (int k = 0; k < ids.length; k++) {
+            ids[k] = componentClauses.get(k).toArray();
+            componentVars[k] = componentVariables[k].toArray();
+        }
+        return new Product(ids, componentVars, BigInteger.ONE.shiftLeft(free));
+    }
+
+    /* (non-javadoc)
+     * The count of a component whose clauses all encode parity constraints: 2^(k-r) for its k variables
+     * and the rank r of what the constraints become under the assignment, or 0 if they have no solution.
+     * @return the count, or null if a clause of the component encodes no parity constraint
+     */
+    private BigInteger parityCount(int[] clauseIds, int[] vars) {
+        for (int c : clauseIds) {
+            if (parityOf[c] < 0) {
+                return null;
+            }
+        }
+        List<int[]> constraints = new ArrayList<>();
+        boolean consistent = true;
+        for (int c : clauseIds) {
+            if (counted[parityOf[c]]) {
+                continue;
+            }
+            counted[parityOf[c]] = true;
+            int[] constraint = parities.get(parityOf[c]);
+            IntVec lits = new IntVec();
+            boolean flip = false;
+            for (int lit : constraint) {
+                int value = values[lit >> 1];
+                if (value == 0) {
+                    lits.add(lit);
+                } else {
+                    flip ^= (value > 0) != ((lit & 1) != 0);
+                }
+            }
+            int[] residual = lits.toArray();
+            if (residual.length == 0) {
+                consistent &= flip;
+            } else {
+                residual[0] ^= flip ? 1 : 0;
+                constraints.add(residual);
+            }
+        }
+        for (int c : clauseIds) {
+            counted[parityOf[c]] = false;
+        }
+        int rank = consistent ? GaussJordan.rank(constraints, variableCount + 1) : -1;
+        return rank < 0 ? BigInteger.ZERO : BigInteger.ONE.shiftLeft(vars.length - rank);
+    }
+
+    /* (non-javadoc)
+     * The most frequent variable of a connected component, whose clauses are all unsatisfied and
+     * have an unassigned literal. Among equally frequent variables, the one closest to the middle of
+     * the component is chosen: halfway along a longest shortest path found by two breadth-first
+     * searches. A chain of implications is then split in halves, as deep as the logarithm of its
+     * length, instead of being peeled one variable per decision.
+     */
+    private int branchVariable(int[] clauseIds, int[] vars) {
+        for (int c : clauseIds) {
+            for (int lit : clauses[c]) {
+                score[Math.abs(lit)]++;
+            }
+        }
+        int branch = vars[0];
+        int ties = 0;
+        for (int v : vars) {
+            if (score[v] > score[branch]) {
+                branch = v;
+                ties = 1;
+            } else if (score[v] == score[branch]) {
+                ties++;
+            }
+        }
+        if (ties > 1) {
+            int reached = reach(branch);
+            int farthest = queue[reached - 1];
+            clearDistances(reached);
+            reached = reach(farthest);
+            int half = distance[queue[reached - 1]] / 2;
+            for (int v : vars) {
+                if (score[v] == score[branch] && Math.abs(distance[v] - half) < Math.abs(distance[branch] - half)) {
+                    branch = v;
+                }
+            }
+            clearDistances(reached);
+        }
+        for (int c : clauseIds) {
+            for (int lit : clauses[c]) {
+                score[Math.abs(lit)] = 0;
+            }
+        }
+        return branch;
+    }
+
+    /* (non-javadoc)
+     * Breadth-first search of the unassigned variables connected to from by unsatisfied clauses,
+     * which are left in queue in the order they are reached, with their distance to from in distance.
+     * @return the number of variables reached, the last one being one of the farthest from from
+     */
+    private int reach(int from) {
+        int size = 0;
+        distance[from] = 0;
+        queue[size++] = from;
+        for (int head = 0; head < size; head++) {
+            int v = queue[head];
+            for (int lit : new int[] {v, -v}) {
+                for (int c : occurrences[code(lit)]) {
+                    if (isSatisfied(clauses[c])) {
+                        continue;
+                    }
+                    for (int other : clauses[c]) {
+                        int w = Math.abs(other);
+                        if (values[w] == 0 && distance[w] < 0) {
+                            distance[w] = distance[v] + 1;
+                            queue[size++] = w;
+                        }
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private void clearDistances(int size) {
+        for (int i = 0; i < size; i++) {
+            distance[queue[i]] = -1;
+        }
+    }
+
+    /* (non-javadoc)
+     * Assigns a literal and propagates units.
+     * @return false iff a clause became falsified, the trail then holds the partial propagation
+     */
+    private boolean assign(int lit) {
+        int head = trailSize;
+        if (!enqueue(lit)) {
+            return false;
+        }
+        while (head < trailSize) {
+            int assigned = trail[head++];
+            for (int c : occurrences[code(-assigned)]) {
+                int[] clause = clauses[c];
+                int unassigned = 0;
+                int unit = 0;
+                boolean satisfied = false;
+                for (int l : clause) {
+                    int value = valueOf(l);
+                    if (value > 0) {
+                        satisfied = true;
+                        break;
+                    }
+                    if (value == 0) {
+                        unassigned++;
+                        unit = l;
+                    }
+                }
+                if (satisfied) {
+                    continue;
+                }
+                if (unassigned == 0 || (unassigned == 1 && !enqueue(unit))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean enqueue(int lit) {
+        int value = valueOf(lit);
+        if (value != 0) {
+            return value > 0;
+        }
+        values[Math.abs(lit)] = (byte) (lit > 0 ? 1 : -1);
+        trail[trailSize++] = lit;
+        return true;
+    }
+
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            values[Math.abs(trail[--trailSize])] = 0;
+        }
+    }
+
+    private int valueOf(int lit) {
+        int value = values[Math.abs(lit)];
+        return lit > 0 ? value : -value;
+    }
+
+    private boolean isSatisfied(int[] clause) {
+        for (int lit : clause) {
+            if (valueOf(lit) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static int code(int lit) {
+        return lit > 0 ? 2 * lit : -2 * lit + 1;
+    }
+
+    /* (non-javadoc)
+     * A frame of the search multiplying the counts of the components of a residual formula, each one
+     * given by its clause indices and its variables until the first next are counted or being counted.
+     */
+    private static final class Product {
+
+        private final int[][] clauseIds;
+        private final int[][] vars;
+        private int next;
+        private BigInteger result;
+
+        private Product(int[][] clauseIds, int[][] vars, BigInteger result) {
+            this.clauseIds = clauseIds;
+            this.vars = vars;
+            this.result = result;
+        }
+    }
+
+    /* (non-javadoc)
+     * A frame of the search counting the component of key by branching on one of its variables,
+     * whose first next values are tried, the last one from the trail size mark.
+     */
+    private static final class Branch {
+
+        private final ComponentKey key;
+        private final int variable;
+        private int next;
+        private int mark;
+        private BigInteger total = BigInteger.ZERO;
+
+        private Branch(ComponentKey key, int variable) {
+            this.key = key;
+            this.variable = variable;
+        }
+    }
+
+    /* (non-javadoc)
+     * The identity of a component in the cache: its variables and clause indices, sorted in place,
+     * which the search then reads from the key instead of keeping copies.
+     */
+    private static final class ComponentKey {
+
+        private final int[] vars;
+        private final int[] clauseIds;
+        private final int hash;
+
+        private ComponentKey(int[] vars, int[] clauseIds) {
+            Arrays.sort(vars);
+            Arrays.sort(clauseIds);
+            this.vars = vars;
+            this.clauseIds = clauseIds;
+            this.hash = 31 * Arrays.hashCode(vars) + Arrays.hashCode(clauseIds);
+        }
+
+        private int size() {
+            return vars.length + clauseIds.length;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ComponentKey && Arrays.equals(vars, ((ComponentKey) obj).vars)
+                && Arrays.equals(clauseIds, ((ComponentKey) obj).clauseIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        return clauses != null && occurrences != null && named != null && values != null && trail != null
+            && position != null && score != null && distance != null && queue != null && parities != null
+            && parityOf != null && counted != null && values.length == variableCount + 1;
+    }
+}
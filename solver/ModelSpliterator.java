@@ -0,0 +1,170 @@
+package solver;
+
+import expressions.CnfEncoder;
+import expressions.Expression;
+import expressions.IndexedInterpretation;
+import expressions.Interpretation;
+import expressions.SymbolTable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A lazy spliterator over the interpretations under which an expression has a given value, found
+ * one at a time by an incremental CDCL search. Every interpretation found is excluded from the next
+ * searches by a blocking clause, so the search only runs when the next interpretation is consumed:
+ * a consumer that stops early, or falls behind, never pays for the interpretations it does not take.
+ *
+ * When cubes are wanted, every interpretation found is first shrunk to a cube: a partial interpretation
+ * under which the expression has the value whatever the values of the variables it leaves out. The
+ * cube is the set of assumptions that a second search, over the clauses of the other value, finds
+ * responsible for them being unsatisfiable under the interpretation. A literal of the interpretation
+ * is added back to the cube for every previous cube it would otherwise overlap, and the cube is
+ * blocked instead of the interpretation, so the cubes produced are disjoint and together cover every
+ * interpretation exactly once. The cubes produced so far are kept, as two bits per variable.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> symbols and search are not {@code null}</li>
+ *  <li> {@code size == symbols.size()}</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+final class ModelSpliterator implements Spliterator<Interpretation> {
+
+    private final SymbolTable symbols;
+    private final int size;
+    private final CdclSolver search;
+    private final CdclSolver check;
+    private final List<long[]> cubeMasks = new ArrayList<>();
+    private final List<long[]> cubeValues = new ArrayList<>();
+    private boolean done;
+
+    /**
+     * Constructs a new spliterator
+     * @param expression the expression to check
+     * @param value the value of {@code expression} under the interpretations to produce
+     * @param cubes {@code true} to produce partial interpretations, {@code false} to produce
+     * interpretations of all the variables of {@code expression}
+     */
+    ModelSpliterator(Expression expression, boolean value, boolean cubes) {
+        Expression negation = expression.not(expression);
+        this.symbols = SymbolTable.of(expression);
+        this.size = symbols.size();
+        this.search = new CdclSolver(CnfEncoder.encode(value ? expression : negation));
+        this.check = cubes ? new CdclSolver(CnfEncoder.encode(value ? negation : expression)) : null;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Interpretation> action) {
+        if (done || !search.solve()) {
+            done = true;
+            return false;
+        }
+        int[] lits = new int[size];
+        for (int v = 1; v <= size; v++) {
+            lits[v - 1] = search.modelValue(v) ? v : -v;
+        }
+        if (check != null) {
+            lits = disjoint(check.run(lits) < 0 ? check.failedAssumptions() : lits, lits);
+        }
+        IndexedInterpretation interpretation = new IndexedInterpretation(symbols);
+        int[] blocking = new int[lits.length];
+        for (int i = 0; i < lits.length; i++) {
+            interpretation.set(Math.abs(lits[i]) - 1, lits[i] > 0);
+            blocking[i] = -lits[i];
+        }
+        done = !search.addClause(blocking);
+        action.accept(interpretation.toInterpretation());
+        return true;
+    }
+
+    /* (non-javadoc)
+     * Extends a cube of the model with a literal of the model contradicting every previous cube
+     * the cube does not contradict yet, the model being outside of all of them, and records it.
+     */
+    private int[] disjoint(int[] cube, int[] model) {
+        int words = (size + 63) >>> 6;
+        long[] mask = new long[words];
+        long[] values = new long[words];
+        long[] modelValues = new long[words];
+        for (int lit : cube) {
+            int index = Math.abs(lit) - 1;
+            mask[index >>> 6] |= 1L << index;
+        }
+        for (int lit : model) {
+            if (lit > 0) {
+                modelValues[(lit - 1) >>> 6] |= 1L << (lit - 1);
+            }
+        }
+        for (int w = 0; w < words; w++) {
+            values[w] = modelValues[w] & mask[w];
+        }
+        for (int i = 0; i < cubeMasks.size(); i++) {
+            long[] otherMask = cubeMasks.get(i);
+            long[] otherValues = cubeValues.get(i);
+            if (!contradicts(mask, values, otherMask, otherValues)) {
+                int w = 0;
+                while (((modelValues[w] ^ otherValues[w]) & otherMask[w]) == 0) {
+                    w++;
+                }
+                long bit = Long.lowestOneBit((modelValues[w] ^ otherValues[w]) & otherMask[w]);
+                mask[w] |= bit;
+                values[w] |= modelValues[w] & bit;
+            }
+        }
+        cubeMasks.add(mask);
+        cubeValues.add(values);
+        int count = 0;
+        for (long word : mask) {
+            count += Long.bitCount(word);
+        }
+        int[] result = new int[count];
+        for (int v = 1, i = 0; v <= size; v++) {
+            if ((mask[(v - 1) >>> 6] & 1L << (v - 1)) != 0) {
+                result[i++] = model[v - 1];
+            }
+        }
+        return result;
+    }
+
+    /* (non-javadoc)
+     * Whether two cubes assign a variable different values.
+     */
+    private static boolean contradicts(long[] mask, long[] values, long[] otherMask, long[] otherValues) {
+        for (int w = 0; w < mask.length; w++) {
+            if ((mask[w] & otherMask[w] & (values[w] ^ otherValues[w])) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<Interpretation> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return done ? 0 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | DISTINCT;
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        return symbols != null && search != null && size == symbols.size();
+    }
+}
@@ -0,0 +1,25 @@
+package solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JDK Flight Recorder event of a phase of a query of {@link SatSolver}, committed when a recording
+ * enables it, whether measuring is enabled with {@link SolverMetrics#enable()} or not.
+ *
+ * @version 0.1
+ */
+@Name("solver.Phase")
+@Label("Solver Phase")
+@Category("Solver")
+@Description("A phase of a query of SatSolver")
+final class PhaseEvent extends jdk.jfr.Event {
+
+    @Label("Query")
+    String query;
+
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,134 @@
+package solver;
+
+import expressions.Cnf;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decides a formula by racing several differently configured CDCL engines on a fixed thread pool.
+ *
+ * Every worker loads its own copy of the clauses and searches with its own seed, decision polarity,
+ * restart policy, activity decay and frequency of random decisions. The first worker keeps the
+ * configuration of the sequential solver, so the portfolio is not slower than it apart from the
+ * cost of the threads. Workers share their short learnt clauses through a {@link ClauseExchange}
+ * and the first one to finish interrupts all the others.
+ *
+ * Diversification pays off mostly on hard satisfiable formulas, where one configuration often finds
+ * a model long before the others. Unsatisfiable formulas benefit from the shared clauses.
+ *
+ * @version 0.1
+ */
+final class PortfolioSolver {
+
+    private static final int EXCHANGE_CAPACITY = 1 << 14;
+
+    private static final CdclSolver.Polarity[] POLARITIES = {
+        CdclSolver.Polarity.SAVED, CdclSolver.Polarity.NEGATIVE, CdclSolver.Polarity.SAVED,
+        CdclSolver.Polarity.POSITIVE, CdclSolver.Polarity.SAVED, CdclSolver.Polarity.RANDOM
+    };
+    private static final double[] DECAYS = {0.95, 0.85, 0.99, 0.75};
+
+    private final Cnf cnf;
+    private final int workers;
+    private CdclSolver winner;
+
+    /**
+     * Constructs a new portfolio
+     * @param cnf the formula to decide
+     * @param workers the number of workers, and of threads
+     * @throws IllegalArgumentException if {@code cnf} is {@code null} or {@code workers} is not positive
+     */
+    PortfolioSolver(Cnf cnf, int workers) {
+        if (cnf == null) {
+            throw new IllegalArgumentException("cnf cannot be null");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        this.cnf = cnf;
+        this.workers = workers;
+    }
+
+    /**
+     * Runs all workers until one of them decides the formula
+     * @return {@code true} iff the formula is satisfiable, in which case the model is available
+     * through {@link #modelValue(int)}
+     */
+    boolean solve() {
+        ExecutorService pool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "portfolio-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ClauseExchange exchange = new ClauseExchange(EXCHANGE_CAPACITY);
+        CdclSolver[] solvers = new CdclSolver[workers];
+        CompletionService<CdclSolver> race = new ExecutorCompletionService<>(pool);
+        try {
+            for (int i = 0; i < workers; i++) {
+                solvers[i] = configure(new CdclSolver(), i);
+                solvers[i].share(exchange, i);
+                CdclSolver solver = solvers[i];
+                race.submit(() -> {
+                    solver.addClauses(cnf);
+                    return solver.run(new int[0]) != 0 ? solver : null;
+                });
+            }
+            RuntimeException failure = null;
+            for (int i = 0; i < workers; i++) {
+                try {
+                    CdclSolver finished = race.take().get();
+                    if (finished != null) {
+                        winner = finished;
+                        return finished.hasModel();
+                    }
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new IllegalStateException("a portfolio worker failed", e.getCause());
+                    }
+                }
+            }
+            throw failure != null ? failure : new IllegalStateException("all portfolio workers were interrupted");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the portfolio", e);
+        } finally {
+            for (CdclSolver solver : solvers) {
+                if (solver != null) {
+                    solver.interrupt();
+                }
+            }
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param var a DIMACS variable
+     * @return the value of {@code var} in the model found by the winning worker
+     * @throws IllegalStateException if the last call to {@link #solve()} did not find a model
+     */
+    boolean modelValue(int var) {
+        if (winner == null) {
+            throw new IllegalStateException("no model available");
+        }
+        return winner.modelValue(var);
+    }
+
+    /* (non-javadoc)
+     * The configuration of the i-th worker, worker 0 is the sequential solver and the others cycle
+     * through the combinations of polarities, restart policies and decays with their own seed.
+     */
+    private static CdclSolver configure(CdclSolver solver, int i) {
+        if (i == 0) {
+            return solver;
+        }
+        solver.setSeed(i);
+        solver.setPolarity(POLARITIES[i % POLARITIES.length]);
+        solver.setRestartPolicy(i % 2 == 0 ? CdclSolver.RestartPolicy.LUBY : CdclSolver.RestartPolicy.GEOMETRIC);
+        solver.setVariableDecay(DECAYS[i % DECAYS.length]);
+        solver.setRandomFrequency(i % 3 == 0 ? 0.02 : 0);
+        return solver;
+    }
+}
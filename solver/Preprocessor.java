@@ -0,0 +1,532 @@
+package solver;
+
+import expressions.Cnf;
+import expressions.Interpretation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Simplifies a formula in conjunctive normal form before it is searched, and maps the models of the
+ * simplified formula back to models of the formula.
+ *
+ * The formula is simplified by:
+ * <ul>
+ *  <li> removing repeated literals and tautological clauses</li>
+ *  <li> unit propagation: the literal of a unit clause is fixed, the clauses it satisfies are removed
+ *  and its negation is removed from the others</li>
+ *  <li> pure literal elimination: a literal whose negation occurs nowhere is fixed</li>
+ *  <li> subsumption: a clause containing all literals of another one is removed</li>
+ *  <li> bounded variable elimination: the clauses of a variable are replaced by all their resolvents
+ *  on it when there are not more of them, as in SatELite</li>
+ * </ul>
+ *
+ * The simplified formula has the same variables as the formula, but the fixed and eliminated
+ * variables no longer occur in it. It is satisfiable iff the formula is, and {@link #extend(boolean[])}
+ * turns any of its models into a model of the formula: the clauses removed with a variable are kept
+ * on a stack, together with the literal that satisfies them, and are satisfied again from the last
+ * to the first.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> cnf, simplified and stack are not {@code null}</li>
+ *  <li> simplified has the variables of cnf</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class Preprocessor {
+
+    /* (non-javadoc)
+     * A variable is only eliminated when it occurs in at most this many clauses, and when none of
+     * its resolvents is longer than MAX_RESOLVENT, which keeps the elimination cheap.
+     */
+    private static final int MAX_OCCURRENCES = 24;
+    private static final int MAX_RESOLVENT = 20;
+
+    /* (non-javadoc)
+     * The number of rounds of pure literal and variable elimination.
+     */
+    private static final int ROUNDS = 3;
+
+    private final Cnf cnf;
+    private final int variableCount;
+    private final List<int[]> clauses = new ArrayList<>();
+    private final IntVec[] occurrences;
+    private final byte[] values;
+    private final IntVec units = new IntVec();
+    private final boolean[] eliminated;
+    private boolean unsatisfiable;
+    private int fixedCount;
+    private int eliminatedCount;
+
+    /* (non-javadoc)
+     * The removed clauses needed to extend a model, each one followed by its witness, the literal
+     * to make true when the clause is not satisfied, and by its length.
+     */
+    private final IntVec stack = new IntVec();
+
+    private final Cnf simplified;
+
+    private Preprocessor(Cnf cnf) {
+        this.cnf = cnf;
+        this.variableCount = cnf.variableCount();
+        this.values = new byte[variableCount + 1];
+        this.eliminated = new boolean[variableCount + 1];
+        this.occurrences = new IntVec[2 * variableCount + 2];
+        for (int i = 0; i < occurrences.length; i++) {
+            occurrences[i] = new IntVec();
+        }
+        load();
+        propagate();
+        for (int round = 0; round < ROUNDS && !unsatisfiable; round++) {
+            subsume();
+            if (!eliminate()) {
+                break;
+            }
+        }
+        this.simplified = build();
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Simplifies a formula
+     * @param cnf the formula to simplify
+     * @return the preprocessor holding the simplified formula
+     * @throws IllegalArgumentException if {@code cnf} is {@code null}
+     */
+    public static Preprocessor of(Cnf cnf) {
+        if (cnf == null) {
+            throw new IllegalArgumentException("cnf cannot be null");
+        }
+        return new Preprocessor(cnf);
+    }
+
+    /**
+     * @return the simplified formula, with the variables of the formula, which is satisfiable iff the formula is
+     */
+    public Cnf simplified() {
+        return simplified;
+    }
+
+    /**
+     * @return {@code true} if the simplification proved the formula unsatisfiable, in which case the
+     * simplified formula is the empty clause
+     */
+    public boolean isUnsatisfiable() {
+        return unsatisfiable;
+    }
+
+    /**
+     * @return the number of variables fixed by unit propagation and pure literal elimination
+     */
+    public int fixedCount() {
+        return fixedCount;
+    }
+
+    /**
+     * @return the number of variables removed by bounded variable elimination
+     */
+    public int eliminatedCount() {
+        return eliminatedCount;
+    }
+
+    /**
+     * Maps a model of the simplified formula to a model of the formula
+     * @param model the values of the variables of the simplified formula, indexed by variable, index
+     * {@code 0} being unused, satisfying it
+     * @return a new array with the values of the variables of the formula, indexed the same way,
+     * satisfying it
+     * @throws IllegalArgumentException if {@code model} is {@code null} or has not {@code variableCount + 1} entries
+     */
+    public boolean[] extend(boolean[] model) {
+        if (model == null || model.length != variableCount + 1) {
+            throw new IllegalArgumentException("model must have an entry for every variable");
+        }
+        boolean[] result = model.clone();
+        int end = stack.size();
+        while (end > 0) {
+            int length = stack.get(end - 1);
+            int witness = stack.get(end - 2);
+            int start = end - 2 - length;
+            boolean satisfied = false;
+            for (int i = start; i < end - 2 && !satisfied; i++) {
+                int lit = stack.get(i);
+                satisfied = result[Math.abs(lit)] == lit > 0;
+            }
+            if (!satisfied) {
+                result[Math.abs(witness)] = witness > 0;
+            }
+            end = start;
+        }
+        return result;
+    }
+
+    /**
+     * Maps a model of the simplified formula to an interpretation of the named variables of the formula
+     * @param model the values of the variables of the simplified formula, see {@link #extend(boolean[])}
+     * @return an interpretation of all variables of the formula with a name, satisfying it
+     * @throws IllegalArgumentException if {@code model} is {@code null} or has not {@code variableCount + 1} entries
+     */
+    public Interpretation interpretation(boolean[] model) {
+        boolean[] values = extend(model);
+        Interpretation interpretation = new Interpretation();
+        for (int v = 1; v <= variableCount; v++) {
+            String name = cnf.variableName(v);
+            if (name != null) {
+                interpretation.add(name, values[v]);
+            }
+        }
+        return interpretation;
+    }
+
+    private static int index(int lit) {
+        return lit > 0 ? 2 * lit : -2 * lit + 1;
+    }
+
+    private byte value(int lit) {
+        byte value = values[Math.abs(lit)];
+        return lit > 0 ? value : (byte) -value;
+    }
+
+    /* (non-javadoc)
+     * Adds the clauses of the formula without repeated literals and tautologies.
+     */
+    private void load() {
+        int[] lits = cnf.literals();
+        int start = 0;
+        for (int i = 0; i < lits.length && !unsatisfiable; i++) {
+            if (lits[i] == 0) {
+                int[] clause = normalize(Arrays.copyOfRange(lits, start, i));
+                if (clause != null) {
+                    add(clause);
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    /* (non-javadoc)
+     * Sorts a clause by variable and removes its repeated literals.
+     * @return the clause, or null if it is a tautology
+     */
+    private static int[] normalize(int[] clause) {
+        int[] sorted = clause.clone();
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = index(sorted[i]);
+        }
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size > 0 && sorted[size - 1] == sorted[i]) {
+                continue;
+            }
+            if (size > 0 && sorted[size - 1] >>> 1 == sorted[i] >>> 1) {
+                return null;
+            }
+            sorted[size++] = sorted[i];
+        }
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = (sorted[i] & 1) == 0 ? sorted[i] >>> 1 : -(sorted[i] >>> 1);
+        }
+        return result;
+    }
+
+    private void add(int[] clause) {
+        if (clause.length == 0) {
+            unsatisfiable = true;
+            return;
+        }
+        if (clause.length == 1) {
+            units.add(clause[0]);
+            return;
+        }
+        int id = clauses.size();
+        clauses.add(clause);
+        for (int lit : clause) {
+            occurrences[index(lit)].add(id);
+        }
+    }
+
+    /* (non-javadoc)
+     * Fixes the queued unit literals and the ones they imply.
+     */
+    private void propagate() {
+        for (int next = 0; next < units.size() && !unsatisfiable; next++) {
+            fix(units.get(next));
+        }
+        units.clear();
+    }
+
+    private void fix(int lit) {
+        byte value = value(lit);
+        if (value < 0) {
+            unsatisfiable = true;
+            return;
+        }
+        if (value > 0) {
+            return;
+        }
+        values[Math.abs(lit)] = (byte) (lit > 0 ? 1 : -1);
+        fixedCount++;
+        push(new int[] {lit}, lit);
+        IntVec satisfied = occurrences[index(lit)];
+        for (int i = 0; i < satisfied.size(); i++) {
+            clauses.set(satisfied.get(i), null);
+        }
+        satisfied.clear();
+        IntVec falsified = occurrences[index(-lit)];
+        for (int i = 0; i < falsified.size() && !unsatisfiable; i++) {
+            int id = falsified.get(i);
+            int[] clause = clauses.get(id);
+            if (clause == null || !contains(clause, -lit)) {
+                continue;
+            }
+            int[] strengthened = new int[clause.length - 1];
+            int size = 0;
+            for (int other : clause) {
+                if (other != -lit) {
+                    strengthened[size++] = other;
+                }
+            }
+            if (strengthened.length == 1) {
+                clauses.set(id, null);
+                units.add(strengthened[0]);
+            } else {
+                clauses.set(id, strengthened);
+            }
+        }
+        falsified.clear();
+    }
+
+    /* (non-javadoc)
+     * Records a removed clause and the literal satisfying it.
+     */
+    private void push(int[] clause, int witness) {
+        for (int lit : clause) {
+            stack.add(lit);
+        }
+        stack.add(witness);
+        stack.add(clause.length);
+    }
+
+    /* (non-javadoc)
+     * The live clauses containing a literal, dropping the removed ones from its occurrence list.
+     */
+    private IntVec live(int lit) {
+        IntVec list = occurrences[index(lit)];
+        int size = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int id = list.get(i);
+            int[] clause = clauses.get(id);
+            if (clause != null && contains(clause, lit)) {
+                list.set(size++, id);
+            }
+        }
+        list.shrink(size);
+        return list;
+    }
+
+    private static boolean contains(int[] clause, int lit) {
+        for (int other : clause) {
+            if (other == lit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* (non-javadoc)
+     * Removes the clauses containing all literals of a shorter or equal clause, checking the
+     * candidates of the literal of every clause with the fewest occurrences.
+     */
+    private void subsume() {
+        Integer[] order = new Integer[clauses.size()];
+        int count = 0;
+        for (int id = 0; id < clauses.size(); id++) {
+            if (clauses.get(id) != null) {
+                order[count++] = id;
+            }
+        }
+        Arrays.sort(order, 0, count, (x, y) -> Integer.compare(clauses.get(x).length, clauses.get(y).length));
+        for (int k = 0; k < count; k++) {
+            int id = order[k];
+            int[] clause = clauses.get(id);
+            if (clause == null) {
+                continue;
+            }
+            int best = clause[0];
+            for (int lit : clause) {
+                if (occurrences[index(lit)].size() < occurrences[index(best)].size()) {
+                    best = lit;
+                }
+            }
+            long signature = signature(clause);
+            IntVec candidates = live(best);
+            for (int i = 0; i < candidates.size(); i++) {
+                int other = candidates.get(i);
+                int[] candidate = clauses.get(other);
+                if (other != id && candidate != null && candidate.length >= clause.length
+                        && (signature & ~signature(candidate)) == 0 && subset(clause, candidate)) {
+                    clauses.set(other, null);
+                }
+            }
+        }
+    }
+
+    private static long signature(int[] clause) {
+        long signature = 0;
+        for (int lit : clause) {
+            signature |= 1L << (index(lit) & 63);
+        }
+        return signature;
+    }
+
+    private static boolean subset(int[] small, int[] large) {
+        for (int lit : small) {
+            if (!contains(large, lit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* (non-javadoc)
+     * Eliminates the pure literals and the variables whose resolvents are not more than their clauses,
+     * cheapest first.
+     * @return true iff a variable was eliminated
+     */
+    private boolean eliminate() {
+        List<int[]> candidates = new ArrayList<>();
+        for (int v = 1; v <= variableCount; v++) {
+            if (values[v] == 0 && !eliminated[v]) {
+                int positive = live(v).size();
+                int negative = live(-v).size();
+                if (positive + negative > 0 && positive + negative <= MAX_OCCURRENCES) {
+                    candidates.add(new int[] {v, positive * negative});
+                }
+            }
+        }
+        candidates.sort((x, y) -> Integer.compare(x[1], y[1]));
+        boolean progress = false;
+        for (int[] candidate : candidates) {
+            if (unsatisfiable) {
+                break;
+            }
+            progress |= eliminate(candidate[0]);
+            propagate();
+        }
+        return progress;
+    }
+
+    private boolean eliminate(int v) {
+        if (values[v] != 0) {
+            return false;
+        }
+        int[] positive = live(v).toArray();
+        int[] negative = live(-v).toArray();
+        if (positive.length + negative.length > MAX_OCCURRENCES) {
+            return false;
+        }
+        if (positive.length == 0 || negative.length == 0) {
+            if (positive.length + negative.length > 0) {
+                units.add(positive.length == 0 ? -v : v);
+            }
+            return false;
+        }
+        List<int[]> resolvents = new ArrayList<>();
+        int limit = positive.length + negative.length;
+        for (int p : positive) {
+            for (int n : negative) {
+                int[] resolvent = resolve(clauses.get(p), clauses.get(n), v);
+                if (resolvent == null) {
+                    continue;
+                }
+                if (resolvent.length > MAX_RESOLVENT || resolvents.size() == limit) {
+                    return false;
+                }
+                resolvents.add(resolvent);
+            }
+        }
+        int witness = positive.length <= negative.length ? v : -v;
+        for (int id : witness > 0 ? positive : negative) {
+            push(clauses.get(id), witness);
+        }
+        push(new int[] {-witness}, -witness);
+        for (int id : positive) {
+            clauses.set(id, null);
+        }
+        for (int id : negative) {
+            clauses.set(id, null);
+        }
+        occurrences[index(v)].clear();
+        occurrences[index(-v)].clear();
+        eliminated[v] = true;
+        eliminatedCount++;
+        for (int[] resolvent : resolvents) {
+            add(resolvent);
+        }
+        return true;
+    }
+
+    /* (non-javadoc)
+     * The resolvent on v of a clause containing v and one containing not v.
+     * @return the resolvent, or null if it is a tautology
+     */
+    private static int[] resolve(int[] positive, int[] negative, int v) {
+        int[] merged = new int[positive.length + negative.length - 2];
+        int size = 0;
+        for (int lit : positive) {
+            if (lit != v) {
+                merged[size++] = lit;
+            }
+        }
+        for (int lit : negative) {
+            if (lit != -v) {
+                merged[size++] = lit;
+            }
+        }
+        return normalize(merged);
+    }
+
+    private Cnf build() {
+        if (unsatisfiable) {
+            return new Cnf(variableCount, new int[] {0}, names());
+        }
+        IntVec lits = new IntVec();
+        for (int[] clause : clauses) {
+            if (clause != null) {
+                for (int lit : clause) {
+                    lits.add(lit);
+                }
+                lits.add(0);
+            }
+        }
+        return new Cnf(variableCount, lits.toArray(), names());
+    }
+
+    private String[] names() {
+        String[] names = new String[variableCount + 1];
+        for (int v = 1; v <= variableCount; v++) {
+            names[v] = cnf.variableName(v);
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return "Preprocessor[" + cnf.clauseCount() + " -> " + simplified.clauseCount() + " clauses, fixed=" + fixedCount
+            + ", eliminated=" + eliminatedCount + (unsatisfiable ? ", unsatisfiable" : "") + "]";
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        return cnf != null && stack != null && simplified != null && simplified.variableCount() == cnf.variableCount();
+    }
+}
@@ -0,0 +1,43 @@
+package solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JDK Flight Recorder event of a query of {@link SatSolver}, committed when a recording enables
+ * it, whether measuring is enabled with {@link SolverMetrics#enable()} or not.
+ *
+ * @version 0.1
+ */
+@Name("solver.Query")
+@Label("Solver Query")
+@Category("Solver")
+@Description("A query of SatSolver")
+final class QueryEvent extends jdk.jfr.Event {
+
+    @Label("Query")
+    String query;
+
+    @Label("Result")
+    String result;
+
+    @Label("Cached")
+    boolean cached;
+
+    @Label("Conflicts")
+    long conflicts;
+
+    @Label("Decisions")
+    long decisions;
+
+    @Label("Propagations")
+    long propagations;
+
+    @Label("Evaluations")
+    long evaluations;
+
+    @Label("Interpretations")
+    long interpretations;
+}
@@ -0,0 +1,152 @@
+package solver;
+
+import expressions.Fingerprint;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the answers of {@link SatSolver}, installed with {@link SatSolver#setResultCache(ResultCache)}.
+ *
+ * Answers are keyed by the {@link Fingerprint} of the expression they are about, so an expression
+ * is answered from the cache when an expression equal to it up to the names of its variables and the
+ * order of the operands of {@code and}, {@code or}, {@code iff} and {@code xor} was decided before. Tautology and contradiction
+ * queries are stored as satisfiability queries of the expression or of its negation. Together with
+ * a satisfiable answer the cache keeps a model, indexed like the variables of the fingerprint, which
+ * is renamed to the variables of every expression it answers.
+ *
+ * When the cache is full, the least recently used answer is evicted. All methods are thread safe.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> entries, hits and misses are not {@code null}</li>
+ *  <li> {@code entries.size() <= capacity}</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class ResultCache {
+
+    /* (non-javadoc)
+     * The answer for a fingerprint, model is null when unknown or unsatisfiable.
+     */
+    static final class Answer {
+        final boolean satisfiable;
+        final boolean[] model;
+
+        Answer(boolean satisfiable, boolean[] model) {
+            this.satisfiable = satisfiable;
+            this.model = model;
+        }
+    }
+
+    private final int capacity;
+    private final Map<Fingerprint, Answer> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new empty cache
+     * @param capacity the maximum number of answers kept
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public ResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Fingerprint, Answer>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, Answer> eldest) {
+                return size() > ResultCache.this.capacity;
+            }
+        };
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return the maximum number of answers kept
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of answers currently kept
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of queries answered from this cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of queries that had to be decided
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Removes all answers, the counters are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Looks up an answer, counting a hit or a miss
+     * @param fingerprint the fingerprint of the expression
+     * @param needModel whether the answer is only a hit when it includes the model of a satisfiable expression
+     * @return the answer, or {@code null} if there is none
+     */
+    Answer get(Fingerprint fingerprint, boolean needModel) {
+        Answer answer;
+        synchronized (this) {
+            answer = entries.get(fingerprint);
+        }
+        if (answer == null || needModel && answer.satisfiable && answer.model == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return answer;
+    }
+
+    /**
+     * Stores an answer, replacing the previous one
+     * @param fingerprint the fingerprint of the expression
+     * @param satisfiable whether the expression is satisfiable
+     * @param model a model indexed like the variables of {@code fingerprint}, or {@code null}
+     */
+    synchronized void put(Fingerprint fingerprint, boolean satisfiable, boolean[] model) {
+        Answer previous = entries.get(fingerprint);
+        if (model == null && previous != null && previous.model != null) {
+            return;
+        }
+        entries.put(fingerprint, new Answer(satisfiable, model));
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache[size=" + size() + ", capacity=" + capacity + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public synchronized boolean repOk() {
+        return entries != null && hits != null && misses != null && entries.size() <= capacity;
+    }
+}
@@ -1,20 +1,123 @@
 package solver;
 
+import expressions.Aig;
+import expressions.Cnf;
+import expressions.CnfEncoder;
+import expressions.DimacsReader;
 import expressions.Expression;
+import expressions.Fingerprint;
 import expressions.Interpretation;
+import expressions.Simplifier;
+import expressions.SymbolTable;
+import expressions.TruthTable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 /**
  * A class representing a sat solver.
  * @version 0.1
  */
 public class SatSolver {
 
+    /* (non-javadoc)
+     * Expressions with at most this many variables are decided with a bit-parallel truth table.
+     */
+    private static volatile int truthTableLimit = 20;
+
+    /* (non-javadoc)
+     * The largest number of variables for which all interpretations fit in a single collection.
+     */
+    private static final int MAX_MATERIALIZED_VARIABLES = 30;
+
+    /* (non-javadoc)
+     * The cache answering repeated queries, null when caching is disabled.
+     */
+    private static volatile ResultCache resultCache;
+
+    /* (non-javadoc)
+     * Whether expressions and their clauses are simplified before they are solved.
+     */
+    private static volatile boolean preprocessing = true;
+
+    /* (non-javadoc)
+     * The conflicts of the search of a formula before it is preprocessed.
+     */
+    private static final long PROBE_CONFLICTS = 10000;
+
+    /* (non-javadoc)
+     * The conflicts of the search of a formula before its parity constraints are detected.
+     */
+    private static final long XOR_CONFLICTS = 100;
+
+    /**
+     * @return the maximum number of variables of an expression for which queries are answered
+     * with a bit-parallel truth table instead of a search
+     */
+    public static int getTruthTableLimit() {
+        return truthTableLimit;
+    }
+
+    /**
+     * Sets the maximum number of variables of an expression for which queries are answered
+     * with a bit-parallel truth table instead of a search
+     * @param limit the new limit, {@code 0} disables truth tables for all non constant expressions
+     * @throws IllegalArgumentException if {@code limit} is negative or greater than {@link TruthTable#MAX_VARIABLES}
+     */
+    public static void setTruthTableLimit(int limit) {
+        if (limit < 0 || limit > TruthTable.MAX_VARIABLES) {
+            throw new IllegalArgumentException("limit must be between 0 and " + TruthTable.MAX_VARIABLES);
+        }
+        truthTableLimit = limit;
+    }
+
+    /**
+     * @return {@code true} iff expressions are simplified and their clauses preprocessed before they are solved
+     */
+    public static boolean isPreprocessing() {
+        return preprocessing;
+    }
+
+    /**
+     * Sets whether expressions are rewritten by {@link Simplifier} and reduced as an {@link Aig} before they
+     * are decided or counted, and their clauses simplified by a {@link Preprocessor} before they are searched. Enumerations of
+     * interpretations are never simplified.
+     * @param enabled {@code true} to simplify, the default, {@code false} to solve expressions as they are
+     */
+    public static void setPreprocessing(boolean enabled) {
+        preprocessing = enabled;
+    }
+
+    /**
+     * @return the cache answering repeated queries, or {@code null} if caching is disabled
+     */
+    public static ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the cache answering repeated queries. When there is one, {@link #isTautology(Expression)},
+     * {@link #isContradiction(Expression)}, {@link #isSatisfiable(Expression)} and
+     * {@link #satisfyingInterpretation(Expression)} first look for the answer of an expression equal
+     * to theirs up to the names of the variables and the order of operands, see {@link ResultCache}.
+     * @param cache the cache to use, {@code null} disables caching
+     */
+    public static void setResultCache(ResultCache cache) {
+        resultCache = cache;
+    }
+
     /**
-     * Checks if an expression is a tautology, i.e.: it is true under all interpretations
+     * Checks if an expression is a tautology, i.e.: it is true under all interpretations.
+     * Small expressions are checked with a truth table, otherwise an expression is a
+     * tautology iff its negation is not satisfiable.
      * @param expression the expression to check
      * @return {@code true} iff {@code no interpretation i : not expression.evaluate(i)}
      * @throws IllegalArgumentException if {@code expression} is {@code null}
@@ -24,14 +127,16 @@ public class SatSolver {
             throw new IllegalArgumentException("expression cannot be null");
         }
 
-        return getAllInterpretations(expression)
-            .stream()
-            .parallel()
-            .allMatch(interp -> expression.evaluate(interp));
+        Trace trace = Trace.start("isTautology");
+        boolean tautology = !satisfiable(expression.not(expression), true, trace);
+        trace.finish(tautology);
+        return tautology;
     }
 
     /**
-     * Checks if an expression is a contradiction, i.e.: it is false under all interpretations
+     * Checks if an expression is a contradiction, i.e.: it is false under all interpretations.
+     * Small expressions are checked with a truth table, otherwise an expression is a
+     * contradiction iff it is not satisfiable.
      * @param expression the expression to check
      * @return {@code true} iff {@code all interpretation i : not expression.evaluate(i)}
      */
@@ -40,14 +145,16 @@ public class SatSolver {
             throw new IllegalArgumentException("expression cannot be null");
         }
 
-        return getAllInterpretations(expression)
-            .stream()
-            .parallel()
-            .allMatch(interp -> !expression.evaluate(interp));
+        Trace trace = Trace.start("isContradiction");
+        boolean contradiction = !satisfiable(expression, true, trace);
+        trace.finish(contradiction);
+        return contradiction;
     }
 
     /**
-     * Checks if an expression is satisfiable, i.e.: it is true under at least one interpretation
+     * Checks if an expression is satisfiable, i.e.: it is true under at least one interpretation.
+     * The expression is encoded into conjunctive normal form and decided by a CDCL search
+     * instead of enumerating all interpretations.
      * @param expression the expression to check
      * @return {@code true} iff {@code exists interpretation i : expression.evaluate(i)}
      */
@@ -56,14 +163,572 @@ public class SatSolver {
             throw new IllegalArgumentException("expression cannot be null");
         }
 
-        return getAllInterpretations(expression)
-            .stream()
-            .parallel()
-            .anyMatch(interp -> expression.evaluate(interp));
+        Trace trace = Trace.start("isSatisfiable");
+        boolean satisfiable = satisfiable(expression, false, trace);
+        trace.finish(satisfiable);
+        return satisfiable;
+    }
+
+    /**
+     * Finds an interpretation under which an expression is true with a CDCL search
+     * @param expression the expression to check
+     * @return an interpretation of all variables of {@code expression} under which it is true,
+     * or {@code null} if there is none
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Interpretation satisfyingInterpretation(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+
+        Trace trace = Trace.start("satisfyingInterpretation");
+        trace.phase(SolverPhase.VARIABLES);
+        ResultCache cache = resultCache;
+        Fingerprint fingerprint = Fingerprint.of(expression);
+        ResultCache.Answer entry = cache == null ? null : cache.get(fingerprint, true);
+        boolean[] model;
+        if (entry != null) {
+            trace.cacheHit();
+            model = entry.model;
+        } else {
+            Expression simplified = simplify(expression, trace);
+            trace.phase(SolverPhase.CNF_ENCODING);
+            Cnf cnf = CnfEncoder.encode(simplified);
+            ResultCache.Answer answer = search(cnf, null, trace);
+            model = answer.satisfiable ? model(answer.model, cnf, fingerprint) : null;
+            if (cache != null) {
+                cache.put(fingerprint, answer.satisfiable, model);
+            }
+        }
+        if (model == null) {
+            trace.finish(null);
+            return null;
+        }
+        Interpretation interpretation = new Interpretation();
+        for (int i = 0; i < model.length; i++) {
+            interpretation.add(fingerprint.variable(i), model[i]);
+        }
+        trace.interpretations(1);
+        trace.finish(interpretation);
+        return interpretation;
+    }
+
+    /* (non-javadoc)
+     * Decides if an expression is satisfiable, with a truth table when allowed and the expression is
+     * small enough, otherwise with a CDCL search whose model is kept in the cache. The phases and the
+     * work are measured by trace.
+     */
+    private static boolean satisfiable(Expression expression, boolean truthTable, Trace trace) {
+        return satisfiable(expression, truthTable, trace, cnf -> search(cnf, null, trace));
+    }
+
+    /* (non-javadoc)
+     * Decides if an expression is satisfiable as above, the encoded expression being decided by searcher,
+     * which returns an answer with a model indexed by variable when satisfiable.
+     */
+    private static boolean satisfiable(Expression expression, boolean truthTable, Trace trace,
+            Function<Cnf, ResultCache.Answer> searcher) {
+        ResultCache cache = resultCache;
+        Fingerprint fingerprint = null;
+        trace.phase(SolverPhase.VARIABLES);
+        if (cache != null) {
+            fingerprint = Fingerprint.of(expression);
+            ResultCache.Answer entry = cache.get(fingerprint, false);
+            if (entry != null) {
+                trace.cacheHit();
+                return entry.satisfiable;
+            }
+        }
+        Expression simplified = simplify(expression, trace);
+        if (truthTable && useTruthTable(simplified)) {
+            trace.phase(SolverPhase.TRUTH_TABLE);
+            TruthTable table = TruthTable.of(simplified);
+            trace.evaluations(table.rowCount());
+            boolean satisfiable = !table.isContradiction();
+            if (cache != null) {
+                cache.put(fingerprint, satisfiable, null);
+            }
+            return satisfiable;
+        }
+        trace.phase(SolverPhase.CNF_ENCODING);
+        Cnf cnf = CnfEncoder.encode(simplified);
+        ResultCache.Answer answer = searcher.apply(cnf);
+        if (cache != null) {
+            cache.put(fingerprint, answer.satisfiable, answer.satisfiable ? model(answer.model, cnf, fingerprint) : null);
+        }
+        return answer.satisfiable;
+    }
+
+    /* (non-javadoc)
+     * Rewrites an expression into a smaller equivalent one when preprocessing is enabled: the simplified
+     * expression is hashed and rewritten as an and-inverter graph, which merges the sub-expressions equal
+     * up to the order of their operands, and converted back unless the graph is no smaller.
+     */
+    private static Expression simplify(Expression expression, Trace trace) {
+        if (!preprocessing) {
+            return expression;
+        }
+        trace.phase(SolverPhase.SIMPLIFICATION);
+        Expression simplified = Simplifier.simplify(expression);
+        Aig aig = Aig.of(simplified).rewrite();
+        return aig.andCount() < aig.expressionAndCount() ? aig.toExpression() : simplified;
+    }
+
+    /* (non-javadoc)
+     * Searches a formula with a CDCL search within a budget when there is one. When preprocessing is
+     * enabled, a formula the search does not decide within PROBE_CONFLICTS conflicts has its clauses
+     * simplified, and the simplified clauses and the first search, with the clauses it learnt, are then
+     * searched in turn for slices of conflicts that double every round until one of them decides the
+     * formula. Easy formulas do not pay for the preprocessing, and formulas the simplification makes
+     * harder, such as the pigeonhole formulas, cost at most about twice what the first search needs.
+     * The parity constraints encoded by the clauses searched are reasoned on by Gauss-Jordan elimination,
+     * from the start for the simplified clauses, and once the first search has XOR_CONFLICTS conflicts for
+     * the formula, so that formulas unit propagation decides do not pay for the matrix.
+     * @return the answer, with a model of cnf indexed by variable when satisfiable, or null if the budget ran out
+     */
+    private static ResultCache.Answer search(Cnf cnf, Budget budget, Trace trace) {
+        trace.phase(SolverPhase.SEARCH);
+        CdclSolver solver = new CdclSolver(cnf);
+        int status = run(solver, budget, XOR_CONFLICTS);
+        if (status == 0 && (budget == null || budget.exhausted() == null)) {
+            solver.detectXors();
+            status = run(solver, budget, preprocessing ? PROBE_CONFLICTS - XOR_CONFLICTS : Long.MAX_VALUE);
+        }
+        if (status != 0 || !preprocessing || budget != null && budget.exhausted() != null) {
+            trace.search(solver);
+            return answer(status, solver, cnf.variableCount(), null);
+        }
+        trace.phase(SolverPhase.PREPROCESSING);
+        Preprocessor preprocessor = Preprocessor.of(cnf);
+        if (preprocessor.isUnsatisfiable()) {
+            trace.search(solver);
+            return new ResultCache.Answer(false, null);
+        }
+        trace.phase(SolverPhase.SEARCH);
+        CdclSolver simplified = new CdclSolver(preprocessor.simplified());
+        simplified.detectXors();
+        CdclSolver current = simplified;
+        long slice = PROBE_CONFLICTS;
+        while (status == 0 && (budget == null || budget.exhausted() == null)) {
+            status = run(current, budget, slice);
+            if (status == 0) {
+                if (current == solver) {
+                    slice = slice > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : 2 * slice;
+                }
+                current = current == solver ? simplified : solver;
+            }
+        }
+        trace.search(solver);
+        trace.search(simplified);
+        return answer(status, current, cnf.variableCount(), current == simplified ? preprocessor : null);
+    }
+
+    /* (non-javadoc)
+     * The answer of a finished search of a formula with variables variables, extending its model
+     * through the preprocessor that simplified the formula when there is one.
+     */
+    private static ResultCache.Answer answer(int status, CdclSolver solver, int variables, Preprocessor preprocessor) {
+        if (status <= 0) {
+            return status < 0 ? new ResultCache.Answer(false, null) : null;
+        }
+        boolean[] values = new boolean[variables + 1];
+        for (int v = 1; v <= variables; v++) {
+            values[v] = solver.modelValue(v);
+        }
+        return new ResultCache.Answer(true, preprocessor == null ? values : preprocessor.extend(values));
+    }
+
+    /* (non-javadoc)
+     * The values of a model of cnf for its named variables, indexed like the variables of fingerprint.
+     * The variables of fingerprint that cnf does not have are false.
+     */
+    private static boolean[] model(boolean[] values, Cnf cnf, Fingerprint fingerprint) {
+        boolean[] model = new boolean[fingerprint.variableCount()];
+        for (int v = 1; v <= cnf.variableCount(); v++) {
+            String name = cnf.variableName(v);
+            int index = name == null ? -1 : fingerprint.indexOf(name);
+            if (index >= 0) {
+                model[index] = values[v];
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Checks if an expression is satisfiable within a budget, see {@link SolverBudget}. The search gives
+     * up as soon as possible once the budget is exhausted or the calling thread is interrupted.
+     * @param expression the expression to check
+     * @param budget the resources the search may use
+     * @return {@link SolverResult.Status#SAT} with the value {@code true}, {@link SolverResult.Status#UNSAT}
+     * with the value {@code false}, or {@link SolverResult.Status#UNKNOWN} with no value if the budget
+     * ran out, together with the statistics of the search
+     * @throws IllegalArgumentException if {@code expression} or {@code budget} is {@code null}
+     */
+    public static SolverResult<Boolean> isSatisfiable(Expression expression, SolverBudget budget) {
+        if (expression == null || budget == null) {
+            throw new IllegalArgumentException("expression and budget cannot be null");
+        }
+
+        Trace trace = Trace.measure("isSatisfiable");
+        Budget spent = budget.start();
+        trace.phase(SolverPhase.VARIABLES);
+        ResultCache.Answer answer = decide(expression, null, false, spent, trace);
+        return result(trace, spent, answer == null ? null : answer.satisfiable, answer == null ? null : answer.satisfiable);
+    }
+
+    /**
+     * Finds an interpretation under which an expression is true within a budget, see {@link SolverBudget}
+     * @param expression the expression to check
+     * @param budget the resources the search may use
+     * @return {@link SolverResult.Status#SAT} with an interpretation of all variables of {@code expression}
+     * under which it is true, {@link SolverResult.Status#UNSAT} with no value, or
+     * {@link SolverResult.Status#UNKNOWN} with no value if the budget ran out
+     * @throws IllegalArgumentException if {@code expression} or {@code budget} is {@code null}
+     */
+    public static SolverResult<Interpretation> satisfyingInterpretation(Expression expression, SolverBudget budget) {
+        if (expression == null || budget == null) {
+            throw new IllegalArgumentException("expression and budget cannot be null");
+        }
+
+        Trace trace = Trace.measure("satisfyingInterpretation");
+        Budget spent = budget.start();
+        trace.phase(SolverPhase.VARIABLES);
+        Fingerprint fingerprint = Fingerprint.of(expression);
+        ResultCache.Answer answer = decide(expression, fingerprint, true, spent, trace);
+        Interpretation interpretation = null;
+        if (answer != null && answer.satisfiable) {
+            interpretation = new Interpretation();
+            for (int i = 0; i < answer.model.length; i++) {
+                interpretation.add(fingerprint.variable(i), answer.model[i]);
+            }
+            trace.interpretations(1);
+        }
+        return result(trace, spent, answer == null ? null : answer.satisfiable, interpretation);
+    }
+
+    /**
+     * Checks if a formula in conjunctive normal form is satisfiable within a budget,
+     * see {@link #isSatisfiable(Expression, SolverBudget)}
+     * @param cnf the formula to check
+     * @param budget the resources the search may use
+     * @return the status of {@code cnf}, with the value {@code true} or {@code false} if it is known
+     * @throws IllegalArgumentException if {@code cnf} or {@code budget} is {@code null}
+     */
+    public static SolverResult<Boolean> isSatisfiable(Cnf cnf, SolverBudget budget) {
+        if (cnf == null || budget == null) {
+            throw new IllegalArgumentException("cnf and budget cannot be null");
+        }
+
+        Trace trace = Trace.measure("isSatisfiable");
+        Budget spent = budget.start();
+        ResultCache.Answer answer = search(cnf, spent, trace);
+        Boolean satisfiable = answer == null ? null : answer.satisfiable;
+        return result(trace, spent, satisfiable, satisfiable);
+    }
+
+    /* (non-javadoc)
+     * Decides if an expression is satisfiable within a budget, looking the answer up in the cache and
+     * keeping it there. When needModel, a satisfiable answer has a model indexed like fingerprint, which
+     * may only be null otherwise: it is then computed only if there is a cache.
+     * @return the answer, or null if the budget ran out
+     */
+    private static ResultCache.Answer decide(Expression expression, Fingerprint fingerprint, boolean needModel,
+            Budget budget, Trace trace) {
+        ResultCache cache = resultCache;
+        if (cache != null) {
+            if (fingerprint == null) {
+                fingerprint = Fingerprint.of(expression);
+            }
+            ResultCache.Answer answer = cache.get(fingerprint, needModel);
+            if (answer != null) {
+                trace.cacheHit();
+                return answer;
+            }
+        }
+        Expression simplified = simplify(expression, trace);
+        trace.phase(SolverPhase.CNF_ENCODING);
+        Cnf cnf = CnfEncoder.encode(simplified);
+        ResultCache.Answer answer = search(cnf, budget, trace);
+        if (answer == null) {
+            return null;
+        }
+        boolean[] model = answer.satisfiable && fingerprint != null ? model(answer.model, cnf, fingerprint) : null;
+        if (cache != null) {
+            cache.put(fingerprint, answer.satisfiable, model);
+        }
+        return new ResultCache.Answer(answer.satisfiable, model);
+    }
+
+    /* (non-javadoc)
+     * Runs a search for at most conflicts conflicts, and within a budget when there is one.
+     * @return 1 if satisfiable, -1 if unsatisfiable, 0 if the conflicts or the budget ran out
+     */
+    private static int run(CdclSolver solver, Budget budget, long conflicts) {
+        if (budget == null) {
+            return solver.run(new int[0], conflicts);
+        }
+        if (budget.check()) {
+            return 0;
+        }
+        solver.limit(budget);
+        long remaining = budget.remainingConflicts();
+        int status = solver.run(new int[0], Math.min(conflicts, remaining));
+        if (status == 0 && conflicts >= remaining) {
+            budget.stop(SolverResult.Limit.CONFLICTS);
+        }
+        return status;
+    }
+
+    /* (non-javadoc)
+     * Finishes a query run within a budget, satisfiable is null if the budget ran out.
+     */
+    private static <T> SolverResult<T> result(Trace trace, Budget budget, Boolean satisfiable, T value) {
+        if (satisfiable == null) {
+            SolverStatistics statistics = trace.finish(value == null ? SolverResult.Status.UNKNOWN : value);
+            return new SolverResult<>(SolverResult.Status.UNKNOWN, value, budget.exhausted(), statistics);
+        }
+        SolverResult.Status status = satisfiable ? SolverResult.Status.SAT : SolverResult.Status.UNSAT;
+        SolverStatistics statistics = trace.finish(value == null ? status : value);
+        return new SolverResult<>(status, value, null, statistics);
+    }
+
+    /**
+     * Checks if a formula in conjunctive normal form is satisfiable with a CDCL search
+     * @param cnf the formula to check
+     * @return {@code true} iff some assignment of the variables of {@code cnf} satisfies all its clauses
+     * @throws IllegalArgumentException if {@code cnf} is {@code null}
+     */
+    public static boolean isSatisfiable(Cnf cnf) {
+        if (cnf == null) {
+            throw new IllegalArgumentException("cnf cannot be null");
+        }
+
+        Trace trace = Trace.start("isSatisfiable");
+        boolean satisfiable = search(cnf, null, trace).satisfiable;
+        trace.finish(satisfiable);
+        return satisfiable;
+    }
+
+    /**
+     * Checks if an expression is satisfiable with a portfolio of CDCL searches running in parallel.
+     * Every search uses a different configuration and its own thread, the searches share their short
+     * learnt clauses and the first one to finish stops the others, so hard satisfiable expressions
+     * are often decided much faster than by {@link #isSatisfiable(Expression)}. The expression is
+     * simplified and its answer cached as by {@link #isSatisfiable(Expression)}.
+     * @param expression the expression to check
+     * @param workers the number of parallel searches, usually the number of available processors
+     * @return {@code true} iff {@code exists interpretation i : expression.evaluate(i)}
+     * @throws IllegalArgumentException if {@code expression} is {@code null} or {@code workers} is not positive
+     */
+    public static boolean isSatisfiable(Expression expression, int workers) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+
+        Trace trace = Trace.start("isSatisfiable");
+        boolean satisfiable = satisfiable(expression, false, trace, cnf -> portfolio(cnf, workers, trace));
+        trace.finish(satisfiable);
+        return satisfiable;
+    }
+
+    /**
+     * Checks if a formula in conjunctive normal form is satisfiable with a portfolio of CDCL searches
+     * running in parallel, see {@link #isSatisfiable(Expression, int)}
+     * @param cnf the formula to check
+     * @param workers the number of parallel searches
+     * @return {@code true} iff some assignment of the variables of {@code cnf} satisfies all its clauses
+     * @throws IllegalArgumentException if {@code cnf} is {@code null} or {@code workers} is not positive
+     */
+    public static boolean isSatisfiable(Cnf cnf, int workers) {
+        if (cnf == null) {
+            throw new IllegalArgumentException("cnf cannot be null");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+
+        Trace trace = Trace.start("isSatisfiable");
+        boolean satisfiable = portfolio(cnf, workers, trace).satisfiable;
+        trace.finish(satisfiable);
+        return satisfiable;
+    }
+
+    /* (non-javadoc)
+     * Searches a formula with a portfolio of workers CDCL searches, or with a single one when workers is 1.
+     * Only the work of a single search is measured by trace, the workers of a portfolio are not.
+     * @return the answer, with a model of cnf indexed by variable when satisfiable
+     */
+    private static ResultCache.Answer portfolio(Cnf cnf, int workers, Trace trace) {
+        trace.phase(SolverPhase.SEARCH);
+        if (workers == 1) {
+            CdclSolver solver = new CdclSolver(cnf);
+            boolean satisfiable = solver.solve();
+            trace.search(solver);
+            return answer(satisfiable ? 1 : -1, solver, cnf.variableCount(), null);
+        }
+        PortfolioSolver portfolio = new PortfolioSolver(cnf, workers);
+        if (!portfolio.solve()) {
+            return new ResultCache.Answer(false, null);
+        }
+        boolean[] values = new boolean[cnf.variableCount() + 1];
+        for (int v = 1; v <= cnf.variableCount(); v++) {
+            values[v] = portfolio.modelValue(v);
+        }
+        return new ResultCache.Answer(true, values);
+    }
+
+    /**
+     * Checks if an expression is satisfiable by cube-and-conquer: the search space is split into
+     * cubes with a lookahead, and the cubes are searched in parallel by work-stealing tasks on a pool.
+     * Cubes that are not decided quickly are split again, and the search stops as soon as a cube is
+     * satisfiable. This divides the work of hard unsatisfiable expressions between the threads of the
+     * pool, where {@link #isSatisfiable(Expression, int)} only races them. The expression is simplified
+     * and its answer cached as by {@link #isSatisfiable(Expression)}.
+     * @param expression the expression to check
+     * @param pool the pool searching the cubes, e.g.: {@link ForkJoinPool#commonPool()}
+     * @return {@code true} iff {@code exists interpretation i : expression.evaluate(i)}
+     * @throws IllegalArgumentException if {@code expression} or {@code pool} is {@code null}
+     */
+    public static boolean isSatisfiable(Expression expression, ForkJoinPool pool) {
+        if (expression == null || pool == null) {
+            throw new IllegalArgumentException("expression and pool cannot be null");
+        }
+
+        Trace trace = Trace.start("isSatisfiable");
+        boolean satisfiable = satisfiable(expression, false, trace, cnf -> cubes(cnf, pool, trace));
+        trace.finish(satisfiable);
+        return satisfiable;
+    }
+
+    /**
+     * Checks if a formula in conjunctive normal form is satisfiable by cube-and-conquer,
+     * see {@link #isSatisfiable(Expression, ForkJoinPool)}
+     * @param cnf the formula to check
+     * @param pool the pool searching the cubes
+     * @return {@code true} iff some assignment of the variables of {@code cnf} satisfies all its clauses
+     * @throws IllegalArgumentException if {@code cnf} or {@code pool} is {@code null}
+     */
+    public static boolean isSatisfiable(Cnf cnf, ForkJoinPool pool) {
+        if (cnf == null || pool == null) {
+            throw new IllegalArgumentException("cnf and pool cannot be null");
+        }
+
+        Trace trace = Trace.start("isSatisfiable");
+        boolean satisfiable = cubes(cnf, pool, trace).satisfiable;
+        trace.finish(satisfiable);
+        return satisfiable;
+    }
+
+    /* (non-javadoc)
+     * Searches a formula by cube-and-conquer on pool, the work of the searches of the cubes is not measured.
+     * @return the answer, with a model of cnf indexed by variable when satisfiable
+     */
+    private static ResultCache.Answer cubes(Cnf cnf, ForkJoinPool pool, Trace trace) {
+        trace.phase(SolverPhase.SEARCH);
+        CubeSolver solver = new CubeSolver(cnf, pool);
+        if (!solver.solve()) {
+            return new ResultCache.Answer(false, null);
+        }
+        boolean[] values = new boolean[cnf.variableCount() + 1];
+        for (int v = 1; v <= cnf.variableCount(); v++) {
+            values[v] = solver.modelValue(v);
+        }
+        return new ResultCache.Answer(true, values);
+    }
+
+    /**
+     * Checks if the formula of a DIMACS CNF file is satisfiable. Clauses are streamed from the file
+     * into the CDCL search as they are read, so the formula is never held in memory twice.
+     * @param file the DIMACS file to check
+     * @return {@code true} iff some assignment of the variables of the formula satisfies all its clauses
+     * @throws IllegalArgumentException if {@code file} is {@code null} or is not a well formed DIMACS CNF file
+     * @throws IOException if {@code file} cannot be read
+     */
+    public static boolean isSatisfiable(Path file) throws IOException {
+        Trace trace = Trace.start("isSatisfiable");
+        trace.phase(SolverPhase.CNF_ENCODING);
+        CdclSolver solver = new CdclSolver();
+        DimacsReader.read(file, new DimacsReader.ClauseSink() {
+
+            @Override
+            public void header(int variableCount, int clauseCount) {
+                solver.ensureVariables(variableCount);
+            }
+
+            @Override
+            public void clause(int[] literals, int from, int to) {
+                solver.addClause(literals, from, to);
+            }
+        });
+        trace.phase(SolverPhase.SEARCH);
+        boolean satisfiable = solver.solve();
+        trace.search(solver);
+        trace.finish(satisfiable);
+        return satisfiable;
+    }
+
+    /**
+     * Counts the interpretations of the variables of an expression under which it is true, without
+     * enumerating them. Small expressions are counted with a truth table, otherwise the expression is
+     * encoded into conjunctive normal form with every auxiliary variable defined by an equivalence and
+     * counted by a DPLL search that multiplies the counts of independent components and caches them.
+     * Components made of parity constraints, such as chains of exclusive ors, are counted by the rank
+     * of the constraints instead of branching.
+     * @param expression the expression to check
+     * @return {@code #{i : expression.evaluate(i)}} over the interpretations of {@code expression.variables()}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static BigInteger countModels(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+
+        Trace trace = Trace.start("countModels");
+        trace.phase(SolverPhase.VARIABLES);
+        int variables = expression.variables().size();
+        Expression simplified = simplify(expression, trace);
+        BigInteger count;
+        if (useTruthTable(simplified)) {
+            trace.phase(SolverPhase.TRUTH_TABLE);
+            TruthTable table = TruthTable.of(simplified);
+            trace.evaluations(table.rowCount());
+            count = BigInteger.valueOf(table.countTrue());
+        } else {
+            trace.phase(SolverPhase.CNF_ENCODING);
+            Cnf cnf = CnfEncoder.encodeDefinitional(simplified);
+            trace.phase(SolverPhase.COUNTING);
+            count = new ModelCounter(cnf).count();
+        }
+        count = count.shiftLeft(variables - simplified.variables().size());
+        trace.finish(count);
+        return count;
+    }
+
+    /**
+     * Counts the assignments of the variables of a formula in conjunctive normal form that satisfy it.
+     * Auxiliary variables, i.e.: variables without a name, are only counted if they occur in a clause.
+     * @param cnf the formula to check
+     * @return the number of models of {@code cnf}
+     * @throws IllegalArgumentException if {@code cnf} is {@code null}
+     */
+    public static BigInteger countModels(Cnf cnf) {
+        if (cnf == null) {
+            throw new IllegalArgumentException("cnf cannot be null");
+        }
+
+        Trace trace = Trace.start("countModels");
+        trace.phase(SolverPhase.COUNTING);
+        BigInteger count = new ModelCounter(cnf).count();
+        trace.finish(count);
+        return count;
     }
 
     /**
-     * Returns all possible interpretations under which an expression is satisfiable
+     * Returns all possible interpretations under which an expression is satisfiable, see
+     * {@link #satisfyingInterpretations(Expression)} to consume them as they are found
      * @param expression the expression to check
      * @return {@code l : all i in l : expression.evaluate(i)}
      */
@@ -72,11 +737,7 @@ public class SatSolver {
             throw new IllegalArgumentException("expression cannot be null");
         }
 
-        return getAllInterpretations(expression)
-            .stream()
-            .parallel()
-            .filter(interp -> expression.evaluate(interp))
-            .collect(Collectors.toList());
+        return enumerate(expression, true, Trace.start("allSatisfiableInterpretations"));
     }
 
     /**
@@ -89,11 +750,179 @@ public class SatSolver {
             throw new IllegalArgumentException("expression cannot be null");
         }
 
-        return getAllInterpretations(expression)
-            .stream()
-            .parallel()
-            .filter(interp -> !expression.evaluate(interp))
-            .collect(Collectors.toList());
+        return enumerate(expression, false, Trace.start("allUnsatisfiableInterpretations"));
+    }
+
+    /**
+     * Returns the interpretations under which an expression is satisfiable, within a budget, see
+     * {@link SolverBudget}. The enumeration gives up as soon as possible once the budget is exhausted
+     * or the calling thread is interrupted, and then returns the interpretations found so far.
+     * @param expression the expression to check
+     * @param budget the resources the enumeration may use
+     * @return {@link SolverResult.Status#SAT} with all interpretations under which {@code expression} is
+     * true, {@link SolverResult.Status#UNSAT} with none, or {@link SolverResult.Status#UNKNOWN} with some
+     * of them if the budget ran out
+     * @throws IllegalArgumentException if {@code expression} or {@code budget} is {@code null}
+     */
+    public static SolverResult<List<Interpretation>> allSatisfiableInterpretations(Expression expression, SolverBudget budget) {
+        if (expression == null || budget == null) {
+            throw new IllegalArgumentException("expression and budget cannot be null");
+        }
+
+        return enumerate(expression, true, budget, Trace.measure("allSatisfiableInterpretations"));
+    }
+
+    /**
+     * Returns the interpretations under which an expression is unsatisfiable, within a budget,
+     * see {@link #allSatisfiableInterpretations(Expression, SolverBudget)}
+     * @param expression the expression to check
+     * @param budget the resources the enumeration may use
+     * @return {@link SolverResult.Status#SAT} with all interpretations under which {@code expression} is
+     * false, {@link SolverResult.Status#UNSAT} with none, or {@link SolverResult.Status#UNKNOWN} with some
+     * of them if the budget ran out
+     * @throws IllegalArgumentException if {@code expression} or {@code budget} is {@code null}
+     */
+    public static SolverResult<List<Interpretation>> allUnsatisfiableInterpretations(Expression expression, SolverBudget budget) {
+        if (expression == null || budget == null) {
+            throw new IllegalArgumentException("expression and budget cannot be null");
+        }
+
+        return enumerate(expression, false, budget, Trace.measure("allUnsatisfiableInterpretations"));
+    }
+
+    /**
+     * Returns a lazy stream over the interpretations under which an expression is satisfiable.
+     * Interpretations are searched as they are consumed, each excluded from the next searches, so
+     * the first ones are available before the others are found, a slow consumer holds back the search,
+     * and short-circuiting operations such as {@code limit} or {@code findFirst} stop it.
+     * The interpretations are not produced in any particular order and the stream does not split.
+     * @param expression the expression to check
+     * @return a stream over all interpretations under which {@code expression} is true
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Stream<Interpretation> satisfyingInterpretations(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+
+        return StreamSupport.stream(new ModelSpliterator(expression, true, false), false);
+    }
+
+    /**
+     * Returns a lazy stream over the interpretations under which an expression is unsatisfiable,
+     * see {@link #satisfyingInterpretations(Expression)}
+     * @param expression the expression to check
+     * @return a stream over all interpretations under which {@code expression} is false
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Stream<Interpretation> unsatisfyingInterpretations(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+
+        return StreamSupport.stream(new ModelSpliterator(expression, false, false), false);
+    }
+
+    /**
+     * Returns a lazy stream over cubes covering the interpretations under which an expression is
+     * satisfiable, see {@link #satisfyingInterpretations(Expression)}. A cube is an interpretation of
+     * some of the variables of the expression, under which the expression is true whatever the values
+     * of the others: a cube leaving out {@code k} variables stands for {@code 2^k} interpretations.
+     * The cubes are disjoint, so every satisfying interpretation extends exactly one of them.
+     * @param expression the expression to check
+     * @return a stream over disjoint cubes whose extensions are all interpretations under which {@code expression} is true
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Stream<Interpretation> satisfyingCubes(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+
+        return StreamSupport.stream(new ModelSpliterator(expression, true, true), false);
+    }
+
+    /**
+     * Returns a lazy stream over cubes covering the interpretations under which an expression is
+     * unsatisfiable, see {@link #satisfyingCubes(Expression)}
+     * @param expression the expression to check
+     * @return a stream over disjoint cubes whose extensions are all interpretations under which {@code expression} is false
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Stream<Interpretation> unsatisfyingCubes(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+
+        return StreamSupport.stream(new ModelSpliterator(expression, false, true), false);
+    }
+
+    /* (non-javadoc)
+     * Enumerates the interpretations under which the expression evaluates to value within a budget,
+     * with a truth table when it is small enough for both, otherwise by cubes.
+     */
+    private static SolverResult<List<Interpretation>> enumerate(Expression expression, boolean value, SolverBudget budget,
+            Trace trace) {
+        Budget spent = budget.start();
+        trace.phase(SolverPhase.VARIABLES);
+        int n = expression.variables().size();
+        List<Interpretation> result;
+        if (useTruthTable(expression) && 1L << n <= spent.remainingEvaluations() && !spent.evaluations(1L << n)) {
+            trace.phase(SolverPhase.TRUTH_TABLE);
+            TruthTable table = TruthTable.of(expression);
+            trace.evaluations(table.rowCount());
+            long count = value ? table.countTrue() : table.rowCount() - table.countTrue();
+            long affordable = spent.interpretations(count, n);
+            trace.phase(SolverPhase.ENUMERATION);
+            if (affordable == count) {
+                result = table.interpretations(value);
+            } else {
+                result = new ArrayList<>();
+                for (long row = 0; result.size() < affordable; row++) {
+                    if (table.value(row) == value) {
+                        result.add(table.interpretation(row));
+                    }
+                }
+            }
+        } else {
+            trace.phase(SolverPhase.CNF_ENCODING);
+            CubeEnumerator enumerator = new CubeEnumerator(expression, value, spent);
+            trace.phase(SolverPhase.ENUMERATION);
+            result = enumerator.enumerate();
+            enumerator.report(trace);
+        }
+        return result(trace, spent, spent.exhausted() != null ? null : !result.isEmpty(), result);
+    }
+
+    /* (non-javadoc)
+     * Enumerates the interpretations under which the expression evaluates to value, with a truth table
+     * when the expression is small enough, otherwise splitting them into cubes that a CDCL search skips
+     * when the expression is constant on them.
+     */
+    private static List<Interpretation> enumerate(Expression expression, boolean value, Trace trace) {
+        trace.phase(SolverPhase.VARIABLES);
+        List<Interpretation> result;
+        if (useTruthTable(expression)) {
+            trace.phase(SolverPhase.TRUTH_TABLE);
+            TruthTable table = TruthTable.of(expression);
+            trace.evaluations(table.rowCount());
+            trace.phase(SolverPhase.ENUMERATION);
+            result = table.interpretations(value);
+        } else {
+            trace.phase(SolverPhase.CNF_ENCODING);
+            CubeEnumerator enumerator = new CubeEnumerator(expression, value);
+            trace.phase(SolverPhase.ENUMERATION);
+            result = enumerator.enumerate();
+            enumerator.report(trace);
+        }
+        trace.finish(result);
+        return result;
+    }
+
+    /* (non-javadoc)
+     * @return true iff expression is small enough to be decided with a truth table
+     */
+    private static boolean useTruthTable(Expression expression) {
+        return expression.variables().size() <= truthTableLimit;
     }
 
     /**
@@ -112,28 +941,59 @@ public class SatSolver {
      * Returns all possible interpretations for a particular expression
      * @param expression the expression to use
      * @return all possible interpretations for {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     * @throws IllegalArgumentException if {@code expression} has more than {@code 30} variables,
+     * use {@link #interpretations(Expression)} to enumerate them lazily
      */
     public static Set<Interpretation> getAllInterpretations(Expression expression) {
         if (expression == null) {
             throw new IllegalArgumentException("expression is null");
         }
-        
-        int n = expression.variables().size();
-        int totalPossibilities = 1 << n;
-        Set<String> variables = expression.variables();
-        Set<Interpretation> result = new HashSet<>();
-
-        for (int pos = 0; pos < totalPossibilities; pos++) {
-            Interpretation interp = new Interpretation();
-            Iterator<String> it = variables.iterator();
-            for (int i = 0; i < n; i++) {
-                boolean TFvalue = ((pos >> i) & 1) == 1;
-                String var = it.next();
-                interp.add(var, TFvalue);
+        if (expression.variables().size() > MAX_MATERIALIZED_VARIABLES) {
+            throw new IllegalArgumentException("expression has too many variables to materialize all interpretations");
+        }
+
+        return interpretations(expression).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * Returns a lazy stream over all possible interpretations for a particular expression.
+     * Interpretations are created as they are consumed, so short-circuiting operations such as
+     * {@code anyMatch} stop without creating the remaining ones, and parallel streams split the
+     * interpretations evenly.
+     * @param expression the expression to use
+     * @return a stream over all possible interpretations for {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Stream<Interpretation> interpretations(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression is null");
+        }
+
+        SymbolTable symbols = SymbolTable.of(expression);
+        int n = symbols.size();
+        if (n <= InterpretationSpliterator.INDEX_BITS) {
+            return StreamSupport.stream(new InterpretationSpliterator(symbols, new long[0], 0, 1L << n), false);
+        }
+
+        BigInteger prefixes = BigInteger.ONE.shiftLeft(n - InterpretationSpliterator.INDEX_BITS);
+        return Stream.iterate(BigInteger.ZERO, prefix -> prefix.compareTo(prefixes) < 0, prefix -> prefix.add(BigInteger.ONE))
+            .flatMap(prefix -> StreamSupport.stream(new InterpretationSpliterator(symbols, prefixWords(prefix, n), 0,
+                1L << InterpretationSpliterator.INDEX_BITS), false));
+    }
+
+    /* (non-javadoc)
+     * @return the words of an interpretation index whose bits above INDEX_BITS are prefix
+     */
+    private static long[] prefixWords(BigInteger prefix, int n) {
+        long[] words = new long[(n + 63) / 64];
+        for (int bit = 0; bit < prefix.bitLength(); bit++) {
+            if (prefix.testBit(bit)) {
+                int index = InterpretationSpliterator.INDEX_BITS + bit;
+                words[index >>> 6] |= 1L << (index & 63);
             }
-            result.add(interp);
         }
-        return result;
+        return words;
     }
 
 }
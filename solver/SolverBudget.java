@@ -0,0 +1,156 @@
+package solver;
+
+import java.time.Duration;
+
+/**
+ * The resources a query of {@link SatSolver} may use: a time, a number of conflicts of its searches,
+ * a number of interpretations its expression is evaluated under, and an amount of memory for its result.
+ *
+ * A budget is immutable, every {@code with} method returns a copy with one more limit. The limits
+ * are checked cooperatively in the loops of the searches and enumerations, every few hundred
+ * conflicts or every few thousand evaluations, so a query may slightly overrun them. A query also
+ * stops when the thread that started it is interrupted. A query that runs out of budget returns
+ * {@link SolverResult.Status#UNKNOWN} with what it found so far, see {@link SolverResult}.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> all limits are positive, {@code Long.MAX_VALUE} meaning unlimited</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class SolverBudget {
+
+    private static final SolverBudget UNLIMITED = new SolverBudget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long timeoutNanos;
+    private final long conflicts;
+    private final long evaluations;
+    private final long memory;
+
+    private SolverBudget(long timeoutNanos, long conflicts, long evaluations, long memory) {
+        this.timeoutNanos = timeoutNanos;
+        this.conflicts = conflicts;
+        this.evaluations = evaluations;
+        this.memory = memory;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return a budget without limits, a query using it only stops when its thread is interrupted
+     */
+    public static SolverBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @param timeout the time a query may run for, from its start
+     * @return a copy of this budget limiting the time of a query
+     * @throws IllegalArgumentException if {@code timeout} is {@code null} or not positive
+     */
+    public SolverBudget withTimeout(Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        long nanos;
+        try {
+            nanos = timeout.toNanos();
+        } catch (ArithmeticException e) {
+            nanos = Long.MAX_VALUE;
+        }
+        return new SolverBudget(nanos, conflicts, evaluations, memory);
+    }
+
+    /**
+     * @param conflicts the number of conflicts all searches of a query may find together
+     * @return a copy of this budget limiting the conflicts of a query
+     * @throws IllegalArgumentException if {@code conflicts} is not positive
+     */
+    public SolverBudget withConflicts(long conflicts) {
+        if (conflicts < 1) {
+            throw new IllegalArgumentException("conflicts must be positive");
+        }
+        return new SolverBudget(timeoutNanos, conflicts, evaluations, memory);
+    }
+
+    /**
+     * @param evaluations the number of interpretations the expression of a query may be evaluated under,
+     * a truth table counting one per row
+     * @return a copy of this budget limiting the evaluations of a query
+     * @throws IllegalArgumentException if {@code evaluations} is not positive
+     */
+    public SolverBudget withEvaluations(long evaluations) {
+        if (evaluations < 1) {
+            throw new IllegalArgumentException("evaluations must be positive");
+        }
+        return new SolverBudget(timeoutNanos, conflicts, evaluations, memory);
+    }
+
+    /**
+     * @param bytes the estimated size of the interpretations a query may hold in its result
+     * @return a copy of this budget limiting the memory of the result of a query
+     * @throws IllegalArgumentException if {@code bytes} is not positive
+     */
+    public SolverBudget withMemory(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("bytes must be positive");
+        }
+        return new SolverBudget(timeoutNanos, conflicts, evaluations, bytes);
+    }
+
+    /**
+     * @return the time a query may run for in nanoseconds, {@code Long.MAX_VALUE} if unlimited
+     */
+    public long timeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * @return the number of conflicts a query may find, {@code Long.MAX_VALUE} if unlimited
+     */
+    public long conflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return the number of evaluations a query may do, {@code Long.MAX_VALUE} if unlimited
+     */
+    public long evaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the estimated size in bytes of the result of a query, {@code Long.MAX_VALUE} if unlimited
+     */
+    public long memory() {
+        return memory;
+    }
+
+    /**
+     * Starts spending this budget
+     * @return the budget of a query starting now on the current thread
+     */
+    Budget start() {
+        return new Budget(this, Thread.currentThread());
+    }
+
+    @Override
+    public String toString() {
+        return "SolverBudget[timeout=" + limit(timeoutNanos) + "ns, conflicts=" + limit(conflicts) + ", evaluations="
+            + limit(evaluations) + ", memory=" + limit(memory) + "B]";
+    }
+
+    private static String limit(long value) {
+        return value == Long.MAX_VALUE ? "unlimited" : Long.toString(value);
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        return timeoutNanos > 0 && conflicts > 0 && evaluations > 0 && memory > 0;
+    }
+}
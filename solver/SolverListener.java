@@ -0,0 +1,26 @@
+package solver;
+
+/**
+ * Receives the statistics of the queries of {@link SatSolver} while {@link SolverMetrics} are enabled.
+ * Listeners are called on the thread answering the query, so they must be fast and thread safe.
+ *
+ * @version 0.1
+ */
+public interface SolverListener {
+
+    /**
+     * Called when a phase of a query ends
+     * @param query the name of the method answering the query
+     * @param phase the phase that ended
+     * @param nanos the duration of the phase in nanoseconds
+     */
+    default void phaseFinished(String query, SolverPhase phase, long nanos) {
+    }
+
+    /**
+     * Called when a query ends
+     * @param statistics the statistics of the query
+     */
+    default void queryFinished(SolverStatistics statistics) {
+    }
+}
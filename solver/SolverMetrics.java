@@ -0,0 +1,255 @@
+package solver;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Measures the queries of {@link SatSolver}: how long every phase takes and how much work the
+ * searches and enumerations do.
+ *
+ * Measuring is disabled by default and then only costs a read of a volatile flag per query, and a
+ * check that no recording enables the events below. Once {@link #enable()} is called, every query
+ * accumulates its statistics locally and adds them at its end to striped {@link LongAdder} counters,
+ * so concurrent queries do not contend. The totals are
+ * available through the getters, which are also exposed through JMX as {@code solver:type=SolverMetrics},
+ * and the statistics of every query are passed to the registered {@link SolverListener}s. Every query
+ * and every phase is also recorded as a JDK Flight Recorder event, {@code solver.Query} and
+ * {@code solver.Phase}, when a recording enables them.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> the counters and listeners are not {@code null}</li>
+ *  <li> there is one phase counter per {@link SolverPhase}</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class SolverMetrics implements SolverMetricsMXBean {
+
+    private static final String OBJECT_NAME = "solver:type=SolverMetrics";
+
+    private static final SolverMetrics INSTANCE = new SolverMetrics();
+
+    /* (non-javadoc)
+     * Read by every query, so that disabled metrics cost a single volatile read.
+     */
+    static volatile boolean enabled;
+
+    private static boolean registered;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder decisions = new LongAdder();
+    private final LongAdder propagations = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder interpretations = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private final LongAdder[] phaseNanos = new LongAdder[SolverPhase.values().length];
+    private final List<SolverListener> listeners = new CopyOnWriteArrayList<>();
+
+    private SolverMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return the metrics of all queries
+     */
+    public static SolverMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts measuring queries, and registers the metrics in the platform MBean server the first time
+     * @throws IllegalStateException if the metrics cannot be registered
+     */
+    public static void enable() {
+        synchronized (SolverMetrics.class) {
+            if (!registered) {
+                try {
+                    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                    ObjectName name = new ObjectName(OBJECT_NAME);
+                    if (!server.isRegistered(name)) {
+                        server.registerMBean(INSTANCE, name);
+                    }
+                } catch (JMException e) {
+                    throw new IllegalStateException("cannot register " + OBJECT_NAME, e);
+                }
+                registered = true;
+            }
+        }
+        enabled = true;
+    }
+
+    /**
+     * Stops measuring queries, the counters keep their values
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers a listener receiving the statistics of every query measured from now on
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if {@code listener} is {@code null}
+     */
+    public void addListener(SolverListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener
+     * @param listener the listener to remove
+     */
+    public void removeListener(SolverListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    @Override
+    public long getDecisions() {
+        return decisions.sum();
+    }
+
+    @Override
+    public long getPropagations() {
+        return propagations.sum();
+    }
+
+    @Override
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    @Override
+    public long getInterpretations() {
+        return interpretations.sum();
+    }
+
+    @Override
+    public long getQueryNanos() {
+        return queryNanos.sum();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanos() {
+        Map<String, Long> result = new TreeMap<>();
+        for (SolverPhase phase : SolverPhase.values()) {
+            result.put(phase.name(), phaseNanos[phase.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * @param phase a phase
+     * @return the total time spent in {@code phase} in nanoseconds
+     * @throws IllegalArgumentException if {@code phase} is {@code null}
+     */
+    public long getPhaseNanos(SolverPhase phase) {
+        if (phase == null) {
+            throw new IllegalArgumentException("phase cannot be null");
+        }
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    @Override
+    public void reset() {
+        queries.reset();
+        cacheHits.reset();
+        conflicts.reset();
+        decisions.reset();
+        propagations.reset();
+        evaluations.reset();
+        interpretations.reset();
+        queryNanos.reset();
+        for (LongAdder adder : phaseNanos) {
+            adder.reset();
+        }
+    }
+
+    /**
+     * Notifies the listeners of the end of a phase
+     */
+    void phaseFinished(String query, SolverPhase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+        for (SolverListener listener : listeners) {
+            listener.phaseFinished(query, phase, nanos);
+        }
+    }
+
+    /**
+     * Adds the statistics of a query to the totals and notifies the listeners
+     */
+    void queryFinished(SolverStatistics statistics) {
+        queries.increment();
+        if (statistics.isCached()) {
+            cacheHits.increment();
+        }
+        conflicts.add(statistics.conflicts());
+        decisions.add(statistics.decisions());
+        propagations.add(statistics.propagations());
+        evaluations.add(statistics.evaluations());
+        interpretations.add(statistics.interpretations());
+        queryNanos.add(statistics.nanos());
+        for (SolverListener listener : listeners) {
+            listener.queryFinished(statistics);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SolverMetrics[queries=" + getQueries() + ", cacheHits=" + getCacheHits() + ", conflicts=" + getConflicts()
+            + ", propagations=" + getPropagations() + ", evaluations=" + getEvaluations() + ", phases=" + getPhaseNanos() + "]";
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        if (listeners == null || phaseNanos.length != SolverPhase.values().length) {
+            return false;
+        }
+        for (LongAdder adder : phaseNanos) {
+            if (adder == null) {
+                return false;
+            }
+        }
+        return queries != null && cacheHits != null && conflicts != null && decisions != null
+            && propagations != null && evaluations != null && interpretations != null && queryNanos != null;
+    }
+}
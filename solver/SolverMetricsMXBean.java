@@ -0,0 +1,66 @@
+package solver;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link SolverMetrics}, registered as {@code solver:type=SolverMetrics}.
+ *
+ * @version 0.1
+ */
+public interface SolverMetricsMXBean {
+
+    /**
+     * @return whether queries are being measured
+     */
+    boolean isEnabled();
+
+    /**
+     * @return the number of queries measured
+     */
+    long getQueries();
+
+    /**
+     * @return the number of queries answered by the result cache
+     */
+    long getCacheHits();
+
+    /**
+     * @return the total number of conflicts of the searches
+     */
+    long getConflicts();
+
+    /**
+     * @return the total number of decisions of the searches
+     */
+    long getDecisions();
+
+    /**
+     * @return the total number of propagated assignments of the searches
+     */
+    long getPropagations();
+
+    /**
+     * @return the total number of interpretations expressions were evaluated under
+     */
+    long getEvaluations();
+
+    /**
+     * @return the total number of interpretations created
+     */
+    long getInterpretations();
+
+    /**
+     * @return the total time of the queries in nanoseconds
+     */
+    long getQueryNanos();
+
+    /**
+     * @return the total time spent in every phase in nanoseconds, by phase name
+     */
+    Map<String, Long> getPhaseNanos();
+
+    /**
+     * Sets all counters to zero
+     */
+    void reset();
+}
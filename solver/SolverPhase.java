@@ -0,0 +1,25 @@
+package solver;
+
+/**
+ * The phases a query of {@link SatSolver} goes through, timed by {@link SolverMetrics}.
+ *
+ * @version 0.1
+ */
+public enum SolverPhase {
+    /** collecting the variables of the expression and looking its fingerprint up in the result cache */
+    VARIABLES,
+    /** rewriting the expression into a smaller equivalent one */
+    SIMPLIFICATION,
+    /** computing the bit-parallel truth table of a small expression */
+    TRUTH_TABLE,
+    /** encoding the expression into conjunctive normal form */
+    CNF_ENCODING,
+    /** simplifying the clauses before the search */
+    PREPROCESSING,
+    /** searching for a model */
+    SEARCH,
+    /** counting the models */
+    COUNTING,
+    /** enumerating the interpretations */
+    ENUMERATION
+}
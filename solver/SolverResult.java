@@ -0,0 +1,122 @@
+package solver;
+
+import java.util.Collection;
+
+/**
+ * The result of a query of {@link SatSolver} run with a {@link SolverBudget}: whether the expression
+ * is satisfiable, unsatisfiable or if the budget ran out first, together with the value found and
+ * the statistics of the query.
+ *
+ * When the budget ran out, the value is partial: an enumeration holds some of the interpretations,
+ * and a decision holds none.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> status and statistics are not {@code null}</li>
+ *  <li> limit is not {@code null} iff status is {@link Status#UNKNOWN}</li>
+ * </ul>
+ *
+ * @param <T> the type of the value found
+ * @version 0.1
+ */
+public final class SolverResult<T> {
+
+    /**
+     * The answer of a query
+     */
+    public enum Status {
+        /** the expression has the value asked for under some interpretation */
+        SAT,
+        /** the expression has the value asked for under no interpretation */
+        UNSAT,
+        /** the budget ran out before the query was answered */
+        UNKNOWN
+    }
+
+    /**
+     * The limit a query ran out of
+     */
+    public enum Limit {
+        /** the time of the query */
+        TIMEOUT,
+        /** the conflicts of its searches */
+        CONFLICTS,
+        /** the evaluations of its expression */
+        EVALUATIONS,
+        /** the memory of its result */
+        MEMORY,
+        /** the thread that started the query was interrupted */
+        INTERRUPTED
+    }
+
+    private final Status status;
+    private final T value;
+    private final Limit limit;
+    private final SolverStatistics statistics;
+
+    /**
+     * Constructs a new result
+     * @param status the answer of the query
+     * @param value the value found, possibly partial or {@code null}
+     * @param limit the limit the query ran out of, or {@code null} if it was answered
+     * @param statistics the statistics of the query
+     */
+    SolverResult(Status status, T value, Limit limit, SolverStatistics statistics) {
+        this.status = status;
+        this.value = value;
+        this.limit = limit;
+        this.statistics = statistics;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return the answer of the query
+     */
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * @return {@code true} iff the query was answered within its budget
+     */
+    public boolean isKnown() {
+        return status != Status.UNKNOWN;
+    }
+
+    /**
+     * @return the value found, partial when the status is {@link Status#UNKNOWN}, possibly {@code null}
+     */
+    public T value() {
+        return value;
+    }
+
+    /**
+     * @return the limit the query ran out of, or {@code null} if it was answered
+     */
+    public Limit limit() {
+        return limit;
+    }
+
+    /**
+     * @return the statistics of the query, partial when the status is {@link Status#UNKNOWN}
+     */
+    public SolverStatistics statistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        Object shown = value instanceof Collection ? ((Collection<?>) value).size() + " interpretations" : value;
+        return status + (limit == null ? "" : " (" + limit + ")") + ": " + shown + ", " + statistics;
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        return status != null && statistics != null && (limit == null) == (status != Status.UNKNOWN);
+    }
+}
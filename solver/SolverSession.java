@@ -0,0 +1,243 @@
+package solver;
+
+import expressions.Cnf;
+import expressions.CnfEncoder;
+import expressions.Expression;
+import expressions.Interpretation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stateful solver answering many related satisfiability queries on a base expression.
+ *
+ * The base expression is encoded and loaded once. Further constraints can be added under nested
+ * scopes opened by {@link #push()} and discarded by {@link #pop()}, and every query may assume
+ * values for some variables. A single CDCL engine serves all queries and keeps its learnt clauses,
+ * variable activities and saved phases between them, so related queries get cheaper as the session
+ * goes on.
+ *
+ * Scopes are implemented with selector variables: every clause of a constraint added in a scope is
+ * extended with the negation of the selector of the scope, queries assume all open selectors, and
+ * popping a scope permanently falsifies its selector. Learnt clauses derived from a discarded
+ * constraint then contain the negated selector too, so they stay valid and are simply satisfied.
+ *
+ * A session is not safe for use by multiple threads.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> solver, variables, names, selectors and marks are not {@code null}</li>
+ *  <li> selectors and marks have one entry per open scope</li>
+ *  <li> every name maps to a distinct positive variable of solver</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class SolverSession {
+
+    private final CdclSolver solver = new CdclSolver();
+    private final Map<String, Integer> variables = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private String[] variableNames = new String[16];
+    private final IntVec selectors = new IntVec();
+    private final IntVec marks = new IntVec();
+    private int variableCount;
+
+    private Interpretation model;
+    private Interpretation failed;
+
+    /**
+     * Constructs a new session
+     * @param base the expression every query is about, it cannot be discarded
+     * @throws IllegalArgumentException if {@code base} is {@code null}
+     */
+    public SolverSession(Expression base) {
+        if (base == null) {
+            throw new IllegalArgumentException("base cannot be null");
+        }
+        add(base);
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Adds a constraint to the current scope, it holds in all queries until the scope is popped
+     * @param constraint the expression to add
+     * @throws IllegalArgumentException if {@code constraint} is {@code null}
+     */
+    public void add(Expression constraint) {
+        if (constraint == null) {
+            throw new IllegalArgumentException("constraint cannot be null");
+        }
+        Cnf cnf = CnfEncoder.encode(constraint);
+        int[] map = new int[cnf.variableCount() + 1];
+        for (int v = 1; v <= cnf.variableCount(); v++) {
+            map[v] = cnf.variableName(v) != null ? variable(cnf.variableName(v)) : newVariable();
+        }
+        int selector = selectors.size() == 0 ? 0 : selectors.get(selectors.size() - 1);
+        IntVec clause = new IntVec();
+        for (int lit : cnf.literals()) {
+            if (lit != 0) {
+                clause.add(lit > 0 ? map[lit] : -map[-lit]);
+                continue;
+            }
+            if (selector != 0) {
+                clause.add(-selector);
+            }
+            solver.addClause(clause.toArray());
+            clause.clear();
+        }
+    }
+
+    /**
+     * Opens a new scope, the constraints added from now on are discarded by the matching {@link #pop()}
+     */
+    public void push() {
+        selectors.add(newVariable());
+        marks.add(names.size());
+    }
+
+    /**
+     * Closes the innermost scope, discarding the constraints added since the matching {@link #push()}.
+     * Variables first used in the scope are forgotten.
+     * @throws IllegalStateException if there is no open scope
+     */
+    public void pop() {
+        if (selectors.size() == 0) {
+            throw new IllegalStateException("no scope to pop");
+        }
+        int selector = selectors.get(selectors.size() - 1);
+        int mark = marks.get(marks.size() - 1);
+        selectors.shrink(selectors.size() - 1);
+        marks.shrink(marks.size() - 1);
+        solver.addClause(-selector);
+        while (names.size() > mark) {
+            int v = variables.remove(names.remove(names.size() - 1));
+            variableNames[v] = null;
+        }
+    }
+
+    /**
+     * @return the number of open scopes
+     */
+    public int scopes() {
+        return selectors.size();
+    }
+
+    /**
+     * Checks if the base expression and the constraints of the open scopes are satisfiable together
+     * @return {@code true} iff they are satisfiable
+     */
+    public boolean solve() {
+        return solve(new Interpretation());
+    }
+
+    /**
+     * Checks if the base expression and the constraints of the open scopes are satisfiable together
+     * when some variables have given values. The assumptions only hold for this query.
+     * @param assumptions the assumed values, they may include variables not used by any constraint
+     * @return {@code true} iff the constraints are satisfiable under {@code assumptions}, then the
+     * model is available through {@link #model()}, otherwise the assumptions responsible are
+     * available through {@link #failedAssumptions()}
+     * @throws IllegalArgumentException if {@code assumptions} is {@code null}
+     */
+    public boolean solve(Interpretation assumptions) {
+        if (assumptions == null) {
+            throw new IllegalArgumentException("assumptions cannot be null");
+        }
+        IntVec assumed = new IntVec();
+        for (int i = 0; i < selectors.size(); i++) {
+            assumed.add(selectors.get(i));
+        }
+        for (String var : assumptions.variables()) {
+            int v = variable(var);
+            assumed.add(assumptions.valueOf(var) ? v : -v);
+        }
+        model = null;
+        failed = null;
+        if (solver.solve(assumed.toArray())) {
+            model = new Interpretation();
+            for (Map.Entry<String, Integer> entry : variables.entrySet()) {
+                model.add(entry.getKey(), solver.modelValue(entry.getValue()));
+            }
+            return true;
+        }
+        failed = new Interpretation();
+        for (int lit : solver.failedAssumptions()) {
+            String var = nameOf(Math.abs(lit));
+            if (var != null && assumptions.exists(var)) {
+                failed.add(var, lit > 0);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the model found by the last query, assigning every variable of the base expression,
+     * of the constraints of the open scopes and of the assumptions
+     * @throws IllegalStateException if the last query was not satisfiable
+     */
+    public Interpretation model() {
+        if (model == null) {
+            throw new IllegalStateException("the last query was not satisfiable");
+        }
+        return (Interpretation) model.clone();
+    }
+
+    /**
+     * Returns the assumptions of the last query that are responsible for its unsatisfiability:
+     * the constraints are already unsatisfiable when only these assumptions are made. It is empty
+     * when the constraints are unsatisfiable without any assumption.
+     * @return a subset of the assumptions of the last query
+     * @throws IllegalStateException if the last query was satisfiable or there was no query
+     */
+    public Interpretation failedAssumptions() {
+        if (failed == null) {
+            throw new IllegalStateException("the last query was not unsatisfiable");
+        }
+        return (Interpretation) failed.clone();
+    }
+
+    /**
+     * @return {@code true} iff the base expression and the constraints added outside of any scope
+     * are unsatisfiable, in which case every query fails whatever its assumptions
+     */
+    public boolean isInconsistent() {
+        return !solver.isConsistent();
+    }
+
+    private int variable(String name) {
+        Integer v = variables.get(name);
+        if (v == null) {
+            v = newVariable();
+            variables.put(name, v);
+            names.add(name);
+            if (v >= variableNames.length) {
+                variableNames = Arrays.copyOf(variableNames, Math.max(2 * variableNames.length, v + 1));
+            }
+            variableNames[v] = name;
+        }
+        return v;
+    }
+
+    private int newVariable() {
+        solver.ensureVariables(++variableCount);
+        return variableCount;
+    }
+
+    private String nameOf(int v) {
+        return v < variableNames.length ? variableNames[v] : null;
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        return solver != null && variables != null && names != null && selectors != null && marks != null
+            && selectors.size() == marks.size() && variables.size() == names.size();
+    }
+}
@@ -0,0 +1,153 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * The statistics of a single query of {@link SatSolver}.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> query and phaseNanos are not {@code null}</li>
+ *  <li> phaseNanos has one entry per {@link SolverPhase}</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class SolverStatistics {
+
+    private final String query;
+    private final long nanos;
+    private final long[] phaseNanos;
+    private final long conflicts;
+    private final long decisions;
+    private final long propagations;
+    private final long evaluations;
+    private final long interpretations;
+    private final boolean cached;
+
+    /**
+     * Constructs new statistics
+     * @param query the name of the method answering the query
+     * @param nanos the duration of the query in nanoseconds
+     * @param phaseNanos the time spent in every phase, indexed by {@link SolverPhase#ordinal()}
+     * @param conflicts the number of conflicts of the searches
+     * @param decisions the number of decisions of the searches
+     * @param propagations the number of propagated assignments of the searches
+     * @param evaluations the number of interpretations the expression was evaluated under
+     * @param interpretations the number of interpretations created
+     * @param cached whether the query was answered by the result cache
+     * @throws IllegalArgumentException if {@code query} or {@code phaseNanos} is {@code null}
+     */
+    SolverStatistics(String query, long nanos, long[] phaseNanos, long conflicts, long decisions,
+            long propagations, long evaluations, long interpretations, boolean cached) {
+        if (query == null || phaseNanos == null) {
+            throw new IllegalArgumentException("query and phaseNanos cannot be null");
+        }
+        this.query = query;
+        this.nanos = nanos;
+        this.phaseNanos = phaseNanos.clone();
+        this.conflicts = conflicts;
+        this.decisions = decisions;
+        this.propagations = propagations;
+        this.evaluations = evaluations;
+        this.interpretations = interpretations;
+        this.cached = cached;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return the name of the method answering the query, e.g.: {@code isTautology}
+     */
+    public String query() {
+        return query;
+    }
+
+    /**
+     * @return the duration of the query in nanoseconds
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * @param phase a phase
+     * @return the time spent in {@code phase} in nanoseconds
+     * @throws IllegalArgumentException if {@code phase} is {@code null}
+     */
+    public long nanos(SolverPhase phase) {
+        if (phase == null) {
+            throw new IllegalArgumentException("phase cannot be null");
+        }
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the number of conflicts of the searches
+     */
+    public long conflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return the number of decisions of the searches
+     */
+    public long decisions() {
+        return decisions;
+    }
+
+    /**
+     * @return the number of propagated assignments of the searches
+     */
+    public long propagations() {
+        return propagations;
+    }
+
+    /**
+     * @return the number of interpretations the expression was evaluated under, a truth table
+     * counts as one evaluation per row
+     */
+    public long evaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the number of interpretations created for the result
+     */
+    public long interpretations() {
+        return interpretations;
+    }
+
+    /**
+     * @return {@code true} iff the query was answered by the {@link ResultCache}
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(query).append(": ").append(nanos).append("ns");
+        if (cached) {
+            result.append(", cached");
+        }
+        for (SolverPhase phase : SolverPhase.values()) {
+            if (phaseNanos[phase.ordinal()] > 0) {
+                result.append(", ").append(phase.name().toLowerCase()).append(' ').append(phaseNanos[phase.ordinal()]).append("ns");
+            }
+        }
+        return result.append(", conflicts=").append(conflicts).append(", decisions=").append(decisions)
+            .append(", propagations=").append(propagations).append(", evaluations=").append(evaluations)
+            .append(", interpretations=").append(interpretations).toString();
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        return query != null && phaseNanos != null && phaseNanos.length == SolverPhase.values().length
+            && Arrays.stream(phaseNanos).allMatch(n -> n >= 0);
+    }
+}
@@ -0,0 +1,184 @@
+package solver;
+
+import java.util.Collection;
+
+/**
+ * The measures of a single query of {@link SatSolver}, reported to {@link SolverMetrics} when it finishes.
+ *
+ * Statistics are reported to {@link SolverMetrics} when measuring is enabled, and the Flight Recorder
+ * events of the query and its phases are committed when a recording enables them, whether measuring is
+ * enabled or not. When neither is, {@link #start(String)} returns a shared trace whose methods do nothing,
+ * so an unmeasured query only pays for reading {@link SolverMetrics#enabled} and whether the events are
+ * enabled. Queries returning their statistics use {@link #measure(String)} instead, whose trace always
+ * measures. A trace is only used by the thread running its query.
+ *
+ * @version 0.1
+ */
+final class Trace {
+
+    private static final Trace DISABLED = new Trace(null, false);
+
+    /* (non-javadoc)
+     * Never committed, only asked whether a recording enables the events of queries and phases.
+     */
+    private static final QueryEvent QUERY_EVENTS = new QueryEvent();
+    private static final PhaseEvent PHASE_EVENTS = new PhaseEvent();
+
+    private final String query;
+    private final boolean report;
+    private final long start;
+    private final long[] phaseNanos;
+    private SolverPhase phase;
+    private long phaseStart;
+    private PhaseEvent phaseEvent;
+    private QueryEvent queryEvent;
+    private long conflicts;
+    private long decisions;
+    private long propagations;
+    private long evaluations;
+    private long interpretations;
+    private boolean cached;
+
+    private Trace(String query, boolean report) {
+        this.query = query;
+        this.report = report;
+        if (query == null) {
+            this.start = 0;
+            this.phaseNanos = null;
+        } else {
+            this.queryEvent = new QueryEvent();
+            this.queryEvent.begin();
+            this.start = System.nanoTime();
+            this.phaseNanos = new long[SolverPhase.values().length];
+        }
+    }
+
+    /**
+     * Starts measuring a query
+     * @param query the name of the method answering the query
+     * @return the trace of the query, which does nothing when measuring and the events of the query
+     * and its phases are disabled
+     */
+    static Trace start(String query) {
+        boolean report = SolverMetrics.enabled;
+        return report || QUERY_EVENTS.isEnabled() || PHASE_EVENTS.isEnabled() ? new Trace(query, report) : DISABLED;
+    }
+
+    /**
+     * Starts measuring a query whose statistics are needed even when measuring is disabled
+     * @param query the name of the method answering the query
+     * @return the trace of the query
+     */
+    static Trace measure(String query) {
+        return new Trace(query, SolverMetrics.enabled);
+    }
+
+    /**
+     * Ends the current phase, if any, and starts the next one
+     */
+    void phase(SolverPhase next) {
+        if (query == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        endPhase(now);
+        phase = next;
+        phaseStart = now;
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+    }
+
+    /**
+     * Adds the work of a search
+     */
+    void search(CdclSolver solver) {
+        if (query == null) {
+            return;
+        }
+        conflicts += solver.conflicts();
+        decisions += solver.decisions();
+        propagations += solver.propagations();
+    }
+
+    /**
+     * Adds evaluations of the expression, a truth table counting one per row
+     */
+    void evaluations(long count) {
+        if (query != null) {
+            evaluations += count;
+        }
+    }
+
+    /**
+     * Adds created interpretations
+     */
+    void interpretations(long count) {
+        if (query != null) {
+            interpretations += count;
+        }
+    }
+
+    /**
+     * Records that the query was answered by the result cache
+     */
+    void cacheHit() {
+        if (query != null) {
+            cached = true;
+        }
+    }
+
+    /**
+     * Ends the query and reports its statistics, a collection result counting as that many interpretations
+     * @param result the result of the query
+     * @return the statistics of the query, or {@code null} if it was not measured
+     */
+    SolverStatistics finish(Object result) {
+        if (query == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        endPhase(now);
+        String value;
+        if (result instanceof Collection) {
+            interpretations += ((Collection<?>) result).size();
+            value = ((Collection<?>) result).size() + " interpretations";
+        } else {
+            value = String.valueOf(result);
+        }
+        SolverStatistics statistics = new SolverStatistics(query, now - start, phaseNanos, conflicts, decisions,
+            propagations, evaluations, interpretations, cached);
+        queryEvent.end();
+        if (queryEvent.shouldCommit()) {
+            queryEvent.query = query;
+            queryEvent.result = value;
+            queryEvent.cached = cached;
+            queryEvent.conflicts = conflicts;
+            queryEvent.decisions = decisions;
+            queryEvent.propagations = propagations;
+            queryEvent.evaluations = evaluations;
+            queryEvent.interpretations = interpretations;
+            queryEvent.commit();
+        }
+        if (report) {
+            SolverMetrics.get().queryFinished(statistics);
+        }
+        return statistics;
+    }
+
+    private void endPhase(long now) {
+        if (phase == null) {
+            return;
+        }
+        phaseNanos[phase.ordinal()] += now - phaseStart;
+        phaseEvent.end();
+        if (phaseEvent.shouldCommit()) {
+            phaseEvent.query = query;
+            phaseEvent.phase = phase.name();
+            phaseEvent.commit();
+        }
+        if (report) {
+            SolverMetrics.get().phaseFinished(query, phase, now - phaseStart);
+        }
+        phase = null;
+    }
+}
@@ -0,0 +1,347 @@
+package solver.bdd;
+
+import expressions.CompiledExpression;
+import expressions.Expression;
+import expressions.Interpretation;
+import expressions.SymbolTable;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A boolean expression represented as a reduced ordered binary decision diagram.
+ *
+ * A diagram is canonical for its variable order, so once it is built tautology and contradiction
+ * checks take constant time, and counting models or listing the satisfying paths takes time
+ * proportional to the size of the diagram rather than to the number of interpretations.
+ * This makes it an alternative to {@link solver.SatSolver} when many queries are made on the same
+ * expression.
+ *
+ * Diagrams are built from the {@link CompiledExpression} program of an expression, so shared
+ * sub-expressions are only built once. The initial variable order follows the first occurrence of
+ * each variable in the program, which keeps related variables close to each other. While building,
+ * the pool is garbage collected whenever it doubles and, if dynamic reordering is enabled, the
+ * variables are sifted whenever the live diagrams double: each variable in turn is moved through
+ * the levels by swapping adjacent levels in place and left where the diagrams are smallest.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> manager and symbols are not {@code null} and have the same number of variables</li>
+ *  <li> root is a node of manager</li>
+ * </ul>
+ *
+ * @version 0.1
+ */
+public final class Bdd {
+
+    /* (non-javadoc)
+     * Pools smaller than this are never collected nor reordered while building.
+     */
+    private static final int MIN_COLLECT_NODES = 1 << 14;
+
+    /* (non-javadoc)
+     * Diagrams are sifted again only once they have doubled since the last sifting.
+     */
+    private static final int MIN_SIFT_NODES = 1 << 12;
+
+    private final SymbolTable symbols;
+    private final BddManager manager;
+    private final int root;
+
+    private Bdd(SymbolTable symbols, BddManager manager, int root) {
+        this.symbols = symbols;
+        this.manager = manager;
+        this.root = root;
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * Builds the diagram of an expression with dynamic reordering
+     * @param expression the expression to use
+     * @return the diagram of {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Bdd of(Expression expression) {
+        return of(expression, true);
+    }
+
+    /**
+     * Builds the diagram of an expression
+     * @param expression the expression to use
+     * @param reorder whether variables are sifted when the diagram grows while building
+     * @return the diagram of {@code expression}
+     * @throws IllegalArgumentException if {@code expression} is {@code null}
+     */
+    public static Bdd of(Expression expression, boolean reorder) {
+        if (expression == null) {
+            throw new IllegalArgumentException("expression cannot be null");
+        }
+        CompiledExpression program = CompiledExpression.compile(expression);
+        BddManager manager = new BddManager(initialOrder(program));
+        int[] stack = new int[program.maxDepth()];
+        int[] registers = new int[program.registers()];
+        int top = -1;
+        int threshold = MIN_COLLECT_NODES;
+        int siftThreshold = MIN_SIFT_NODES;
+        for (int pc = 0; pc < program.size(); pc++) {
+            int operand = program.operand(pc);
+            switch (program.opcode(pc)) {
+                case CompiledExpression.VAR:
+                    stack[++top] = manager.variable(operand);
+                    break;
+                case CompiledExpression.CONST:
+                    stack[++top] = operand != 0 ? BddManager.TRUE : BddManager.FALSE;
+                    break;
+                case CompiledExpression.NOT:
+                    stack[top] = manager.not(stack[top]);
+                    break;
+                case CompiledExpression.AND:
+                    top--;
+                    stack[top] = manager.and(stack[top], stack[top + 1]);
+                    break;
+                case CompiledExpression.OR:
+                    top--;
+                    stack[top] = manager.or(stack[top], stack[top + 1]);
+                    break;
+                case CompiledExpression.XOR:
+                    top--;
+                    stack[top] = manager.xor(stack[top], stack[top + 1]);
+                    break;
+                case CompiledExpression.STORE:
+                    registers[operand] = stack[top];
+                    break;
+                case CompiledExpression.LOAD:
+                    stack[++top] = registers[operand];
+                    break;
+                default:
+                    throw new IllegalArgumentException("unsupported opcode " + program.opcode(pc));
+            }
+            if (manager.nodeCount() > threshold) {
+                int[] roots = new int[top + 1 + registers.length];
+                System.arraycopy(stack, 0, roots, 0, top + 1);
+                System.arraycopy(registers, 0, roots, top + 1, registers.length);
+                int[] newRoots = new int[roots.length];
+                manager = manager.compacted(roots, newRoots);
+                if (reorder && manager.nodeCount() > siftThreshold) {
+                    manager = manager.sifted(newRoots.clone(), newRoots);
+                    siftThreshold = Math.max(MIN_SIFT_NODES, 2 * manager.nodeCount());
+                }
+                System.arraycopy(newRoots, 0, stack, 0, top + 1);
+                System.arraycopy(newRoots, top + 1, registers, 0, registers.length);
+                threshold = Math.max(MIN_COLLECT_NODES, 2 * manager.nodeCount());
+            }
+        }
+        return new Bdd(program.symbols(), manager, stack[0]);
+    }
+
+    /* (non-javadoc)
+     * Orders the variables by their first occurrence in the program.
+     */
+    private static int[] initialOrder(CompiledExpression program) {
+        int count = program.variables().size();
+        int[] order = new int[count];
+        boolean[] placed = new boolean[count];
+        int level = 0;
+        for (int pc = 0; pc < program.size(); pc++) {
+            if (program.opcode(pc) == CompiledExpression.VAR && !placed[program.operand(pc)]) {
+                placed[program.operand(pc)] = true;
+                order[level++] = program.operand(pc);
+            }
+        }
+        for (int v = 0; v < count; v++) {
+            if (!placed[v]) {
+                order[level++] = v;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * @return a diagram of the same expression whose variables were sifted to make it smaller
+     */
+    public Bdd sifted() {
+        int[] newRoots = new int[1];
+        BddManager pool = manager.sifted(new int[] {root}, newRoots);
+        return new Bdd(symbols, pool, newRoots[0]);
+    }
+
+    /**
+     * @return the variables of the expression in their natural order
+     */
+    public List<String> variables() {
+        return symbols.names();
+    }
+
+    /**
+     * @return the variables of the expression in the order they are tested, from the root
+     */
+    public List<String> order() {
+        List<String> result = new ArrayList<>();
+        for (int level = 0; level < manager.variableCount(); level++) {
+            result.add(symbols.name(manager.varAt(level)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return the number of nodes of this diagram, including the terminals
+     */
+    public int size() {
+        return manager.liveCount(new int[] {root});
+    }
+
+    /**
+     * @return {@code true} iff the expression is {@code true} under all interpretations
+     */
+    public boolean isTautology() {
+        return root == BddManager.TRUE;
+    }
+
+    /**
+     * @return {@code true} iff the expression is {@code false} under all interpretations
+     */
+    public boolean isContradiction() {
+        return root == BddManager.FALSE;
+    }
+
+    /**
+     * Counts the models of the expression in time linear in the size of this diagram
+     * @return the number of interpretations of the variables of the expression that satisfy it
+     */
+    public BigInteger countModels() {
+        boolean[] live = manager.reachable(new int[] {root});
+        BigInteger[] count = new BigInteger[live.length];
+        count[BddManager.FALSE] = BigInteger.ZERO;
+        count[BddManager.TRUE] = BigInteger.ONE;
+        for (int node = 2; node < live.length; node++) {
+            if (live[node]) {
+                int level = manager.level(node);
+                int low = manager.low(node);
+                int high = manager.high(node);
+                count[node] = count[low].shiftLeft(manager.level(low) - level - 1)
+                    .add(count[high].shiftLeft(manager.level(high) - level - 1));
+            }
+        }
+        return count[root].shiftLeft(manager.level(root));
+    }
+
+    /**
+     * Evaluates the expression by following a single path of this diagram
+     * @param interpretation the interpretation to use
+     * @return the value of the expression under {@code interpretation}
+     * @throws IllegalArgumentException if {@code interpretation} is {@code null}
+     * @throws IllegalArgumentException if {@code interpretation} does not provide all variables of the expression
+     */
+    public boolean evaluate(Interpretation interpretation) {
+        if (interpretation == null) {
+            throw new IllegalArgumentException("interpretation cannot be null");
+        }
+        for (String var : symbols.names()) {
+            if (!interpretation.exists(var)) {
+                throw new IllegalArgumentException("variable " + var + " does not exist in interpretation");
+            }
+        }
+        int node = root;
+        while (node > BddManager.TRUE) {
+            node = interpretation.valueOf(symbols.name(manager.var(node))) ? manager.high(node) : manager.low(node);
+        }
+        return node == BddManager.TRUE;
+    }
+
+    /**
+     * Lists the paths of this diagram leading to {@code true}, lazily.
+     * Each path is returned as an interpretation assigning only the variables tested along it,
+     * every extension of it to the other variables satisfies the expression, and the paths
+     * describe disjoint sets of models.
+     * @return a sequential stream of the satisfying paths of this diagram
+     */
+    public Stream<Interpretation> satisfyingPaths() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new PathIterator(),
+            Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    /* (non-javadoc)
+     * Depth-first walk of the diagram without recursion, trying the low child first.
+     * Each stack entry holds a node, the length of the path leading to it and the value given
+     * to the last variable of that path.
+     */
+    private final class PathIterator implements Iterator<Interpretation> {
+
+        private final int[] nodes = new int[2 * manager.variableCount() + 2];
+        private final int[] lengths = new int[nodes.length];
+        private final boolean[] values = new boolean[nodes.length];
+        private final int[] pathVariables = new int[manager.variableCount()];
+        private final boolean[] pathValues = new boolean[manager.variableCount()];
+        private int top;
+        private Interpretation next;
+
+        private PathIterator() {
+            nodes[0] = root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && top >= 0) {
+                int node = nodes[top];
+                int length = lengths[top];
+                boolean value = values[top];
+                top--;
+                if (length > 0) {
+                    pathValues[length - 1] = value;
+                }
+                if (node == BddManager.TRUE) {
+                    Interpretation path = new Interpretation();
+                    for (int i = 0; i < length; i++) {
+                        path.add(symbols.name(pathVariables[i]), pathValues[i]);
+                    }
+                    next = path;
+                } else if (node != BddManager.FALSE) {
+                    pathVariables[length] = manager.var(node);
+                    push(manager.high(node), length + 1, true);
+                    push(manager.low(node), length + 1, false);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Interpretation next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Interpretation result = next;
+            next = null;
+            return result;
+        }
+
+        private void push(int node, int length, boolean value) {
+            top++;
+            nodes[top] = node;
+            lengths[top] = length;
+            values[top] = value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Bdd(" + size() + " nodes, order " + order() + ")";
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    public boolean repOk() {
+        return symbols != null && manager != null && manager.variableCount() == symbols.size()
+            && root >= 0 && root < manager.nodeCount();
+    }
+}
@@ -0,0 +1,637 @@
+package solver.bdd;
+
+import java.util.Arrays;
+
+/**
+ * A pool of reduced ordered binary decision diagram nodes.
+ *
+ * Nodes are numbered from {@code 0}: node {@link #FALSE} and node {@link #TRUE} are the terminals,
+ * and the variable, low child and high child of every other node are kept in parallel int arrays.
+ * A chained unique table, whose chains are also kept in an int array, guarantees that no two nodes
+ * have the same variable and children, so two functions are equal iff they are the same node, and
+ * a lossy direct-mapped computed table caches the results of {@link #ite(int, int, int)}.
+ *
+ * Outside of {@link #sifted(int[], int[])} a node is always created after its children, so its
+ * number is greater than theirs and the nodes can be visited bottom-up without recursion.
+ * Operations recurse at most once per level, so their stack depth is bounded by the number of
+ * variables rather than by the size of the diagrams.
+ *
+ * Class invariants:
+ * <ul>
+ *  <li> levelOf and varAt are inverse permutations of {@code 0..variableCount-1}</li>
+ *  <li> the children of every node are smaller than it and on strictly lower levels</li>
+ *  <li> no node has equal children</li>
+ * </ul>
+ *
+ * @version 0.2
+ */
+final class BddManager {
+
+    /**
+     * The node of the constant function {@code false}
+     */
+    static final int FALSE = 0;
+
+    /**
+     * The node of the constant function {@code true}
+     */
+    static final int TRUE = 1;
+
+    /* (non-javadoc)
+     * Sifting stops moving a variable in one direction once the diagram grows by this factor.
+     */
+    private static final double MAX_GROWTH = 1.2;
+
+    /* (non-javadoc)
+     * Only the variables labelling most nodes are sifted.
+     */
+    private static final int MAX_SIFTED_VARIABLES = 64;
+
+    /* (non-javadoc)
+     * The variable of nodes freed while sifting.
+     */
+    private static final int DEAD = -1;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int MAX_CACHE = 1 << 20;
+
+    private final int variableCount;
+    private final int[] levelOf;
+    private final int[] varAt;
+
+    private int[] var;
+    private int[] low;
+    private int[] high;
+    private int[] next;
+    private int size;
+
+    private int[] buckets;
+    private int[] cache;
+
+    /* (non-javadoc)
+     * Only used while sifting: reference counts, the nodes of each variable, which may also hold
+     * nodes that were freed or relabelled since, the number of live nodes and the chain of freed
+     * nodes, linked through next.
+     */
+    private int[] references;
+    private int[][] nodesOfVariable;
+    private int[] nodesOfVariableCount;
+    private int[] stamps;
+    private int stamp;
+    private int liveNodes;
+    private int free;
+
+    /**
+     * Constructs a new pool holding only the terminals
+     * @param order the variable on each level, from the top
+     */
+    BddManager(int[] order) {
+        this.variableCount = order.length;
+        this.varAt = order.clone();
+        this.levelOf = new int[variableCount];
+        for (int level = 0; level < variableCount; level++) {
+            levelOf[varAt[level]] = level;
+        }
+        this.var = new int[INITIAL_CAPACITY];
+        this.low = new int[INITIAL_CAPACITY];
+        this.high = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        var[FALSE] = variableCount;
+        var[TRUE] = variableCount;
+        this.size = 2;
+        this.buckets = new int[INITIAL_CAPACITY];
+        this.cache = new int[INITIAL_CAPACITY * 4];
+        Arrays.fill(cache, -1);
+        if (!repOk()) {
+            throw new IllegalStateException("Postcondition violated: representation invariant not maintained after construction");
+        }
+    }
+
+    /**
+     * @return the number of variables
+     */
+    int variableCount() {
+        return variableCount;
+    }
+
+    /**
+     * @return the number of nodes of this pool, including the terminals and dead nodes
+     */
+    int nodeCount() {
+        return size;
+    }
+
+    /**
+     * @param node a node
+     * @return the variable of {@code node}, {@code variableCount()} for the terminals
+     */
+    int var(int node) {
+        return var[node];
+    }
+
+    /**
+     * @param node a non terminal node
+     * @return the child of {@code node} for which its variable is {@code false}
+     */
+    int low(int node) {
+        return low[node];
+    }
+
+    /**
+     * @param node a non terminal node
+     * @return the child of {@code node} for which its variable is {@code true}
+     */
+    int high(int node) {
+        return high[node];
+    }
+
+    /**
+     * @param node a node
+     * @return the level of {@code node}, {@code variableCount()} for the terminals
+     */
+    int level(int node) {
+        return node < 2 ? variableCount : levelOf[var[node]];
+    }
+
+    /**
+     * @param level a level
+     * @return the variable on {@code level}
+     */
+    int varAt(int level) {
+        return varAt[level];
+    }
+
+    /**
+     * @return a copy of the variable order, from the top level
+     */
+    int[] order() {
+        return varAt.clone();
+    }
+
+    /**
+     * @param v a variable
+     * @return the node of the function that is {@code true} iff {@code v} is
+     */
+    int variable(int v) {
+        return mk(v, FALSE, TRUE);
+    }
+
+    /**
+     * @param f a node
+     * @return the node of {@code not f}
+     */
+    int not(int f) {
+        return ite(f, FALSE, TRUE);
+    }
+
+    /**
+     * @param f a node
+     * @param g a node
+     * @return the node of {@code f and g}
+     */
+    int and(int f, int g) {
+        return ite(f, g, FALSE);
+    }
+
+    /**
+     * @param f a node
+     * @param g a node
+     * @return the node of {@code f or g}
+     */
+    int or(int f, int g) {
+        return ite(f, TRUE, g);
+    }
+
+    /**
+     * @param f a node
+     * @param g a node
+     * @return the node of {@code f xor g}
+     */
+    int xor(int f, int g) {
+        return ite(f, not(g), g);
+    }
+
+    /**
+     * If-then-else, the operator every other one is built on
+     * @param f the condition
+     * @param g the function where {@code f} is {@code true}
+     * @param h the function where {@code f} is {@code false}
+     * @return the node of {@code (f and g) or (not f and h)}
+     */
+    int ite(int f, int g, int h) {
+        if (g == f) {
+            g = TRUE;
+        }
+        if (h == f) {
+            h = FALSE;
+        }
+        if (f == TRUE || g == h) {
+            return g;
+        }
+        if (f == FALSE) {
+            return h;
+        }
+        if (g == TRUE && h == FALSE) {
+            return f;
+        }
+        int slot = (hash(f, g, h) & (cache.length / 4 - 1)) * 4;
+        if (cache[slot] == f && cache[slot + 1] == g && cache[slot + 2] == h) {
+            return cache[slot + 3];
+        }
+        int top = Math.min(level(f), Math.min(level(g), level(h)));
+        int v = varAt[top];
+        int lowResult = ite(cofactor(f, v, false), cofactor(g, v, false), cofactor(h, v, false));
+        int highResult = ite(cofactor(f, v, true), cofactor(g, v, true), cofactor(h, v, true));
+        int result = mk(v, lowResult, highResult);
+        slot = (hash(f, g, h) & (cache.length / 4 - 1)) * 4;
+        cache[slot] = f;
+        cache[slot + 1] = g;
+        cache[slot + 2] = h;
+        cache[slot + 3] = result;
+        return result;
+    }
+
+    private int cofactor(int node, int v, boolean value) {
+        if (node < 2 || var[node] != v) {
+            return node;
+        }
+        return value ? high[node] : low[node];
+    }
+
+    /* (non-javadoc)
+     * Returns the unique node with variable v and children lo and hi, creating it if needed.
+     */
+    private int mk(int v, int lo, int hi) {
+        if (lo == hi) {
+            return lo;
+        }
+        int node = find(v, lo, hi);
+        if (node != 0) {
+            return node;
+        }
+        if (free != 0) {
+            node = free;
+            free = next[node];
+        } else {
+            if (size == var.length) {
+                grow();
+            }
+            node = size++;
+        }
+        var[node] = v;
+        low[node] = lo;
+        high[node] = hi;
+        insert(node);
+        return node;
+    }
+
+    /* (non-javadoc)
+     * Returns the node with variable v and children lo and hi, 0 if there is none.
+     */
+    private int find(int v, int lo, int hi) {
+        for (int node = buckets[hash(v, lo, hi) & (buckets.length - 1)]; node != 0; node = next[node]) {
+            if (var[node] == v && low[node] == lo && high[node] == hi) {
+                return node;
+            }
+        }
+        return 0;
+    }
+
+    /* (non-javadoc)
+     * Doubles the node arrays, rehashing the unique table and growing the computed table.
+     */
+    private void grow() {
+        int capacity = var.length * 2;
+        var = Arrays.copyOf(var, capacity);
+        low = Arrays.copyOf(low, capacity);
+        high = Arrays.copyOf(high, capacity);
+        next = new int[capacity];
+        buckets = new int[capacity];
+        for (int node = 2; node < size; node++) {
+            if (var[node] != DEAD) {
+                insert(node);
+            }
+        }
+        if (references != null) {
+            references = Arrays.copyOf(references, capacity);
+            stamps = Arrays.copyOf(stamps, capacity);
+        }
+        if (cache.length / 4 < MAX_CACHE) {
+            cache = new int[Math.min(capacity, MAX_CACHE) * 4];
+            Arrays.fill(cache, -1);
+        }
+    }
+
+    private void insert(int node) {
+        int bucket = hash(var[node], low[node], high[node]) & (buckets.length - 1);
+        next[node] = buckets[bucket];
+        buckets[bucket] = node;
+    }
+
+    private void remove(int node) {
+        int bucket = hash(var[node], low[node], high[node]) & (buckets.length - 1);
+        if (buckets[bucket] == node) {
+            buckets[bucket] = next[node];
+            return;
+        }
+        int previous = buckets[bucket];
+        while (next[previous] != node) {
+            previous = next[previous];
+        }
+        next[previous] = next[node];
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA77 + c * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+
+    /**
+     * Marks the nodes reachable from some roots
+     * @param roots the roots
+     * @return a flag per node of this pool, {@code true} iff the node is reachable from {@code roots}
+     */
+    boolean[] reachable(int[] roots) {
+        boolean[] live = new boolean[size];
+        for (int root : roots) {
+            live[root] = true;
+        }
+        for (int node = size - 1; node >= 2; node--) {
+            if (live[node]) {
+                live[low[node]] = true;
+                live[high[node]] = true;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @param roots the roots
+     * @return the number of nodes reachable from {@code roots}, including the terminals
+     */
+    int liveCount(int[] roots) {
+        boolean[] live = reachable(roots);
+        int count = 2;
+        for (int node = 2; node < live.length; node++) {
+            if (live[node]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies the functions of some roots into a new pool with the same variable order,
+     * dropping the nodes that are not reachable from them
+     * @param roots the nodes of the functions to keep
+     * @param newRoots receives the node of each root in the new pool
+     * @return the new pool
+     */
+    BddManager compacted(int[] roots, int[] newRoots) {
+        BddManager result = new BddManager(varAt);
+        int[] map = copyInto(result, roots);
+        for (int i = 0; i < roots.length; i++) {
+            newRoots[i] = map[roots[i]];
+        }
+        return result;
+    }
+
+    /* (non-javadoc)
+     * Copies the nodes reachable from roots children first into a pool with the same order,
+     * returns the new number of every copied node. The walk does not rely on node numbers, which
+     * are not ordered after sifting in place.
+     */
+    private int[] copyInto(BddManager target, int[] roots) {
+        int[] map = new int[size];
+        Arrays.fill(map, -1);
+        map[FALSE] = FALSE;
+        map[TRUE] = TRUE;
+        int[] pending = new int[2 * variableCount + 2];
+        for (int root : roots) {
+            int top = 0;
+            pending[top++] = root;
+            while (top > 0) {
+                int node = pending[top - 1];
+                if (map[node] >= 0) {
+                    top--;
+                } else if (map[low[node]] >= 0 && map[high[node]] >= 0) {
+                    top--;
+                    map[node] = target.mk(var[node], map[low[node]], map[high[node]]);
+                } else {
+                    if (map[low[node]] < 0) {
+                        pending[top++] = low[node];
+                    }
+                    if (map[high[node]] < 0) {
+                        pending[top++] = high[node];
+                    }
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Sifts the variables of the functions of some roots to make their diagrams smaller.
+     * Each of the variables labelling most nodes is in turn moved through all levels by swapping
+     * adjacent levels in place, moving on in a direction only while the diagrams do not grow by more
+     * than {@code MAX_GROWTH}, and is left on the level where the diagrams were smallest.
+     * A swap only rewrites the nodes of the two levels involved, and reference counts give the
+     * number of live nodes after each swap.
+     * @param roots the nodes of the functions to keep
+     * @param newRoots receives the node of each root in the new pool
+     * @return a new compacted pool with the sifted variable order
+     */
+    BddManager sifted(int[] roots, int[] newRoots) {
+        int[] current = new int[roots.length];
+        BddManager pool = compacted(roots, current);
+        pool.siftInPlace(current);
+        return pool.compacted(current, newRoots);
+    }
+
+    /* (non-javadoc)
+     * Sifting on a compacted pool holding only the nodes reachable from roots.
+     */
+    private void siftInPlace(int[] roots) {
+        references = new int[var.length];
+        stamps = new int[var.length];
+        nodesOfVariable = new int[variableCount][];
+        nodesOfVariableCount = new int[variableCount];
+        liveNodes = size - 2;
+        for (int root : roots) {
+            references[root]++;
+        }
+        for (int node = 2; node < size; node++) {
+            references[low[node]]++;
+            references[high[node]]++;
+            nodesOfVariableCount[var[node]]++;
+        }
+        int[] candidates = new int[variableCount];
+        for (int v = 0; v < variableCount; v++) {
+            nodesOfVariable[v] = new int[Math.max(4, nodesOfVariableCount[v])];
+            candidates[v] = v;
+        }
+        Arrays.fill(nodesOfVariableCount, 0);
+        for (int node = 2; node < size; node++) {
+            addToVariable(node, var[node]);
+        }
+        int[] sizes = nodesOfVariableCount.clone();
+        candidates = Arrays.stream(candidates).boxed()
+            .sorted((x, y) -> Integer.compare(sizes[y], sizes[x])).mapToInt(Integer::intValue).toArray();
+        for (int i = 0; i < Math.min(MAX_SIFTED_VARIABLES, variableCount) && sizes[candidates[i]] > 0; i++) {
+            siftVariable(candidates[i]);
+        }
+        references = null;
+        stamps = null;
+        nodesOfVariable = null;
+        nodesOfVariableCount = null;
+        free = 0;
+    }
+
+    /* (non-javadoc)
+     * Moves a variable down to the bottom, then up to the top, then to its best level,
+     * turning back early in a direction where the diagrams grow too much.
+     */
+    private void siftVariable(int v) {
+        int bestSize = liveNodes;
+        int bestLevel = levelOf[v];
+        while (levelOf[v] < variableCount - 1 && liveNodes <= MAX_GROWTH * bestSize) {
+            swap(levelOf[v]);
+            if (liveNodes < bestSize) {
+                bestSize = liveNodes;
+                bestLevel = levelOf[v];
+            }
+        }
+        while (levelOf[v] > 0 && (liveNodes <= MAX_GROWTH * bestSize || levelOf[v] > bestLevel)) {
+            swap(levelOf[v] - 1);
+            if (liveNodes < bestSize) {
+                bestSize = liveNodes;
+                bestLevel = levelOf[v];
+            }
+        }
+        while (levelOf[v] < bestLevel) {
+            swap(levelOf[v]);
+        }
+    }
+
+    /* (non-javadoc)
+     * Swaps the variables of levels level and level + 1 in place. Nodes of the upper variable x
+     * that depend on the lower variable y are rewritten as y nodes over new x nodes, keeping their
+     * number so their parents are unchanged; other x nodes simply move down a level.
+     */
+    private void swap(int level) {
+        int x = varAt[level];
+        int y = varAt[level + 1];
+        int[] nodes = nodesOfVariable[x];
+        int count = nodesOfVariableCount[x];
+        nodesOfVariable[x] = new int[Math.max(4, count)];
+        nodesOfVariableCount[x] = 0;
+        varAt[level] = y;
+        varAt[level + 1] = x;
+        levelOf[x] = level + 1;
+        levelOf[y] = level;
+        stamp++;
+        for (int i = 0; i < count; i++) {
+            int f = nodes[i];
+            if (var[f] != x || stamps[f] == stamp) {
+                continue;
+            }
+            stamps[f] = stamp;
+            int f0 = low[f];
+            int f1 = high[f];
+            if (var[f0] != y && var[f1] != y) {
+                addToVariable(f, x);
+                continue;
+            }
+            int f00 = var[f0] == y ? low[f0] : f0;
+            int f01 = var[f0] == y ? high[f0] : f0;
+            int f10 = var[f1] == y ? low[f1] : f1;
+            int f11 = var[f1] == y ? high[f1] : f1;
+            int newLow = mkReferenced(x, f00, f10);
+            int newHigh = mkReferenced(x, f01, f11);
+            remove(f);
+            var[f] = y;
+            low[f] = newLow;
+            high[f] = newHigh;
+            insert(f);
+            addToVariable(f, y);
+            release(f0);
+            release(f1);
+        }
+    }
+
+    /* (non-javadoc)
+     * mk while sifting: the result gets a new reference, and a new node references its children.
+     */
+    private int mkReferenced(int v, int lo, int hi) {
+        if (lo == hi) {
+            references[lo]++;
+            return lo;
+        }
+        int node = find(v, lo, hi);
+        if (node == 0) {
+            node = mk(v, lo, hi);
+            references[node] = 0;
+            stamps[node] = stamp;
+            references[lo]++;
+            references[hi]++;
+            addToVariable(node, v);
+            liveNodes++;
+        }
+        references[node]++;
+        return node;
+    }
+
+    /* (non-javadoc)
+     * Drops a reference to a node, freeing it and the descendants it was the last reference of.
+     */
+    private void release(int node) {
+        int[] pending = new int[16];
+        int top = 0;
+        pending[top++] = node;
+        while (top > 0) {
+            int n = pending[--top];
+            if (n < 2 || --references[n] > 0) {
+                continue;
+            }
+            remove(n);
+            var[n] = DEAD;
+            next[n] = free;
+            free = n;
+            liveNodes--;
+            if (top + 2 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pending[top++] = low[n];
+            pending[top++] = high[n];
+        }
+    }
+
+    private void addToVariable(int node, int v) {
+        if (nodesOfVariableCount[v] == nodesOfVariable[v].length) {
+            nodesOfVariable[v] = Arrays.copyOf(nodesOfVariable[v], 2 * nodesOfVariable[v].length);
+        }
+        nodesOfVariable[v][nodesOfVariableCount[v]++] = node;
+    }
+
+    /**
+     * Checks if the representation invariant is respected
+     * @return {@code true} if the representation invariant is respected, {@code false} otherwise
+     */
+    boolean repOk() {
+        if (levelOf == null || varAt == null || varAt.length != variableCount || size < 2) {
+            return false;
+        }
+        for (int level = 0; level < variableCount; level++) {
+            if (varAt[level] < 0 || varAt[level] >= variableCount || levelOf[varAt[level]] != level) {
+                return false;
+            }
+        }
+        for (int node = 2; node < size; node++) {
+            if (low[node] >= node || high[node] >= node || low[node] == high[node]
+                || level(low[node]) <= level(node) || level(high[node]) <= level(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package expressions;
+
+import solver.SatSolver;
+
+/**
+ * Regression tests of {@link Expression#parse(String)}, run by the {@code regressionTest} task.
+ *
+ * @version 0.1
+ */
+public final class ParseTest {
+
+    private ParseTest() {
+    }
+
+    public static void main(String[] args) {
+        deepNegations();
+        deepNegationsInParentheses();
+    }
+
+    /* (non-javadoc)
+     * not not ... not x with 20000 and 20001 negations: the parsed expression must stay shallow
+     * enough to be solved and printed.
+     */
+    private static void deepNegations() {
+        Expression even = Expression.parse(negations(20000) + "x");
+        check(even instanceof Variable, "an even number of negations folds to the operand");
+        check(SatSolver.isSatisfiable(even), "not not ... x with 20000 negations is satisfiable");
+        Expression odd = Expression.parse(negations(20001) + "(x and y)");
+        check(odd instanceof Negation, "an odd number of negations folds to a single negation");
+        check(odd.toString().equals("(not x and y)"), "the folded negation prints as one negation");
+        check(SatSolver.isSatisfiable(odd), "not not ... (x and y) with 20001 negations is satisfiable");
+        Expression contradiction = Expression.parse(negations(20001) + "x and x");
+        check(!SatSolver.isSatisfiable(contradiction), "(not x) and x is unsatisfiable");
+    }
+
+    /* (non-javadoc)
+     * not (not (... (not x) ...)) with 20000 negations, each one in its own parentheses.
+     */
+    private static void deepNegationsInParentheses() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append("not (");
+        }
+        text.append('x');
+        for (int i = 0; i < 20000; i++) {
+            text.append(')');
+        }
+        Expression expression = Expression.parse(text.toString());
+        check(expression.variables().size() == 1, "the only variable is x");
+        check(SatSolver.isSatisfiable(expression), "not (not (... x)) with 20000 negations is satisfiable");
+    }
+
+    private static String negations(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append("not ");
+        }
+        return text.toString();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
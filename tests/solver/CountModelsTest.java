@@ -0,0 +1,69 @@
+package solver;
+
+import expressions.Expression;
+import expressions.ExpressionFactory;
+import java.math.BigInteger;
+
+/**
+ * Regression tests of {@link SatSolver#countModels(Expression)}, run by the {@code regressionTest} task.
+ *
+ * @version 0.1
+ */
+public final class CountModelsTest {
+
+    private CountModelsTest() {
+    }
+
+    public static void main(String[] args) {
+        xorChainOfRepeatedVariables();
+        longXorChainOfRepeatedVariables();
+        xorChainWithOtherConstraints();
+    }
+
+    /* (non-javadoc)
+     * x0 xor x1 xor ... xor x29 xor x0 xor ... xor x29: every variable cancels, so no interpretation
+     * satisfies it, which a count branching on the variables of its clauses takes exponential time to find.
+     */
+    private static void xorChainOfRepeatedVariables() {
+        check(SatSolver.countModels(chain(new ExpressionFactory(), 60, 30)).signum() == 0,
+            "a chain of 60 exclusive ors over 30 variables has no model");
+        check(SatSolver.countModels(chain(new ExpressionFactory(), 61, 30)).equals(BigInteger.ONE.shiftLeft(29)),
+            "a chain of 61 exclusive ors over 30 variables has 2^29 models");
+    }
+
+    /* (non-javadoc)
+     * Only x0, ..., x19 occur an odd number of times in a chain of 20000 terms over 30 variables.
+     */
+    private static void longXorChainOfRepeatedVariables() {
+        check(SatSolver.countModels(chain(new ExpressionFactory(), 20000, 30)).equals(BigInteger.ONE.shiftLeft(29)),
+            "a chain of 20000 exclusive ors over 30 variables has 2^29 models");
+    }
+
+    /* (non-javadoc)
+     * A parity chain sharing its variables with a disjunction: (x0 xor ... xor x39) and (x0 or x1).
+     */
+    private static void xorChainWithOtherConstraints() {
+        ExpressionFactory f = new ExpressionFactory();
+        Expression expression = f.and(chain(f, 40, 40), f.or(f.variable("x0"), f.variable("x1")));
+        BigInteger expected = BigInteger.ONE.shiftLeft(39).subtract(BigInteger.ONE.shiftLeft(37));
+        check(SatSolver.countModels(expression).equals(expected),
+            "(x0 xor ... xor x39) and (x0 or x1) has 2^39 - 2^37 models");
+    }
+
+    /* (non-javadoc)
+     * The left deep chain x0 xor x1 xor ... of terms terms, term i being the variable x(i % variables).
+     */
+    private static Expression chain(ExpressionFactory f, int terms, int variables) {
+        Expression chain = f.variable("x0");
+        for (int i = 1; i < terms; i++) {
+            chain = f.xor(chain, f.variable("x" + i % variables));
+        }
+        return chain;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}